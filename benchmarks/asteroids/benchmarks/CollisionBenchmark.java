@@ -0,0 +1,97 @@
+package asteroids.benchmarks;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import asteroids.model.RoundEntity;
+import asteroids.model.Ship;
+import asteroids.model.World;
+
+/**
+ * Benchmarks of the collision queries of a world and of placing an entity in a world,
+ * each isolated from evolve. None of them changes the world between invocations.
+ *
+ * @version 1.0
+ *
+ * @author Amber Van Camp & Jasper Vanmeerbeeck
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class CollisionBenchmark {
+
+	@Param({"10", "100", "1000", "10000", "100000"})
+	public int nbEntities;
+
+	@Param({"SPARSE", "DENSE", "BULLETS"})
+	public Scenario scenario;
+
+	private World world;
+
+	/**
+	 * Two entities of the world, with the longest distance between them.
+	 */
+	private RoundEntity first, last;
+
+	/**
+	 * A ship that fits in the free cell of the world.
+	 */
+	private Ship visitor;
+
+	@Setup(Level.Trial)
+	public void createWorld(){
+		this.world = this.scenario.createWorld(this.nbEntities);
+		RoundEntity[] entities = this.world.getEntities().toArray(new RoundEntity[0]);
+		this.first = entities[0];
+		this.last = entities[0];
+		for (RoundEntity entity : entities){
+			if (entity.getxPosition()+entity.getyPosition() < this.first.getxPosition()+this.first.getyPosition())
+				this.first = entity;
+			if (entity.getxPosition()+entity.getyPosition() > this.last.getxPosition()+this.last.getyPosition())
+				this.last = entity;
+		}
+		double[] freeCell = this.scenario.getFreeCell(this.nbEntities);
+		this.visitor = new Ship(freeCell[0], freeCell[1], 0, 0, 10, 0, 1.0E20);
+	}
+
+	@Benchmark
+	public double getTimeNextCollision(){
+		return this.world.getTimeNextCollision();
+	}
+
+	@Benchmark
+	public Set<Set<RoundEntity>> getCollisions(){
+		return this.world.getCollisions();
+	}
+
+	@Benchmark
+	public double getTimeToCollision(){
+		return this.first.getTimeToCollision(this.last);
+	}
+
+	/**
+	 * Place the visitor in the world and take it out again, so the world is unchanged afterwards.
+	 */
+	@Benchmark
+	public World placeInSpace(){
+		this.visitor.placeInSpace(this.world);
+		this.visitor.removeEntityFromWorld(this.world);
+		return this.world;
+	}
+}
@@ -0,0 +1,78 @@
+package asteroids.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import asteroids.model.World;
+
+/**
+ * Benchmarks of evolving a world by a single frame, for each scenario and number of entities.
+ * The world is created again before each iteration, so all iterations start from the same state
+ * and bullets that died in one iteration are back in the next.
+ * Evolve may still fail in crowded worlds, when two entities overlap after a collision and get a
+ * negative time to collision. The world is then created again before the next invocation,
+ * outside the measured time.
+ *
+ * @version 1.0
+ *
+ * @author Amber Van Camp & Jasper Vanmeerbeeck
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class EvolveBenchmark {
+
+	/**
+	 * Constant registering the duration of a single frame.
+	 */
+	private static final double FRAME_DURATION = 1.0/60;
+
+	@Param({"10", "100", "1000", "10000", "100000"})
+	public int nbEntities;
+
+	@Param({"SPARSE", "DENSE", "BULLETS"})
+	public Scenario scenario;
+
+	@Param({"false", "true"})
+	public boolean columnarStorage;
+
+	private World world;
+
+	@Setup(Level.Iteration)
+	public void createWorld(){
+		this.world = this.scenario.createWorld(this.nbEntities);
+		this.world.setColumnarStorage(this.columnarStorage);
+	}
+
+	@Setup(Level.Invocation)
+	public void recreateFailedWorld(){
+		if (this.world == null)
+			this.createWorld();
+	}
+
+	@Benchmark
+	public World evolve(){
+		World world = this.world;
+		try {
+			world.evolve(FRAME_DURATION, null);
+		} catch (IllegalArgumentException exc){
+			this.world = null;
+		}
+		return world;
+	}
+}
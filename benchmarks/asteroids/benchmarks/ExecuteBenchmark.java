@@ -0,0 +1,105 @@
+package asteroids.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import asteroids.model.Program;
+import asteroids.model.ProgramFactory;
+import asteroids.model.RoundEntity;
+import asteroids.model.Ship;
+import asteroids.model.World;
+import asteroids.model.Programs.ExpressionCompiler;
+import asteroids.part3.programs.internal.ProgramParser;
+
+/**
+ * Benchmark of a single execute of the program of a ship, in worlds of different sizes.
+ * Several ships of the world run their own copy of the AI program, and each invocation
+ * executes the program of the next of those ships, so the result is the time per execute.
+ * The programs are run by the tree interpreter, or with their conditions and functions compiled
+ * to generated JVM classes.
+ *
+ * @version 1.0
+ *
+ * @author Amber Van Camp & Jasper Vanmeerbeeck
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ExecuteBenchmark {
+
+	/**
+	 * Constant registering the duration given to each execute.
+	 * The AI program runs at most two actions of 0.2 seconds, and an action suspends its program
+	 * when it has less time left, so each execute gets the time of both to run the whole program.
+	 */
+	private static final double EXECUTE_DURATION = 0.4;
+
+	@Param({"100", "1000", "10000"})
+	public int nbEntities;
+
+	@Param({"1", "10", "40"})
+	public int nbShips;
+
+	@Param({"false", "true"})
+	public boolean bytecode;
+
+	private Ship[] ships;
+
+	private int next = 0;
+
+	@Setup(Level.Trial)
+	public void loadPrograms() throws ClassNotFoundException{
+		World world = Scenario.SPARSE.createWorld(this.nbEntities);
+		List<Ship> ships = new ArrayList<Ship>();
+		for (RoundEntity ship : world.getEntityOfClass(Ship.class))
+			ships.add((Ship) ship);
+		if (ships.size() < this.nbShips)
+			throw new IllegalStateException("the world has only " + ships.size() + " ships");
+		Collections.sort(ships, new Comparator<Ship>(){
+			@Override
+			public int compare(Ship first, Ship second){
+				return Long.compare(first.getId(), second.getId());
+			}
+		});
+		ProgramParser<?, ?, ?, Program> parser = ProgramParser.create(new ProgramFactory());
+		this.ships = new Ship[this.nbShips];
+		// Conditions are compiled when they are parsed, functions when their program is loaded on a ship.
+		ExpressionCompiler.setBytecodeEnabled(this.bytecode);
+		for (int i = 0; i < this.nbShips; i++){
+			this.ships[i] = ships.get(i);
+			this.ships[i].setProgram(parser.parseString(ProgramSource.AI.getText()).getSuccessValue());
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void disableBytecode(){
+		ExpressionCompiler.setBytecodeEnabled(false);
+	}
+
+	@Benchmark
+	public List<Object> execute() throws ClassNotFoundException{
+		Ship ship = this.ships[this.next];
+		this.next = (this.next+1) % this.ships.length;
+		return ship.executeProgram(EXECUTE_DURATION);
+	}
+}
@@ -0,0 +1,141 @@
+package asteroids.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import asteroids.model.Program;
+import asteroids.model.ProgramFactory;
+import asteroids.model.RoundEntity;
+import asteroids.model.Ship;
+import asteroids.model.World;
+import asteroids.model.Programs.Expression;
+import asteroids.model.Programs.Function;
+import asteroids.model.Programs.Statement;
+import asteroids.part3.programs.SourceLocation;
+
+/**
+ * Benchmarks of the cost of single nodes of a program, each built through the program factory
+ * and evaluated or executed on its own by a ship of a world of the bullet-heavy scenario.
+ * The entity expressions search that world, so their cost depends on its size.
+ * The any expression is left out: it throws for every ship that lies in a world.
+ *
+ * @version 1.0
+ *
+ * @author Amber Van Camp & Jasper Vanmeerbeeck
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class NodeBenchmark {
+
+	/**
+	 * Constant registering the name of the function and the variable of the benchmarks.
+	 * The interpreter finds a function by comparing names with ==, so the same string is used everywhere.
+	 */
+	private static final String NAME = "f";
+
+	/**
+	 * Constant registering the location of all nodes.
+	 */
+	private static final SourceLocation LOCATION = new SourceLocation(1, 1);
+
+	@Param({"10", "1000", "10000"})
+	public int nbEntities;
+
+	private Ship ship;
+
+	/**
+	 * A loop running a single iteration, that breaks out of it.
+	 */
+	private Statement whileStatement;
+
+	/**
+	 * A call of a function of two parameters, returning a constant.
+	 */
+	private Expression<?> functionInvocation;
+
+	private Expression<?> variable, self, shipExpression, asteroid, bullet;
+
+	@Setup(Level.Trial)
+	public void createNodes() throws ClassNotFoundException{
+		World world = Scenario.BULLETS.createWorld(this.nbEntities);
+		for (RoundEntity ship : world.getEntityOfClass(Ship.class)){
+			if (this.ship == null || ship.getId() < this.ship.getId())
+				this.ship = (Ship) ship;
+		}
+		ProgramFactory factory = new ProgramFactory();
+		this.whileStatement = factory.createWhileStatement(
+				factory.createLessThanExpression(factory.createDoubleLiteralExpression(1, LOCATION),
+						factory.createDoubleLiteralExpression(2, LOCATION), LOCATION),
+				factory.createSequenceStatement(Collections.singletonList(factory.createBreakStatement(LOCATION)), LOCATION),
+				LOCATION);
+		Function function = factory.createFunctionDefinition(NAME,
+				factory.createReturnStatement(factory.createDoubleLiteralExpression(1, LOCATION), LOCATION), LOCATION);
+		List<Expression<?>> arguments = new ArrayList<Expression<?>>();
+		arguments.add(factory.createDoubleLiteralExpression(3, LOCATION));
+		arguments.add(factory.createDoubleLiteralExpression(7, LOCATION));
+		this.functionInvocation = factory.createFunctionCallExpression(NAME, arguments, LOCATION);
+		Program program = factory.createProgram(Collections.singletonList(function), this.whileStatement);
+		this.ship.setProgram(program);
+		program.setVariable(NAME, 5.0);
+		this.variable = factory.createReadVariableExpression(NAME, LOCATION);
+		this.self = factory.createSelfExpression(LOCATION);
+		this.shipExpression = factory.createShipExpression(LOCATION);
+		this.asteroid = factory.createAsteroidExpression(LOCATION);
+		this.bullet = factory.createBulletExpression(LOCATION);
+	}
+
+	@Benchmark
+	public Statement whileStatement() throws ClassNotFoundException{
+		this.whileStatement.execute();
+		return this.whileStatement;
+	}
+
+	@Benchmark
+	public Object functionInvocation() throws ClassNotFoundException{
+		return this.functionInvocation.evaluate(this.ship, null);
+	}
+
+	@Benchmark
+	public Object variable() throws ClassNotFoundException{
+		return this.variable.evaluate(this.ship, null);
+	}
+
+	@Benchmark
+	public Object self() throws ClassNotFoundException{
+		return this.self.evaluate(this.ship, null);
+	}
+
+	@Benchmark
+	public Object ship() throws ClassNotFoundException{
+		return this.shipExpression.evaluate(this.ship, null);
+	}
+
+	@Benchmark
+	public Object asteroid() throws ClassNotFoundException{
+		return this.asteroid.evaluate(this.ship, null);
+	}
+
+	@Benchmark
+	public Object bullet() throws ClassNotFoundException{
+		return this.bullet.evaluate(this.ship, null);
+	}
+}
@@ -0,0 +1,51 @@
+package asteroids.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import asteroids.model.Program;
+import asteroids.model.ProgramFactory;
+import asteroids.part3.programs.internal.ProgramParser;
+
+/**
+ * Benchmark of parsing a program text into a program, through the parser and the program factory.
+ *
+ * @version 1.0
+ *
+ * @author Amber Van Camp & Jasper Vanmeerbeeck
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+	@Param({"AI", "LOOP", "FUNCTIONS"})
+	public ProgramSource source;
+
+	private ProgramParser<?, ?, ?, Program> parser;
+
+	@Setup(Level.Trial)
+	public void createParser(){
+		this.parser = ProgramParser.create(new ProgramFactory());
+	}
+
+	@Benchmark
+	public Program parse(){
+		return this.parser.parseString(this.source.getText()).getSuccessValue();
+	}
+}
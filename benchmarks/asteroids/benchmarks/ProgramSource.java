@@ -0,0 +1,115 @@
+package asteroids.benchmarks;
+
+/**
+ * An enumeration of the programs the interpreter benchmarks parse and execute.
+ * Each if statement has an else part, the interpreter can't build an if statement without one.
+ *
+ * @version 1.0
+ *
+ * @author Amber Van Camp & Jasper Vanmeerbeeck
+ */
+public enum ProgramSource {
+
+	/**
+	 * A single step of a ship reacting to the closest asteroid and ship.
+	 * It keeps the position of the ship in variables and counts in a loop of a function how far away the
+	 * closest ship is. Its loop always ends and it does not print or fire, so it can be executed any
+	 * number of times.
+	 */
+	AI(
+			"def distance {\n" +
+			"  dx := $1 + (-$3);\n" +
+			"  dy := $2 + (-$4);\n" +
+			"  return sqrt((dx * dx) + (dy * dy));\n" +
+			"}\n" +
+			"def steps {\n" +
+			"  n := 0;\n" +
+			"  d := $1;\n" +
+			"  while (d < $2) {\n" +
+			"    d := d + 200;\n" +
+			"    n := n + 1;\n" +
+			"  }\n" +
+			"  return n;\n" +
+			"}\n" +
+			"x := getx self;\n" +
+			"y := gety self;\n" +
+			"if (! (asteroid == null)) {\n" +
+			"  if ((getx asteroid) < x) {\n" +
+			"    thrust;\n" +
+			"  } else {\n" +
+			"    thrust_off;\n" +
+			"  }\n" +
+			"} else {\n" +
+			"  skip;\n" +
+			"}\n" +
+			"if (! (ship == null)) {\n" +
+			"  if (steps(distance(x, y, getx ship, gety ship), 1000) < 2) {\n" +
+			"    thrust_off;\n" +
+			"  } else {\n" +
+			"    skip;\n" +
+			"  }\n" +
+			"} else {\n" +
+			"  skip;\n" +
+			"}\n"),
+
+	/**
+	 * A program with nested loops, the shape of most ship programs. Only parsed.
+	 */
+	LOOP(
+			"while (1 < 2) {\n" +
+			"  x := getx self;\n" +
+			"  y := gety self;\n" +
+			"  nearestAsteroid := asteroid;\n" +
+			"  if (! (nearestAsteroid == null)) {\n" +
+			"    ax := getx nearestAsteroid;\n" +
+			"    ay := gety nearestAsteroid;\n" +
+			"    distance := sqrt((((x + (-ax)) * (x + (-ax))) + ((y + (-ay)) * (y + (-ay)))));\n" +
+			"    while (distance < 100) {\n" +
+			"      turn 0.1;\n" +
+			"      distance := distance + 10;\n" +
+			"    }\n" +
+			"  } else {\n" +
+			"    skip;\n" +
+			"  }\n" +
+			"  turn (0 + (-0.2));\n" +
+			"  fire;\n" +
+			"}\n"),
+
+	/**
+	 * A program defining and calling several functions. Only parsed.
+	 */
+	FUNCTIONS(
+			"def add {\n" +
+			"  return $1 + $2;\n" +
+			"}\n" +
+			"def square {\n" +
+			"  return $1 * $1;\n" +
+			"}\n" +
+			"def distance {\n" +
+			"  return sqrt(add(square(add($1, -$3)), square(add($2, -$4))));\n" +
+			"}\n" +
+			"d := distance(getx self, gety self, getx ship, gety ship);\n" +
+			"while (d < 500) {\n" +
+			"  d := add(d, 50);\n" +
+			"  turn 0.1;\n" +
+			"}\n");
+
+	/**
+	 * Initialize this program source with the given text.
+	 */
+	private ProgramSource(String text){
+		this.text = text;
+	}
+
+	/**
+	 * The text of this program source.
+	 */
+	private final String text;
+
+	/**
+	 * Return the text of this program source.
+	 */
+	public String getText(){
+		return this.text;
+	}
+}
@@ -0,0 +1,110 @@
+package asteroids.benchmarks;
+
+import java.util.Random;
+
+import asteroids.model.Asteroid;
+import asteroids.model.Bullet;
+import asteroids.model.RoundEntity;
+import asteroids.model.Ship;
+import asteroids.model.World;
+
+/**
+ * An enumeration of the kinds of worlds the benchmarks are run on.
+ * All worlds are filled on a grid of cells, one entity per cell with a random offset and velocity,
+ * so no two entities overlap and the same seed always gives the same world.
+ * The last cell of the grid is always left free.
+ *
+ * @version 1.0
+ *
+ * @author Amber Van Camp & Jasper Vanmeerbeeck
+ */
+public enum Scenario {
+
+	/**
+	 * Ships and asteroids far apart, few collisions per evolve.
+	 */
+	SPARSE(200, 0),
+
+	/**
+	 * Ships and asteroids packed closely, many collisions per evolve.
+	 */
+	DENSE(45, 0),
+
+	/**
+	 * Mostly bullets among ships and asteroids, packed closely.
+	 */
+	BULLETS(45, 0.75);
+
+	/**
+	 * Initialize this scenario with the given cell size and fraction of bullets.
+	 */
+	private Scenario(double cellSize, double bulletFraction){
+		this.cellSize = cellSize;
+		this.bulletFraction = bulletFraction;
+	}
+
+	/**
+	 * The width and height of the cell of a single entity.
+	 */
+	private final double cellSize;
+
+	/**
+	 * The fraction of the entities that are bullets.
+	 */
+	private final double bulletFraction;
+
+	/**
+	 * Constant registering the seed of the worlds of all scenarios.
+	 */
+	public static final long SEED = 20170406L;
+
+	/**
+	 * Return a new world of this scenario with the given number of entities.
+	 *
+	 * @param 	nbEntities
+	 * 			The number of entities of the new world.
+	 */
+	public World createWorld(int nbEntities){
+		int columns = getNbColumns(nbEntities);
+		double size = columns*this.cellSize;
+		World world = new World(size, size);
+		Random random = new Random(SEED);
+		for (int i = 0; i < nbEntities; i++){
+			double x = (i % columns + 0.5)*this.cellSize;
+			double y = (i / columns + 0.5)*this.cellSize;
+			this.createEntity(random, x, y).placeInSpace(world);
+		}
+		return world;
+	}
+
+	/**
+	 * Return the position of the centre of the free cell of a world of this scenario with the given number of entities.
+	 */
+	public double[] getFreeCell(int nbEntities){
+		double centre = (getNbColumns(nbEntities)-0.5)*this.cellSize;
+		return new double[]{centre, centre};
+	}
+
+	/**
+	 * Return the number of columns and rows of the grid of a world with the given number of entities.
+	 */
+	private static int getNbColumns(int nbEntities){
+		return (int) Math.ceil(Math.sqrt(nbEntities+1));
+	}
+
+	/**
+	 * Return a new entity of this scenario, lying within the cell with the given centre.
+	 */
+	private RoundEntity createEntity(Random random, double x, double y){
+		double xVelocity = 100*(random.nextDouble()-0.5);
+		double yVelocity = 100*(random.nextDouble()-0.5);
+		if (random.nextDouble() < this.bulletFraction)
+			return new Bullet(x, y, 4*xVelocity, 4*yVelocity, 3);
+		// A ship has radius 10 and an asteroid radius 15, so an offset of 5 keeps both in their cell.
+		double xOffset = 5*(random.nextDouble()-0.5);
+		double yOffset = 5*(random.nextDouble()-0.5);
+		if (random.nextBoolean())
+			return new Ship(x+xOffset, y+yOffset, xVelocity, yVelocity, 10, 2*Math.PI*random.nextDouble(), 1.0E20);
+		return new Asteroid(x+xOffset, y+yOffset, xVelocity, yVelocity, 15);
+	}
+}
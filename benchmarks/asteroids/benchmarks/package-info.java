@@ -0,0 +1,14 @@
+/**
+ * JMH benchmarks of the model of the game.
+ *
+ * This source folder is not part of the Eclipse project, because it needs the JMH libraries
+ * (jmh-core and jmh-generator-annprocess), which are not in lib. To run the benchmarks, compile
+ * this folder together with src, src-provided and the libraries in lib, with both JMH jars on the
+ * class path so the annotation processor generates the benchmark classes, and start
+ * org.openjdk.jmh.Main with the same class path, for instance:
+ *
+ * 	java -cp ... org.openjdk.jmh.Main EvolveBenchmark -p nbEntities=1000 -p scenario=DENSE
+ *
+ * Worlds with 100000 entities need a large heap (-Xmx4g) and take minutes to set up.
+ */
+package asteroids.benchmarks;
@@ -19,8 +19,9 @@ public class BulletVisualization<F extends IFacade> extends Visualization<F, Bul
 		try {
 			F facade = ctx.getFacade();
 			double radius = facade.getBulletRadius(getObject());
-			double x = ctx.worldToScreenX(facade.getBulletPosition(getObject())[0]);
-			double y = ctx.worldToScreenY(facade.getBulletPosition(getObject())[1]);
+			double[] position = ctx.getDrawPosition(getObject(), facade.getBulletPosition(getObject()));
+			double x = ctx.worldToScreenX(position[0]);
+			double y = ctx.worldToScreenY(position[1]);
 			g2d.setColor(getColor());
 			g2d.drawOval((int) (x - radius), (int) (y - radius), (int) (2 * radius), (int) (2 * radius));
 		} catch (ModelException e) {
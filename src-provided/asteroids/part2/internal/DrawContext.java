@@ -15,4 +15,11 @@ public interface DrawContext<F> {
 	public double worldToScreenY(double y);
 
 	public void handleError(ModelException e);
+
+	/**
+	 * Return the position at which the given object, currently at the given position, is to be drawn.
+	 */
+	public default double[] getDrawPosition(Object object, double[] position) {
+		return position;
+	}
 }
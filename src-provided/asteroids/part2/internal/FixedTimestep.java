@@ -0,0 +1,79 @@
+package asteroids.part2.internal;
+
+/**
+ * Turns the irregular time between frames into a whole number of steps of a fixed duration.
+ * Elapsed time is collected in an accumulator and consumed one step at a time, at most
+ * {@code maxStepsPerFrame} steps per frame; time beyond that is dropped so a long pause does
+ * not cause a spiral of ever longer frames. What is left of the accumulator, as a fraction of
+ * a step, tells how far to interpolate between the last two simulated states when drawing.
+ */
+public class FixedTimestep {
+
+	private final double stepDuration;
+	private final int maxStepsPerFrame;
+	private double accumulator = 0;
+	private long droppedSteps = 0;
+
+	public FixedTimestep(double stepDuration, int maxStepsPerFrame) {
+		if (!(stepDuration > 0) || Double.isInfinite(stepDuration))
+			throw new IllegalArgumentException("step duration must be positive and finite");
+		if (maxStepsPerFrame < 1)
+			throw new IllegalArgumentException("at least one step per frame is needed");
+		this.stepDuration = stepDuration;
+		this.maxStepsPerFrame = maxStepsPerFrame;
+	}
+
+	public double getStepDuration() {
+		return stepDuration;
+	}
+
+	public int getMaxStepsPerFrame() {
+		return maxStepsPerFrame;
+	}
+
+	/**
+	 * Add the given elapsed time to the accumulator and return the number of steps to simulate now.
+	 */
+	public int advance(double elapsedSeconds) {
+		if (elapsedSeconds > 0)
+			accumulator += elapsedSeconds;
+		int steps = (int) Math.min(maxStepsPerFrame, Math.floor(accumulator / stepDuration));
+		accumulator -= steps * stepDuration;
+		if (accumulator >= stepDuration) {
+			// Catch-up cap reached: keep only the fraction of a step.
+			long dropped = (long) Math.floor(accumulator / stepDuration);
+			droppedSteps += dropped;
+			accumulator -= dropped * stepDuration;
+		}
+		return steps;
+	}
+
+	/**
+	 * Return how far the drawn state lies between the previous and the current simulated state, in [0, 1).
+	 */
+	public double getAlpha() {
+		return Math.max(0, Math.min(1, accumulator / stepDuration));
+	}
+
+	/**
+	 * Return the number of steps dropped because a frame would need more than the maximum number of steps.
+	 */
+	public long getDroppedSteps() {
+		return droppedSteps;
+	}
+
+	public static double interpolate(double previous, double current, double alpha) {
+		return previous + (current - previous) * alpha;
+	}
+
+	/**
+	 * Return the position to draw between the given previous and current position, or the current
+	 * position if there is no previous one.
+	 */
+	public double[] interpolate(double[] previous, double[] current) {
+		if (previous == null)
+			return current;
+		double alpha = getAlpha();
+		return new double[] { interpolate(previous[0], current[0], alpha), interpolate(previous[1], current[1], alpha) };
+	}
+}
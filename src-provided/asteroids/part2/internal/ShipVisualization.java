@@ -26,8 +26,9 @@ public class ShipVisualization<F extends IFacade> extends Visualization<F, Ship>
 			F facade = ctx.getFacade();
 			double radius = facade.getShipRadius(getObject());
 			double angle = -facade.getShipOrientation(getObject());
-			double x = ctx.worldToScreenX(facade.getShipPosition(getObject())[0]);
-			double y = ctx.worldToScreenY(facade.getShipPosition(getObject())[1]);
+			double[] position = ctx.getDrawPosition(getObject(), facade.getShipPosition(getObject()));
+			double x = ctx.worldToScreenX(position[0]);
+			double y = ctx.worldToScreenY(position[1]);
 			g2d.setColor(getColor());
 			if (getImage() == null) {
 				g2d.drawOval((int) Math.round(x - radius), (int) Math.round(y - radius),
@@ -10,6 +10,7 @@ import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -34,6 +35,8 @@ import asteroids.util.internal.ResourceUtils;
 public class WorldView2<F extends IFacade> extends JPanel implements KeyListener, ActionListener, CollisionListener {
 
 	private static final int TIMER_DELAY = 1000 / 30;
+	private static final double STEP_DURATION = 1. / 60;
+	private static final int MAX_STEPS_PER_FRAME = 5;
 
 	private AsteroidsFrame2<F> game;
 	private F facade;
@@ -44,6 +47,8 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 	private boolean fire;
 	private Timer timer;
 	private long timeAfterLastEvolve;
+	private final FixedTimestep timestep = new FixedTimestep(STEP_DURATION, MAX_STEPS_PER_FRAME);
+	private final Map<Object, double[]> previousPositions = new HashMap<>();
 	private Image background;
 	private String msg = null;
 	private Map<Object, Visualization<F, ?>> visualizations = new HashMap<>();
@@ -166,6 +171,11 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 			public void handleError(ModelException e) {
 				WorldView2.this.handleError(e);
 			}
+
+			@Override
+			public double[] getDrawPosition(Object object, double[] position) {
+				return timestep.interpolate(previousPositions.get(object), position);
+			}
 		};
 	}
 
@@ -313,7 +323,7 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 	}
 
 	protected void doFireEnemy() throws ModelException {
-		for (Ship enemy : facade.getWorldShips(world))
+		for (Ship enemy : new ArrayList<>(facade.getWorldShips(world)))
 			if ((enemy != player) && (Math.random() > 0.75))
 				facade.fireBullet(enemy);
 	}
@@ -355,15 +365,31 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 		}
 	}
 
+	/**
+	 * Evolve the world in steps of a fixed duration, as many as the time since the last frame allows.
+	 * The positions before the last step are kept, so drawing can interpolate between the last two states.
+	 */
 	private void evolveWorld(long millisSinceLastEvolve) {
 		try {
-			millisSinceLastEvolve = Math.max(5, millisSinceLastEvolve);
-			facade.evolve(world, millisSinceLastEvolve / 1000., this);
+			int steps = timestep.advance(millisSinceLastEvolve / 1000.);
+			for (int i = 0; i < steps; i++) {
+				if (i == steps - 1)
+					recordPositions();
+				facade.evolve(world, timestep.getStepDuration(), this);
+			}
 		} catch (ModelException exc) {
 			handleError(exc);
 		}
 	}
 
+	private void recordPositions() throws ModelException {
+		previousPositions.clear();
+		for (Ship ship : facade.getWorldShips(world))
+			previousPositions.put(ship, facade.getShipPosition(ship));
+		for (Bullet bullet : facade.getWorldBullets(world))
+			previousPositions.put(bullet, facade.getBulletPosition(bullet));
+	}
+
 	private void updateExplosions(long millisSinceLastEvolve) {
 		Iterator<Explosion> iter = explosions.iterator();
 		while (iter.hasNext()) {
@@ -75,6 +75,9 @@ public class Facade implements asteroids.part3.facade.IFacade {
 	public void turn(Ship ship, double angle) throws ModelException {
 		try {
 		ship.turn(angle);
+		ReplayJournal journal = ReplayJournal.of(ship);
+		if (journal != null)
+			journal.recordTurn(ship, angle);
 		} catch (Exception exc) {
 			throw new ModelException(exc.getMessage());
 		}catch (AssertionError exc){
@@ -176,7 +179,10 @@ public class Facade implements asteroids.part3.facade.IFacade {
 	 */
 	public void terminateShip(Ship ship) throws ModelException{
 		try {
+			ReplayJournal journal = ReplayJournal.of(ship);
 			ship.terminate();
+			if (journal != null)
+				journal.recordTerminate(ship);
 		} 
 		catch (Exception exc) {
 			throw new ModelException(exc.getMessage());
@@ -249,6 +255,9 @@ public class Facade implements asteroids.part3.facade.IFacade {
 	public void setThrusterActive(Ship ship, boolean active) throws ModelException{
 		try {
 			ship.thrustOn();
+			ReplayJournal journal = ReplayJournal.of(ship);
+			if (journal != null)
+				journal.recordThrust(ship, ship.isThrusterOn());
 		} 
 		catch (Exception exc) {
 			throw new ModelException(exc.getMessage());
@@ -299,7 +308,10 @@ public class Facade implements asteroids.part3.facade.IFacade {
 	 */
 	public void terminateBullet(Bullet bullet) throws ModelException{
 		try {
+			ReplayJournal journal = ReplayJournal.of(bullet);
 			bullet.terminate();
+			if (journal != null)
+				journal.recordTerminate(bullet);
 		} 
 		catch (Exception exc) {
 			throw new ModelException(exc.getMessage());
@@ -524,6 +536,8 @@ public class Facade implements asteroids.part3.facade.IFacade {
 	public void addShipToWorld(World world, Ship ship) throws ModelException{
 		try {
 			ship.placeInSpace(world);
+			if (world.getJournal() != null)
+				world.getJournal().recordAdd(ship);
 		} 
 		catch (Exception exc) {
 			throw new ModelException(exc.getMessage());
@@ -537,7 +551,10 @@ public class Facade implements asteroids.part3.facade.IFacade {
 	 */
 	public void removeShipFromWorld(World world, Ship ship) throws ModelException{
 		try {
+			ReplayJournal journal = world.getJournal();
 			ship.removeEntityFromWorld(world);
+			if (journal != null)
+				journal.recordRemove(ship);
 		} 
 		catch (Exception exc) {
 			throw new ModelException(exc.getMessage());
@@ -554,6 +571,8 @@ public class Facade implements asteroids.part3.facade.IFacade {
 	public void addBulletToWorld(World world, Bullet bullet) throws ModelException{
 		try {
 			bullet.placeInSpace(world);
+			if (world.getJournal() != null)
+				world.getJournal().recordAdd(bullet);
 		} 
 		catch (Exception exc) {
 			throw new ModelException(exc.getMessage());
@@ -567,7 +586,10 @@ public class Facade implements asteroids.part3.facade.IFacade {
 	 */
 	public void removeBulletFromWorld(World world, Bullet bullet) throws ModelException{
 		try {
+			ReplayJournal journal = world.getJournal();
 			bullet.removeEntityFromWorld(world);
+			if (journal != null)
+				journal.recordRemove(bullet);
 		} 
 		catch (Exception exc) {
 			throw new ModelException(exc.getMessage());
@@ -617,6 +639,9 @@ public class Facade implements asteroids.part3.facade.IFacade {
 	public void loadBulletOnShip(Ship ship, Bullet bullet) throws ModelException{
 		try {
 			bullet.placeInShip(ship);
+			ReplayJournal journal = ReplayJournal.of(ship);
+			if (journal != null)
+				journal.recordLoad(ship, bullet);
 		} 
 		catch (Exception exc) {
 			throw new ModelException(exc.getMessage());
@@ -634,6 +659,11 @@ public class Facade implements asteroids.part3.facade.IFacade {
 	public void loadBulletsOnShip(Ship ship, Collection<Bullet> bullets) throws ModelException{
 		try {
 			ship.placeBulletsInShip(bullets);
+			ReplayJournal journal = ReplayJournal.of(ship);
+			if (journal != null){
+				for (Bullet bullet : bullets)
+					journal.recordLoad(ship, bullet);
+			}
 		} 
 		catch (Exception exc) {
 			throw new ModelException(exc.getMessage());
@@ -647,7 +677,10 @@ public class Facade implements asteroids.part3.facade.IFacade {
 	 */
 	public void removeBulletFromShip(Ship ship, Bullet bullet) throws ModelException{
 		try {
+			ReplayJournal journal = ReplayJournal.of(ship);
 			bullet.removeBulletFromShip(ship);
+			if (journal != null)
+				journal.recordUnload(ship, bullet);
 		} 
 		catch (Exception exc) {
 			throw new ModelException(exc.getMessage());
@@ -662,6 +695,9 @@ public class Facade implements asteroids.part3.facade.IFacade {
 	public void fireBullet(Ship ship) throws ModelException{
 		try {
 			ship.fireBullet();
+			ReplayJournal journal = ReplayJournal.of(ship);
+			if (journal != null)
+				journal.recordFire(ship);
 		} 
 		catch (Exception exc) {
 			throw new ModelException(exc.getMessage());
@@ -811,8 +847,7 @@ public class Facade implements asteroids.part3.facade.IFacade {
 	 */
 	public Set<? extends Object> getEntities(World world) throws ModelException{
 		try{
-			Set<RoundEntity> entities = new HashSet<RoundEntity>(world.getEntities());
-			return entities;
+			return world.getFrozenEntities();
 		}
 		catch (Exception exc) {
 			throw new ModelException(exc.getMessage());
@@ -843,6 +878,8 @@ public class Facade implements asteroids.part3.facade.IFacade {
 	public void addAsteroidToWorld(World world, Asteroid asteroid) throws ModelException {
 		try {
 			asteroid.placeInSpace(world);
+			if (world.getJournal() != null)
+				world.getJournal().recordAdd(asteroid);
 		} 
 		catch (Exception exc) {
 			throw new ModelException(exc.getMessage());
@@ -855,7 +892,10 @@ public class Facade implements asteroids.part3.facade.IFacade {
 	@Override
 	public void removeAsteroidFromWorld(World world, Asteroid asteroid) throws ModelException {
 		try {
+			ReplayJournal journal = world.getJournal();
 			asteroid.removeEntityFromWorld(world);
+			if (journal != null)
+				journal.recordRemove(asteroid);
 		} 
 		catch (Exception exc) {
 			throw new ModelException(exc.getMessage());
@@ -880,6 +920,8 @@ public class Facade implements asteroids.part3.facade.IFacade {
 	public void addPlanetoidToWorld(World world, Planetoid planetoid) throws ModelException {
 		try {
 			planetoid.placeInSpace(world);
+			if (world.getJournal() != null)
+				world.getJournal().recordAdd(planetoid);
 		} 
 		catch (Exception exc) {
 			throw new ModelException(exc.getMessage());
@@ -892,7 +934,10 @@ public class Facade implements asteroids.part3.facade.IFacade {
 	@Override
 	public void removePlanetoidFromWorld(World world, Planetoid planetoid) throws ModelException {
 		try {
+			ReplayJournal journal = world.getJournal();
 			planetoid.removeEntityFromWorld(world);
+			if (journal != null)
+				journal.recordRemove(planetoid);
 		} 
 		catch (Exception exc) {
 			throw new ModelException(exc.getMessage());
@@ -919,7 +964,10 @@ public class Facade implements asteroids.part3.facade.IFacade {
 	@Override
 	public void terminateAsteroid(Asteroid asteroid) throws ModelException {
 		try {
+			ReplayJournal journal = ReplayJournal.of(asteroid);
 			asteroid.terminate();
+			if (journal != null)
+				journal.recordTerminate(asteroid);
 		} 
 		catch (Exception exc) {
 			throw new ModelException(exc.getMessage());
@@ -1017,7 +1065,10 @@ public class Facade implements asteroids.part3.facade.IFacade {
 	@Override
 	public void terminatePlanetoid(Planetoid planetoid) throws ModelException {
 		try {
+			ReplayJournal journal = ReplayJournal.of(planetoid);
 			planetoid.terminate();
+			if (journal != null)
+				journal.recordTerminate(planetoid);
 		} 
 		catch (Exception exc) {
 			throw new ModelException(exc.getMessage());
@@ -1144,7 +1195,9 @@ public class Facade implements asteroids.part3.facade.IFacade {
 	@Override
 	public List<Object> executeProgram(Ship ship, double dt) throws ModelException {
 		try{
-			return ship.executeProgram(dt);
+			List<Object> results = ship.executeProgram(dt);
+			// Null as long as the program is suspended, as this facade specifies.
+			return ship.getProgram().isFinished() ? results : null;
 		}
 		catch (Exception exc) {
 			throw new ModelException(exc.getMessage());
@@ -19,6 +19,18 @@ public class Asteroid  extends MinorPlanet {
 		this.mass = 4.0/3.0*Math.PI*Math.pow(this.getRadius(),3)*this.getDensity();
 	}
 	
+	/**
+	 * Initialize this new asteroid with given parameters as an entity of the given space,
+	 * without registering it in that space yet.
+	 */
+	@Raw
+	Asteroid(double x, double y, double xVelocity, double yVelocity, double radius, Space space)
+			throws IllegalArgumentException {
+		super(x, y, xVelocity, yVelocity, radius, space);
+		this.density = 2.65*Math.pow(10,12);
+		this.mass = 4.0/3.0*Math.PI*Math.pow(this.getRadius(),3)*this.getDensity();
+	}
+	
 	/**
 	 * Return the density of this asteroid.
 	 * 
@@ -56,7 +68,7 @@ public class Asteroid  extends MinorPlanet {
 	public void move(double duration){
 		if (!canHaveAsDuration(duration))
 			throw new IllegalArgumentException();
-		setPosition(getPositionAfterMoving(duration)[0],getPositionAfterMoving(duration)[1]);
+		setPosition(getxPositionAfterMoving(duration),getyPositionAfterMoving(duration));
 	}
 	
 	/**
@@ -0,0 +1,68 @@
+package asteroids.model;
+
+import java.util.List;
+
+/**
+ * An interface for broad phases that select the pairs of round entities of a space
+ * that may collide within a given time horizon, so only those pairs need the exact collision test.
+ * The selection is based on the circle each entity sweeps during that horizon.
+ *
+ * @version 1.0
+ *
+ * @author Amber Van Camp & Jasper Vanmeerbeeck
+ */
+interface BroadPhase {
+
+	/**
+	 * Return the time horizon over which the circles of this broad phase are swept.
+	 */
+	double getHorizon();
+
+	/**
+	 * Rebuild this broad phase for all entities of its space, sweeping their circles over the given horizon.
+	 *
+	 * @param 	horizon
+	 * 			The new time horizon of this broad phase.
+	 */
+	void rebuild(double horizon);
+
+	/**
+	 * Register the given entity in this broad phase.
+	 *
+	 * @param 	entity
+	 * 			The entity to register.
+	 */
+	void insert(RoundEntity entity);
+
+	/**
+	 * Remove the given entity from this broad phase.
+	 *
+	 * @param 	entity
+	 * 			The entity to remove.
+	 */
+	void remove(RoundEntity entity);
+
+	/**
+	 * Register that the position or velocity of the given entity has changed.
+	 *
+	 * @param 	entity
+	 * 			The entity that has changed.
+	 */
+	void update(RoundEntity entity);
+
+	/**
+	 * Return all entities that may collide with the given entity within the horizon, each entity listed once.
+	 * The resulting list may be reused by the next call of this method.
+	 *
+	 * @param 	entity
+	 * 			The entity to find the candidates of.
+	 */
+	List<RoundEntity> getCandidates(RoundEntity entity);
+
+	/**
+	 * Return all pairs of entities that may collide within the horizon, each pair listed once.
+	 * Two consecutive elements of the resulting list form one pair.
+	 * The resulting list may be reused by the next call of this method.
+	 */
+	List<RoundEntity> getCandidatePairs();
+}
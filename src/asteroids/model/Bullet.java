@@ -53,6 +53,18 @@ public class Bullet extends RoundEntity {
 		// No setter for density or mass because final variables.
 	}
 	
+	/**
+	 * Initialize this new bullet with the given parameters as an entity of the given space,
+	 * without registering it in that space yet.
+	 */
+	@Raw
+	Bullet(double x, double y, double xVelocity, double yVelocity, double radius, Space space)
+			throws IllegalArgumentException {
+		super(x, y, xVelocity, yVelocity, radius, space);
+		this.density = 7.8*Math.pow(10,12);
+		this.mass = 4.0/3.0*Math.PI*Math.pow(this.getRadius(),3)*this.getDensity();
+	}
+	
 // All methods handling the termination of an entity.
 	
 	/**
@@ -240,6 +252,20 @@ public class Bullet extends RoundEntity {
 		this.setSource(ship);
 	}
 	
+	/**
+	 * Register the given ship as the ship this bullet is loaded in, without checking whether
+	 * this bullet lies within that ship. Loaded bullets stay where they were when the ship moves,
+	 * so this is only used to restore bullets that were loaded in the given ship before.
+	 * 
+	 * @param 	ship
+	 * 			The ship to load this bullet in.
+	 * @post	| new.getShip() == ship
+	 */
+	@Raw
+	void restoreShip(Ship ship){
+		this.ship = ship;
+	}
+	
 	/**
 	 * Return the ship where this bullet is placed in.
 	 * 
@@ -390,7 +416,7 @@ public class Bullet extends RoundEntity {
 		if ((!canHaveAsSpace(space)))
 			throw new IllegalArgumentException();	
 		Set<RoundEntity> entitiesToTerminate = new HashSet<RoundEntity>();
-		for (RoundEntity entity: space.entities){
+		for (RoundEntity entity: space.getEntitiesWithin(this.getxPosition(), this.getyPosition(), this.getRadius())){
 			if (this.overlap(entity)){
 				entitiesToTerminate.add(entity);
 			}
@@ -462,7 +488,7 @@ public class Bullet extends RoundEntity {
 	public void move(double duration){
 		if (!canHaveAsDuration(duration))
 			throw new IllegalArgumentException();
-		this.setPosition(getPositionAfterMoving(duration)[0],getPositionAfterMoving(duration)[1]);
+		this.setPosition(getxPositionAfterMoving(duration),getyPositionAfterMoving(duration));
 		
 	}
 	
@@ -0,0 +1,264 @@
+package asteroids.model;
+
+import java.util.Arrays;
+
+/**
+ * A class of hash tables registering the round entities in the cells of a grid, each cell keyed by
+ * a primitive long, such as its packed cell coordinates.
+ * Keys are mixed before they are used to find a slot, so cells whose coordinates only differ in a
+ * regular pattern, such as the cells on a diagonal, don't share slots. Collisions are resolved
+ * with linear probing.
+ * Cells that become empty are kept for reuse, so moving entities between cells allocates nothing
+ * once the table has grown large enough.
+ *
+ * @invar	Each cell of this table holds at least one entity.
+ *
+ * @version 1.0
+ *
+ * @author Amber Van Camp & Jasper Vanmeerbeeck
+ */
+class CellTable {
+
+	/**
+	 * Constant registering the initial number of slots of a table, a power of two.
+	 */
+	private static final int INITIAL_CAPACITY = 64;
+
+	/**
+	 * The slots of this table, null for a free slot. The number of slots is a power of two.
+	 */
+	private Cell[] slots = new Cell[INITIAL_CAPACITY];
+
+	/**
+	 * Variable registering the number of cells in this table.
+	 */
+	private int size = 0;
+
+	/**
+	 * The empty cells kept for reuse, and their number.
+	 */
+	private Cell[] freeCells = new Cell[16];
+	private int nbFreeCells = 0;
+
+	/**
+	 * Return the number of cells in this table.
+	 */
+	int size(){
+		return this.size;
+	}
+
+	/**
+	 * Return the number of slots of this table, free slots included.
+	 */
+	int getCapacity(){
+		return this.slots.length;
+	}
+
+	/**
+	 * Return the cell in the given slot, null if that slot is free.
+	 * All cells of this table can be visited by asking every slot below the capacity.
+	 *
+	 * @param 	index
+	 * 			The index of the slot.
+	 */
+	Cell getCellInSlot(int index){
+		return this.slots[index];
+	}
+
+	/**
+	 * Return the slot where a cell with the given key is first looked for.
+	 */
+	private int getHome(long key){
+		long hash = key*0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32)) & (this.slots.length-1);
+	}
+
+	/**
+	 * Return the index of the slot holding the cell with the given key, or of the free slot where it belongs.
+	 */
+	private int getSlot(long key){
+		int mask = this.slots.length-1;
+		int index = this.getHome(key);
+		while (this.slots[index] != null && this.slots[index].key != key)
+			index = (index+1) & mask;
+		return index;
+	}
+
+	/**
+	 * Return the cell with the given key, null if there is none.
+	 *
+	 * @param 	key
+	 * 			The key of the cell.
+	 */
+	Cell get(long key){
+		return this.slots[this.getSlot(key)];
+	}
+
+	/**
+	 * Register the given entity in the cell with the given key, adding that cell if needed.
+	 *
+	 * @param 	key
+	 * 			The key of the cell.
+	 * @param 	entity
+	 * 			The entity to register.
+	 * @return	The cell the entity is registered in.
+	 */
+	Cell add(long key, RoundEntity entity){
+		int index = this.getSlot(key);
+		Cell cell = this.slots[index];
+		if (cell == null){
+			if (2*(this.size+1) > this.slots.length){
+				this.grow();
+				index = this.getSlot(key);
+			}
+			if (this.nbFreeCells == 0)
+				cell = new Cell();
+			else {
+				cell = this.freeCells[--this.nbFreeCells];
+				this.freeCells[this.nbFreeCells] = null;
+			}
+			cell.key = key;
+			this.slots[index] = cell;
+			this.size++;
+		}
+		cell.add(entity);
+		return cell;
+	}
+
+	/**
+	 * Remove the given entity from the cell with the given key, removing that cell if it becomes empty.
+	 *
+	 * @param 	key
+	 * 			The key of the cell.
+	 * @param 	entity
+	 * 			The entity to remove.
+	 */
+	void remove(long key, RoundEntity entity){
+		int index = this.getSlot(key);
+		Cell cell = this.slots[index];
+		if (cell == null || !cell.remove(entity) || cell.size != 0)
+			return;
+		this.slots[index] = null;
+		this.size--;
+		this.free(cell);
+		// The cells after the freed slot are moved back, so every cell stays reachable from its home slot.
+		int mask = this.slots.length-1;
+		int next = (index+1) & mask;
+		while (this.slots[next] != null){
+			int home = this.getHome(this.slots[next].key);
+			if (((next-home) & mask) >= ((next-index) & mask)){
+				this.slots[index] = this.slots[next];
+				this.slots[next] = null;
+				index = next;
+			}
+			next = (next+1) & mask;
+		}
+	}
+
+	/**
+	 * Remove all cells from this table.
+	 */
+	void clear(){
+		for (int i = 0; i < this.slots.length; i++){
+			Cell cell = this.slots[i];
+			if (cell != null){
+				cell.clear();
+				this.free(cell);
+				this.slots[i] = null;
+			}
+		}
+		this.size = 0;
+	}
+
+	/**
+	 * Keep the given empty cell for reuse.
+	 */
+	private void free(Cell cell){
+		if (this.nbFreeCells == this.freeCells.length)
+			this.freeCells = Arrays.copyOf(this.freeCells, 2*this.freeCells.length);
+		this.freeCells[this.nbFreeCells++] = cell;
+	}
+
+	/**
+	 * Double the number of slots of this table.
+	 */
+	private void grow(){
+		Cell[] oldSlots = this.slots;
+		this.slots = new Cell[2*oldSlots.length];
+		for (Cell cell : oldSlots){
+			if (cell != null)
+				this.slots[this.getSlot(cell.key)] = cell;
+		}
+	}
+
+	/**
+	 * A class of cells holding the entities registered under a single key, in the order they were added.
+	 */
+	static final class Cell {
+
+		/**
+		 * The key of this cell.
+		 */
+		private long key;
+
+		/**
+		 * The entities of this cell, and their number.
+		 */
+		private RoundEntity[] entities = new RoundEntity[2];
+		private int size = 0;
+
+		/**
+		 * Return the key of this cell.
+		 */
+		long getKey(){
+			return this.key;
+		}
+
+		/**
+		 * Return the number of entities in this cell.
+		 */
+		int size(){
+			return this.size;
+		}
+
+		/**
+		 * Return the entity at the given index in this cell.
+		 */
+		RoundEntity get(int index){
+			return this.entities[index];
+		}
+
+		/**
+		 * Add the given entity at the end of this cell.
+		 */
+		private void add(RoundEntity entity){
+			if (this.size == this.entities.length)
+				this.entities = Arrays.copyOf(this.entities, 2*this.entities.length);
+			this.entities[this.size++] = entity;
+		}
+
+		/**
+		 * Remove the given entity from this cell, keeping the order of the other entities.
+		 *
+		 * @return	True if and only if the entity was in this cell.
+		 */
+		private boolean remove(RoundEntity entity){
+			for (int i = 0; i < this.size; i++){
+				if (this.entities[i] == entity){
+					System.arraycopy(this.entities, i+1, this.entities, i, this.size-i-1);
+					this.entities[--this.size] = null;
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Remove all entities from this cell.
+		 */
+		private void clear(){
+			Arrays.fill(this.entities, 0, this.size, null);
+			this.size = 0;
+		}
+	}
+}
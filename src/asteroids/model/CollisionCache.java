@@ -0,0 +1,204 @@
+package asteroids.model;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * A class of caches that remember the collision times computed for the entities of a space,
+ * so each time is computed only once as long as the entities involved don't change.
+ * The space forgets all times of an entity as soon as its position or velocity changes,
+ * or as soon as it enters or leaves the space.
+ * Times are kept in arrays of a single element that stay registered when they are forgotten,
+ * so computing them again doesn't allocate any memory.
+ *
+ * @version 1.0
+ *
+ * @author Amber Van Camp & Jasper Vanmeerbeeck
+ */
+class CollisionCache {
+
+	/**
+	 * Map registering for each entity the times to collision with other entities, NaN if forgotten.
+	 * Each time is registered for both entities of the pair.
+	 */
+	private final Map<RoundEntity, Map<RoundEntity, double[]>> timesToCollision =
+			new HashMap<RoundEntity, Map<RoundEntity, double[]>>();
+
+	/**
+	 * Map registering the times for entities to hit a wall, NaN if forgotten.
+	 */
+	private final Map<RoundEntity, double[]> timesToHitWall = new HashMap<RoundEntity, double[]>();
+
+	/**
+	 * Variable registering the known time to the next collision in the space, NaN if unknown.
+	 */
+	private double timeNextCollision = Double.NaN;
+
+	/**
+	 * Variable registering the number of changes since this cache was created.
+	 * A value computed while the entities changed must not be remembered.
+	 */
+	private long version = 0;
+
+	/**
+	 * Return the number of changes registered by this cache.
+	 */
+	long getVersion(){
+		return this.version;
+	}
+
+	/**
+	 * Return the time to collision between the given entities, computing it if it is not known yet.
+	 *
+	 * @param 	first
+	 * 			The first entity of the pair.
+	 * @param 	second
+	 * 			The second entity of the pair.
+	 * @return	The time to collision between both entities.
+	 * 			| result == first.computeTimeToCollision(second)
+	 */
+	double getTimeToCollision(RoundEntity first, RoundEntity second){
+		Map<RoundEntity, double[]> timesOfFirst = this.timesToCollision.get(first);
+		double[] time = (timesOfFirst == null) ? null : timesOfFirst.get(second);
+		if (time != null && !Double.isNaN(time[0]))
+			return time[0];
+		long version = this.version;
+		double timeToCollision = first.computeTimeToCollision(second);
+		if (version == this.version){
+			if (time == null){
+				time = new double[1];
+				this.register(first, second, time);
+				this.register(second, first, time);
+			}
+			time[0] = timeToCollision;
+		}
+		return timeToCollision;
+	}
+
+	/**
+	 * Register the given time as the time to collision of the first with the second entity.
+	 */
+	private void register(RoundEntity first, RoundEntity second, double[] time){
+		Map<RoundEntity, double[]> timesOfFirst = this.timesToCollision.get(first);
+		if (timesOfFirst == null){
+			timesOfFirst = new HashMap<RoundEntity, double[]>();
+			this.timesToCollision.put(first, timesOfFirst);
+		}
+		timesOfFirst.put(second, time);
+	}
+
+	/**
+	 * Return the time for the given entity to hit a wall, computing it if it is not known yet.
+	 *
+	 * @param 	entity
+	 * 			The entity to check.
+	 * @return	The time for the given entity to hit a wall.
+	 * 			| result == entity.computeTimeToHitWall()
+	 */
+	double getTimeToHitWall(RoundEntity entity){
+		double[] time = this.timesToHitWall.get(entity);
+		if (time != null && !Double.isNaN(time[0]))
+			return time[0];
+		long version = this.version;
+		double timeToHitWall = entity.computeTimeToHitWall();
+		if (version == this.version){
+			if (time == null){
+				time = new double[1];
+				this.timesToHitWall.put(entity, time);
+			}
+			time[0] = timeToHitWall;
+		}
+		return timeToHitWall;
+	}
+
+	/**
+	 * Return the known time to the next collision in the space, NaN if unknown.
+	 */
+	double getTimeNextCollision(){
+		return this.timeNextCollision;
+	}
+
+	/**
+	 * Remember the given time as the time to the next collision in the space,
+	 * if nothing has changed since the given version.
+	 *
+	 * @param 	time
+	 * 			The computed time to the next collision.
+	 * @param 	version
+	 * 			The version of this cache when the computation started.
+	 */
+	void setTimeNextCollision(double time, long version){
+		if (version == this.version)
+			this.timeNextCollision = time;
+	}
+
+	/**
+	 * Forget all times involving the given entity.
+	 * Pairs whose time was already forgotten and not asked for since, are removed completely.
+	 *
+	 * @param 	entity
+	 * 			The entity that has changed.
+	 */
+	void invalidate(RoundEntity entity){
+		this.version++;
+		this.timeNextCollision = Double.NaN;
+		double[] timeToHitWall = this.timesToHitWall.get(entity);
+		if (timeToHitWall != null)
+			timeToHitWall[0] = Double.NaN;
+		Map<RoundEntity, double[]> timesOfEntity = this.timesToCollision.get(entity);
+		if (timesOfEntity == null)
+			return;
+		Iterator<Map.Entry<RoundEntity, double[]>> iterator = timesOfEntity.entrySet().iterator();
+		while (iterator.hasNext()){
+			Map.Entry<RoundEntity, double[]> entry = iterator.next();
+			if (Double.isNaN(entry.getValue()[0])){
+				iterator.remove();
+				this.unregister(entry.getKey(), entity);
+			}
+			else
+				entry.getValue()[0] = Double.NaN;
+		}
+		if (timesOfEntity.isEmpty())
+			this.timesToCollision.remove(entity);
+	}
+
+	/**
+	 * Forget all times involving the given entity, which has left the space.
+	 *
+	 * @param 	entity
+	 * 			The entity that has left the space.
+	 */
+	void remove(RoundEntity entity){
+		this.version++;
+		this.timeNextCollision = Double.NaN;
+		this.timesToHitWall.remove(entity);
+		Map<RoundEntity, double[]> timesOfEntity = this.timesToCollision.remove(entity);
+		if (timesOfEntity != null){
+			for (RoundEntity other : timesOfEntity.keySet())
+				this.unregister(other, entity);
+		}
+	}
+
+	/**
+	 * Remove the time to collision of the first with the second entity.
+	 */
+	private void unregister(RoundEntity first, RoundEntity second){
+		Map<RoundEntity, double[]> timesOfFirst = this.timesToCollision.get(first);
+		if (timesOfFirst != null){
+			timesOfFirst.remove(second);
+			if (timesOfFirst.isEmpty())
+				this.timesToCollision.remove(first);
+		}
+	}
+
+	/**
+	 * Forget all known times.
+	 */
+	void clear(){
+		this.version++;
+		this.timeNextCollision = Double.NaN;
+		this.timesToHitWall.clear();
+		this.timesToCollision.clear();
+	}
+}
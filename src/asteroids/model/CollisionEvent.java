@@ -0,0 +1,54 @@
+package asteroids.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A class of flight recorder events spanning the resolution of a single collision during an evolve,
+ * either between two entities or between an entity and a wall.
+ * The event is only filled in and committed while a recording has it enabled.
+ *
+ * @version 1.0
+ *
+ * @author Amber Van Camp & Jasper Vanmeerbeeck
+ */
+@Name("asteroids.Collision")
+@Label("Collision")
+@Category("Asteroids")
+@Description("The resolution of a collision during an evolve")
+public class CollisionEvent extends jdk.jfr.Event {
+
+	/**
+	 * The type of these events.
+	 */
+	private static final EventType TYPE = EventType.getEventType(CollisionEvent.class);
+
+	/**
+	 * Check whether a running recording has these events enabled.
+	 * Callers ask this before creating an event, so nothing is allocated while no recording runs.
+	 */
+	static boolean isRecorded(){
+		return TYPE.isEnabled();
+	}
+
+	@Label("First Type")
+	String firstType;
+
+	@Label("First Id")
+	long firstId;
+
+	@Label("Second Type")
+	@Description("The type of the second entity, Wall for a collision with a wall")
+	String secondType;
+
+	@Label("Second Id")
+	@Description("The id of the second entity, -1 for a collision with a wall")
+	long secondId;
+
+	@Label("Time")
+	@Description("The time of the collision in seconds, measured from the start of the evolve")
+	double time;
+}
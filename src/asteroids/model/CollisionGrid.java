@@ -0,0 +1,327 @@
+package asteroids.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A class of uniform grids that divide the round entities of a space in cells,
+ * based on the circle they sweep during a given time horizon.
+ * Two round entities can only collide within that horizon if their swept circles
+ * share a cell, so only those pairs need the exact (quadratic) collision test.
+ *
+ * @invar	Each round entity of the space of this grid is registered in the cells
+ * 			covered by its swept circle, or in the list of oversized entities.
+ *
+ * @version 1.0
+ *
+ * @author Amber Van Camp & Jasper Vanmeerbeeck
+ */
+class CollisionGrid implements BroadPhase {
+
+	/**
+	 * Initialize this new grid for the given space, with a horizon of zero.
+	 *
+	 * @param 	space
+	 * 			The space whose entities are divided in this grid.
+	 */
+	CollisionGrid(Space space){
+		this.space = space;
+	}
+
+	/**
+	 * Variable referencing the space whose entities are divided in this grid.
+	 */
+	private final Space space;
+
+	/**
+	 * Constant registering the maximum number of cells a single round entity may cover.
+	 * Entities sweeping more cells are kept in a separate list and tested against all others.
+	 */
+	private static final int MAX_CELLS_PER_ENTITY = 1024;
+
+	/**
+	 * Variable registering the time horizon over which the circles are swept.
+	 */
+	private double horizon = 0;
+
+	/**
+	 * Variable registering the width and height of a single cell.
+	 */
+	private double cellSize = 1;
+
+	/**
+	 * Table of all occupied cells, keyed by their packed cell coordinates.
+	 */
+	private final CellTable cells = new CellTable();
+
+	/**
+	 * Map registering for each round entity the range of cells it covers, as {minX, minY, maxX, maxY}.
+	 */
+	private final Map<RoundEntity, int[]> ranges = new HashMap<RoundEntity, int[]>();
+
+	/**
+	 * List of the round entities that cover too many cells to be registered in them.
+	 */
+	private final List<RoundEntity> oversized = new ArrayList<RoundEntity>();
+
+	/**
+	 * List used to return the candidate pairs, two consecutive elements forming one pair.
+	 */
+	private final List<RoundEntity> candidatePairs = new ArrayList<RoundEntity>();
+
+	/**
+	 * Return the time horizon over which the circles of this grid are swept.
+	 */
+	@Override
+	public double getHorizon(){
+		return this.horizon;
+	}
+
+	/**
+	 * Rebuild this grid for all entities of its space, sweeping their circles over the given horizon.
+	 * The size of the cells is derived from the mean diameter of the swept circles.
+	 * If that size has not changed, only the entities covering other cells than before are moved.
+	 *
+	 * @param 	horizon
+	 * 			The new time horizon of this grid.
+	 */
+	@Override
+	public void rebuild(double horizon){
+		if (Double.isNaN(horizon) || horizon < 0)
+			horizon = 0;
+		this.horizon = horizon;
+		double totalDiameter = 0;
+		int nbEntities = 0;
+		for (RoundEntity entity : space.getEntities()){
+			double diameter = 2*getSweptRadius(entity);
+			if (!Double.isInfinite(diameter)){
+				totalDiameter += diameter;
+				nbEntities++;
+			}
+		}
+		double cellSize = 1;
+		if (nbEntities != 0 && totalDiameter/nbEntities > 1)
+			cellSize = totalDiameter/nbEntities;
+		if (cellSize == this.cellSize && this.ranges.size() + this.oversized.size() == space.getEntities().size()){
+			for (RoundEntity entity : space.getEntities())
+				this.update(entity);
+			return;
+		}
+		this.cellSize = cellSize;
+		this.cells.clear();
+		this.ranges.clear();
+		this.oversized.clear();
+		for (RoundEntity entity : space.getEntities())
+			this.insert(entity);
+	}
+
+	/**
+	 * Return the radius of the circle the given entity sweeps during the horizon of this grid.
+	 * The raw radius is used, asking a planetoid for its radius may terminate it while this grid is being updated.
+	 */
+	private double getSweptRadius(RoundEntity entity){
+		return entity.getRawRadius() + entity.getSpeed()*horizon/2;
+	}
+
+	/**
+	 * Store the range of cells covered by the swept circle of the given entity in the given array.
+	 *
+	 * @return	False if that range contains too many cells, in which case the array is left unchanged.
+	 */
+	private boolean getRange(RoundEntity entity, int[] range){
+		double radius = getSweptRadius(entity);
+		double xCentre = entity.getxPosition() + entity.getxVelocity()*horizon/2;
+		double yCentre = entity.getyPosition() + entity.getyVelocity()*horizon/2;
+		double minX = Math.floor((xCentre-radius)/cellSize);
+		double minY = Math.floor((yCentre-radius)/cellSize);
+		double maxX = Math.floor((xCentre+radius)/cellSize);
+		double maxY = Math.floor((yCentre+radius)/cellSize);
+		if (!((maxX-minX+1)*(maxY-minY+1) <= MAX_CELLS_PER_ENTITY)
+				|| minX < Integer.MIN_VALUE || maxX > Integer.MAX_VALUE
+				|| minY < Integer.MIN_VALUE || maxY > Integer.MAX_VALUE)
+			return false;
+		range[0] = (int) minX;
+		range[1] = (int) minY;
+		range[2] = (int) maxX;
+		range[3] = (int) maxY;
+		return true;
+	}
+	
+	/**
+	 * Array used to compute the new range of an entity whose position or velocity has changed.
+	 */
+	private final int[] newRange = new int[4];
+
+	/**
+	 * Return the key of the cell with the given cell coordinates.
+	 * The table of cells mixes the key, so cells on the same diagonal don't end up in the same slots.
+	 */
+	private static long getKey(int x, int y){
+		return (((long) x) << 32) ^ (y & 0xffffffffL);
+	}
+
+	/**
+	 * Register the given entity in all cells covered by its swept circle.
+	 *
+	 * @param 	entity
+	 * 			The entity to register.
+	 */
+	@Override
+	public void insert(RoundEntity entity){
+		if (!getRange(entity, newRange)){
+			this.oversized.add(entity);
+			return;
+		}
+		int[] range = newRange.clone();
+		this.ranges.put(entity, range);
+		this.addToCells(entity, range);
+	}
+
+	/**
+	 * Register the given entity in all cells of the given range.
+	 */
+	private void addToCells(RoundEntity entity, int[] range){
+		for (int x = range[0]; x <= range[2]; x++){
+			for (int y = range[1]; y <= range[3]; y++)
+				this.cells.add(getKey(x, y), entity);
+		}
+	}
+
+	/**
+	 * Remove the given entity from all cells it is registered in.
+	 *
+	 * @param 	entity
+	 * 			The entity to remove.
+	 */
+	@Override
+	public void remove(RoundEntity entity){
+		int[] range = this.ranges.remove(entity);
+		if (range == null){
+			this.oversized.remove(entity);
+			return;
+		}
+		this.removeFromCells(entity, range);
+	}
+
+	/**
+	 * Remove the given entity from all cells of the given range.
+	 */
+	private void removeFromCells(RoundEntity entity, int[] range){
+		for (int x = range[0]; x <= range[2]; x++){
+			for (int y = range[1]; y <= range[3]; y++)
+				this.cells.remove(getKey(x, y), entity);
+		}
+	}
+
+	/**
+	 * Move the given entity to the cells covered by its current swept circle.
+	 * Nothing changes if it still covers the same cells. Otherwise, the range registered for
+	 * the entity is overwritten, so moving an entity allocates nothing.
+	 *
+	 * @param 	entity
+	 * 			The entity whose position or velocity has changed.
+	 */
+	@Override
+	public void update(RoundEntity entity){
+		int[] range = this.ranges.get(entity);
+		if (range == null){
+			if (this.oversized.contains(entity)){
+				this.remove(entity);
+				this.insert(entity);
+			}
+			return;
+		}
+		if (!getRange(entity, newRange)){
+			this.remove(entity);
+			this.insert(entity);
+			return;
+		}
+		if (newRange[0] == range[0] && newRange[1] == range[1] && newRange[2] == range[2] && newRange[3] == range[3])
+			return;
+		this.removeFromCells(entity, range);
+		System.arraycopy(newRange, 0, range, 0, range.length);
+		this.addToCells(entity, range);
+	}
+
+	/**
+	 * List used to return the candidates of a single entity.
+	 */
+	private final List<RoundEntity> candidates = new ArrayList<RoundEntity>();
+
+	/**
+	 * Return all entities whose swept circles share a cell with the swept circle of the given entity,
+	 * each entity listed once.
+	 * The resulting list is reused by the next call of this method.
+	 *
+	 * @param 	entity
+	 * 			The entity to find the candidates of.
+	 */
+	@Override
+	public List<RoundEntity> getCandidates(RoundEntity entity){
+		candidates.clear();
+		int[] range = this.ranges.get(entity);
+		if (range == null){
+			if (this.oversized.contains(entity)){
+				for (RoundEntity other : space.getEntities()){
+					if (other != entity)
+						candidates.add(other);
+				}
+			}
+			return candidates;
+		}
+		for (int x = range[0]; x <= range[2]; x++){
+			for (int y = range[1]; y <= range[3]; y++){
+				CellTable.Cell cell = this.cells.get(getKey(x, y));
+				if (cell == null)
+					continue;
+				for (int i = 0; i < cell.size(); i++){
+					RoundEntity other = cell.get(i);
+					int[] otherRange = this.ranges.get(other);
+					if (other != entity && Math.max(range[0], otherRange[0]) == x && Math.max(range[1], otherRange[1]) == y)
+						candidates.add(other);
+				}
+			}
+		}
+		candidates.addAll(this.oversized);
+		return candidates;
+	}
+
+	/**
+	 * Return all pairs of entities whose swept circles share a cell, each pair listed once.
+	 * Two consecutive elements of the resulting list form one pair.
+	 * The resulting list is reused by the next call of this method.
+	 */
+	@Override
+	public List<RoundEntity> getCandidatePairs(){
+		candidatePairs.clear();
+		for (int slot = 0; slot < this.cells.getCapacity(); slot++){
+			CellTable.Cell cell = this.cells.getCellInSlot(slot);
+			if (cell == null)
+				continue;
+			int x = (int) (cell.getKey() >> 32);
+			int y = (int) cell.getKey();
+			for (int i = 0; i < cell.size(); i++){
+				int[] firstRange = this.ranges.get(cell.get(i));
+				for (int j = i+1; j < cell.size(); j++){
+					int[] secondRange = this.ranges.get(cell.get(j));
+					// Only the first cell both entities share reports the pair.
+					if (Math.max(firstRange[0], secondRange[0]) == x && Math.max(firstRange[1], secondRange[1]) == y){
+						candidatePairs.add(cell.get(i));
+						candidatePairs.add(cell.get(j));
+					}
+				}
+			}
+		}
+		for (int i = 0; i < oversized.size(); i++){
+			for (RoundEntity other : space.getEntities()){
+				if (other != oversized.get(i) && (!oversized.contains(other) || oversized.indexOf(other) > i)){
+					candidatePairs.add(oversized.get(i));
+					candidatePairs.add(other);
+				}
+			}
+		}
+		return candidatePairs;
+	}
+}
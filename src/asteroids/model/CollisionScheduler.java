@@ -0,0 +1,297 @@
+package asteroids.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * A class of event queues that keep the predicted collisions of the entities of a space
+ * during a single evolve, ordered by the time they will happen.
+ * Each event is tagged with the version of the entities involved. When an entity changes
+ * because of a collision, its version is raised and only its own events are predicted again,
+ * all its older events becoming invalid.
+ *
+ * @version 1.0
+ *
+ * @author Amber Van Camp & Jasper Vanmeerbeeck
+ */
+class CollisionScheduler {
+
+	/**
+	 * Initialize this new scheduler for the given space, without any events.
+	 *
+	 * @param 	space
+	 * 			The space whose collisions are scheduled.
+	 */
+	CollisionScheduler(Space space){
+		this.space = space;
+	}
+
+	/**
+	 * Variable referencing the space whose collisions are scheduled.
+	 */
+	private final Space space;
+
+	/**
+	 * Variable registering the time up to which collisions are scheduled.
+	 */
+	private double horizon = 0;
+
+	/**
+	 * The queue of predicted events, the earliest event first.
+	 */
+	private final PriorityQueue<Event> events = new PriorityQueue<Event>();
+
+	/**
+	 * Map registering the current version of each entity that has changed during this evolve.
+	 * Entities that are not registered have version 0.
+	 */
+	private final Map<RoundEntity, Integer> versions = new HashMap<RoundEntity, Integer>();
+
+	/**
+	 * Return the current version of the given entity.
+	 */
+	private int getVersion(RoundEntity entity){
+		Integer version = this.versions.get(entity);
+		if (version == null)
+			return 0;
+		return version;
+	}
+
+	/**
+	 * Predict all collisions in the space of this scheduler that happen within the given horizon,
+	 * forgetting all previous events.
+	 * Only the pairs of entities selected by the given broad phase are considered.
+	 *
+	 * @param 	broadPhase
+	 * 			The broad phase of the space, swept over at least the given horizon.
+	 * @param 	horizon
+	 * 			The time up to which collisions are scheduled.
+	 */
+	void schedule(BroadPhase broadPhase, double horizon){
+		this.events.clear();
+		this.versions.clear();
+		this.horizon = horizon;
+		this.nbPairTests = 0;
+		if (space.isTerminated() || space instanceof UnboundSpace)
+			return;
+		List<RoundEntity> candidatePairs = broadPhase.getCandidatePairs();
+		if (space.isUsingParallelEvolve()){
+			this.scheduleInParallel(candidatePairs);
+			return;
+		}
+		for (int i = 0; i < candidatePairs.size(); i += 2)
+			this.predict(candidatePairs.get(i), candidatePairs.get(i+1), 0);
+		for (RoundEntity entity : space.getEntities())
+			this.entities.add(entity);
+		for (int i = 0; i < this.entities.size(); i++)
+			this.predict(this.entities.get(i), 0);
+		this.entities.clear();
+	}
+	
+	/**
+	 * Predict the collisions of the given candidate pairs and of all entities with a wall, computing the
+	 * times in parallel. The events are added in the same order as on a single thread.
+	 */
+	private void scheduleInParallel(List<RoundEntity> candidatePairs){
+		space.settleRadii();
+		double[] times = new double[candidatePairs.size()/2];
+		ParallelEvolution.computeTimesToCollision(candidatePairs, times);
+		this.nbPairTests += times.length;
+		for (int i = 0; i < times.length; i++)
+			this.add(candidatePairs.get(2*i), candidatePairs.get(2*i+1), times[i], 0);
+		RoundEntity[] entities = space.getEntityArray();
+		times = new double[entities.length];
+		ParallelEvolution.computeTimesToHitWall(entities, entities.length, times);
+		for (int i = 0; i < entities.length; i++)
+			this.add(entities[i], times[i], 0);
+	}
+	
+	/**
+	 * Variable registering the number of pairs of entities tested for a collision since the last schedule.
+	 */
+	private long nbPairTests = 0;
+	
+	/**
+	 * Return the number of pairs of entities tested for a collision since the last schedule.
+	 */
+	long getNbPairTests(){
+		return this.nbPairTests;
+	}
+	
+	/**
+	 * List used to hold the entities whose collisions are being predicted, as predicting a collision may
+	 * remove an entity from its space or from the broad phase.
+	 */
+	private final List<RoundEntity> entities = new ArrayList<RoundEntity>();
+
+	/**
+	 * Forget all events of the given entity and predict its collisions again, starting from the given time.
+	 *
+	 * @param 	entity
+	 * 			The entity that has changed.
+	 * @param 	broadPhase
+	 * 			The broad phase of the space.
+	 * @param 	time
+	 * 			The current time, measured from the start of the evolve.
+	 */
+	void reschedule(RoundEntity entity, BroadPhase broadPhase, double time){
+		this.versions.put(entity, this.getVersion(entity)+1);
+		// Asking the radius terminates a planetoid that has become too small, before any of its collisions is computed.
+		entity.getRadius();
+		if (entity.isTerminated() || !space.hasAsEntity(entity))
+			return;
+		this.predict(entity, time);
+		List<RoundEntity> candidates = broadPhase.getCandidates(entity);
+		for (int i = 0; i < candidates.size(); i++)
+			this.entities.add(candidates.get(i));
+		for (int i = 0; i < this.entities.size(); i++){
+			RoundEntity candidate = this.entities.get(i);
+			candidate.getRadius();
+			if (!candidate.isTerminated())
+				this.predict(entity, candidate, time);
+		}
+		this.entities.clear();
+	}
+
+	/**
+	 * Add the collision between both given entities to this queue, if it happens within the horizon.
+	 */
+	private void predict(RoundEntity first, RoundEntity second, double time){
+		this.nbPairTests++;
+		this.add(first, second, first.getTimeToCollision(second), time);
+	}
+	
+	/**
+	 * Add the collision between both given entities after the given time to collision to this queue,
+	 * if it happens within the horizon.
+	 * A slightly negative time, caused by rounding errors, is taken as a collision right away.
+	 */
+	private void add(RoundEntity first, RoundEntity second, double timeToCollision, double time){
+		if (timeToCollision != -0.0 && time + timeToCollision <= this.horizon)
+			this.events.add(new Event(time + Math.max(timeToCollision, 0), first, this.getVersion(first),
+					second, this.getVersion(second)));
+	}
+
+	/**
+	 * Add the collision of the given entity with a wall to this queue, if it happens within the horizon.
+	 */
+	private void predict(RoundEntity entity, double time){
+		this.add(entity, entity.getTimeToHitWall(), time);
+	}
+	
+	/**
+	 * Add the collision of the given entity with a wall after the given time to hit the wall to this queue,
+	 * if it happens within the horizon.
+	 * A slightly negative time, caused by rounding errors, is taken as a hit right away.
+	 */
+	private void add(RoundEntity entity, double timeToHitWall, double time){
+		if (time + timeToHitWall <= this.horizon)
+			this.events.add(new Event(time + Math.max(timeToHitWall, 0), entity, this.getVersion(entity), null, 0));
+	}
+
+	/**
+	 * Check whether the given event is still valid, meaning none of its entities
+	 * has changed or left the space since it was predicted.
+	 */
+	private boolean isValid(Event event){
+		if (event.first.isTerminated() || !space.hasAsEntity(event.first) ||
+				event.firstVersion != this.getVersion(event.first))
+			return false;
+		if (event.second == null)
+			return true;
+		return !event.second.isTerminated() && space.hasAsEntity(event.second) &&
+				event.secondVersion == this.getVersion(event.second);
+	}
+
+	/**
+	 * Remove and return all valid events that happen first, all at the same time.
+	 * Invalid events on the way are thrown away.
+	 *
+	 * @return	An empty list if no valid events are left.
+	 * 			The list is reused by the next poll.
+	 */
+	List<Event> pollNextCollisions(){
+		List<Event> nextCollisions = this.nextCollisions;
+		nextCollisions.clear();
+		while (!this.events.isEmpty()){
+			Event event = this.events.peek();
+			if (!nextCollisions.isEmpty() && event.time != nextCollisions.get(0).time)
+				break;
+			this.events.poll();
+			if (this.isValid(event))
+				nextCollisions.add(event);
+		}
+		return nextCollisions;
+	}
+	
+	/**
+	 * List used to return the next collisions, reused by every poll.
+	 */
+	private final List<Event> nextCollisions = new ArrayList<Event>();
+
+	/**
+	 * A class of predicted collisions, either between two entities or between an entity and a wall.
+	 */
+	static class Event implements Comparable<Event> {
+
+		/**
+		 * Initialize this new event with the given time, entities and versions.
+		 * The second entity is null for a collision with a wall.
+		 */
+		Event(double time, RoundEntity first, int firstVersion, RoundEntity second, int secondVersion){
+			this.time = time;
+			this.first = first;
+			this.firstVersion = firstVersion;
+			this.second = second;
+			this.secondVersion = secondVersion;
+		}
+
+		/**
+		 * The time of this collision, measured from the start of the evolve.
+		 */
+		final double time;
+
+		/**
+		 * The first entity of this collision, and its version at prediction time.
+		 */
+		final RoundEntity first;
+		final int firstVersion;
+
+		/**
+		 * The second entity of this collision, null for a collision with a wall, and its version at prediction time.
+		 */
+		final RoundEntity second;
+		final int secondVersion;
+
+		/**
+		 * Check whether this event is a collision with a wall.
+		 */
+		boolean isWallCollision(){
+			return this.second == null;
+		}
+
+		/**
+		 * Events at the same time are ordered on the ids of their entities, a collision with a wall first,
+		 * so simultaneous collisions are handled in the same order in every run.
+		 */
+		@Override
+		public int compareTo(Event other){
+			int result = Double.compare(this.time, other.time);
+			if (result == 0)
+				result = Long.compare(this.first.getId(), other.first.getId());
+			if (result == 0)
+				result = Long.compare(getId(this.second), getId(other.second));
+			return result;
+		}
+
+		/**
+		 * Return the id of the given entity, 0 for a wall.
+		 */
+		private static long getId(RoundEntity entity){
+			return (entity == null) ? 0 : entity.getId();
+		}
+	}
+}
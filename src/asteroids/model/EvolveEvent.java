@@ -0,0 +1,53 @@
+package asteroids.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A class of flight recorder events spanning a single evolve of a space.
+ * The event is only filled in and committed while a recording has it enabled.
+ *
+ * @version 1.0
+ *
+ * @author Amber Van Camp & Jasper Vanmeerbeeck
+ */
+@Name("asteroids.Evolve")
+@Label("Evolve")
+@Category("Asteroids")
+@Description("A single evolve of a space")
+public class EvolveEvent extends jdk.jfr.Event {
+
+	/**
+	 * The type of these events.
+	 */
+	private static final EventType TYPE = EventType.getEventType(EvolveEvent.class);
+
+	/**
+	 * Check whether a running recording has these events enabled.
+	 * Callers ask this before creating an event, so nothing is allocated while no recording runs.
+	 */
+	static boolean isRecorded(){
+		return TYPE.isEnabled();
+	}
+
+	@Label("Duration Evolved")
+	@Description("The time in seconds the space has been evolved")
+	double evolvedDuration;
+
+	@Label("Entities")
+	int nbEntities;
+
+	@Label("Pair Tests")
+	@Description("The number of pairs of entities tested for a collision")
+	long nbPairTests;
+
+	@Label("Collisions")
+	@Description("The number of resolved collisions between two entities")
+	int nbCollisions;
+
+	@Label("Wall Bounces")
+	int nbWallBounces;
+}
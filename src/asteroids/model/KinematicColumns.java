@@ -0,0 +1,138 @@
+package asteroids.model;
+
+import java.util.Arrays;
+
+/**
+ * A class of column stores that keep the position and velocity of the round entities of a space
+ * in primitive arrays, each entity owning a single slot in all arrays.
+ * The slots of the entities are kept dense, so moving all entities is a single loop over the arrays.
+ *
+ * @invar	The slots 0 up to size-1 are owned by the entities in the same slot of the entity array,
+ * 			and each of those entities knows its slot.
+ *
+ * @version 1.0
+ *
+ * @author Amber Van Camp & Jasper Vanmeerbeeck
+ */
+class KinematicColumns {
+
+	/**
+	 * Constant registering the number of slots of a new column store.
+	 */
+	private static final int INITIAL_CAPACITY = 64;
+
+	/**
+	 * The columns of this store.
+	 */
+	double[] xPositions = new double[INITIAL_CAPACITY];
+	double[] yPositions = new double[INITIAL_CAPACITY];
+	double[] xVelocities = new double[INITIAL_CAPACITY];
+	double[] yVelocities = new double[INITIAL_CAPACITY];
+
+	/**
+	 * The entity owning each slot.
+	 */
+	private RoundEntity[] entities = new RoundEntity[INITIAL_CAPACITY];
+
+	/**
+	 * Variable registering the number of occupied slots.
+	 */
+	private int size = 0;
+
+	/**
+	 * Return the number of occupied slots.
+	 */
+	int size(){
+		return this.size;
+	}
+
+	/**
+	 * Return an array whose first elements are the entities owning a slot of this store, in the order of their slots.
+	 * The given array is used if it is large enough, otherwise a new array is returned.
+	 *
+	 * @param 	array
+	 * 			The array to copy the entities into.
+	 */
+	RoundEntity[] getEntities(RoundEntity[] array){
+		if (array.length < this.size)
+			array = new RoundEntity[this.entities.length];
+		System.arraycopy(this.entities, 0, array, 0, this.size);
+		return array;
+	}
+
+	/**
+	 * Give the given entity a new slot, filled with the given position and velocity.
+	 *
+	 * @param 	entity
+	 * 			The entity to give a slot.
+	 * @return	The slot of the given entity.
+	 */
+	int attach(RoundEntity entity, double x, double y, double xVelocity, double yVelocity){
+		if (this.size == this.entities.length){
+			int capacity = 2*this.size;
+			this.xPositions = Arrays.copyOf(this.xPositions, capacity);
+			this.yPositions = Arrays.copyOf(this.yPositions, capacity);
+			this.xVelocities = Arrays.copyOf(this.xVelocities, capacity);
+			this.yVelocities = Arrays.copyOf(this.yVelocities, capacity);
+			this.entities = Arrays.copyOf(this.entities, capacity);
+		}
+		int slot = this.size++;
+		this.xPositions[slot] = x;
+		this.yPositions[slot] = y;
+		this.xVelocities[slot] = xVelocity;
+		this.yVelocities[slot] = yVelocity;
+		this.entities[slot] = entity;
+		return slot;
+	}
+
+	/**
+	 * Free the given slot. The entity in the last slot moves to the freed slot.
+	 *
+	 * @param 	slot
+	 * 			The slot to free.
+	 */
+	void detach(int slot){
+		int last = --this.size;
+		if (slot != last){
+			this.xPositions[slot] = this.xPositions[last];
+			this.yPositions[slot] = this.yPositions[last];
+			this.xVelocities[slot] = this.xVelocities[last];
+			this.yVelocities[slot] = this.yVelocities[last];
+			this.entities[slot] = this.entities[last];
+			this.entities[slot].setSlot(slot);
+		}
+		this.entities[last] = null;
+	}
+
+	/**
+	 * Move all entities of this store along their velocity during the given duration.
+	 *
+	 * @param 	duration
+	 * 			The duration of the movement.
+	 */
+	void advance(double duration){
+		this.advance(0, this.size, duration);
+	}
+
+	/**
+	 * Move the entities in the given range of slots along their velocity during the given duration.
+	 * Disjoint ranges may be moved in parallel.
+	 *
+	 * @param 	from
+	 * 			The first slot to move.
+	 * @param 	to
+	 * 			The slot after the last slot to move.
+	 * @param 	duration
+	 * 			The duration of the movement.
+	 */
+	void advance(int from, int to, double duration){
+		double[] xPositions = this.xPositions;
+		double[] yPositions = this.yPositions;
+		double[] xVelocities = this.xVelocities;
+		double[] yVelocities = this.yVelocities;
+		for (int slot = from; slot < to; slot++){
+			xPositions[slot] = xPositions[slot]+xVelocities[slot]*duration;
+			yPositions[slot] = yPositions[slot]+yVelocities[slot]*duration;
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package asteroids.model;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import be.kuleuven.cs.som.annotate.Basic;
+
+/**
+ * A class of histograms of latencies in nanoseconds, with a bucket for each power of two.
+ * Bucket 0 holds the latencies of 0, and bucket i the latencies from 2^(i-1) up to 2^i - 1.
+ * Recording never takes a lock, so many threads may record into the same histogram at once.
+ * Values read while others record may miss the latest latencies, but never count one twice.
+ *
+ * @version 1.0
+ *
+ * @author Amber Van Camp & Jasper Vanmeerbeeck
+ */
+public class LatencyHistogram {
+
+	/**
+	 * Constant registering the number of buckets of each histogram.
+	 */
+	public static final int NB_BUCKETS = 64;
+
+	/**
+	 * Array registering the number of latencies recorded in each bucket.
+	 */
+	private final AtomicLongArray buckets = new AtomicLongArray(NB_BUCKETS);
+
+	/**
+	 * Variables registering the number and the sum of all recorded latencies.
+	 */
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+
+	/**
+	 * Variable registering the largest recorded latency.
+	 */
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Return the bucket of the given latency.
+	 *
+	 * @param 	nanos
+	 * 			The latency to find the bucket of.
+	 * @return	| if (nanos <= 0) then result == 0
+	 * 			| else result == 64 - Long.numberOfLeadingZeros(nanos)
+	 */
+	public static int getBucket(long nanos){
+		if (nanos <= 0)
+			return 0;
+		return Math.min(NB_BUCKETS-1, 64 - Long.numberOfLeadingZeros(nanos));
+	}
+
+	/**
+	 * Return the largest latency of the given bucket.
+	 *
+	 * @param 	bucket
+	 * 			The bucket to return the bound of.
+	 * @return	| result == (1L << bucket) - 1
+	 */
+	public static long getUpperBound(int bucket){
+		if (bucket >= NB_BUCKETS-1)
+			return Long.MAX_VALUE;
+		return (1L << bucket) - 1;
+	}
+
+	/**
+	 * Record the given latency in this histogram.
+	 * Negative latencies, that a clock going back may cause, are recorded as 0.
+	 *
+	 * @param 	nanos
+	 * 			The latency to record.
+	 */
+	public void record(long nanos){
+		if (nanos < 0)
+			nanos = 0;
+		this.buckets.incrementAndGet(getBucket(nanos));
+		this.count.increment();
+		this.sum.add(nanos);
+		long max = this.max.get();
+		while (nanos > max && !this.max.compareAndSet(max, nanos))
+			max = this.max.get();
+	}
+
+	/**
+	 * Return the number of latencies recorded in this histogram.
+	 */
+	@Basic
+	public long getCount(){
+		return this.count.sum();
+	}
+
+	/**
+	 * Return the number of latencies recorded in the given bucket of this histogram.
+	 *
+	 * @param 	bucket
+	 * 			The bucket to return the count of.
+	 * @throws	IllegalArgumentException
+	 * 			| bucket < 0 || bucket >= NB_BUCKETS
+	 */
+	public long getCount(int bucket) throws IllegalArgumentException{
+		if (bucket < 0 || bucket >= NB_BUCKETS)
+			throw new IllegalArgumentException();
+		return this.buckets.get(bucket);
+	}
+
+	/**
+	 * Return the mean of the latencies recorded in this histogram, 0 if none are recorded.
+	 */
+	public double getMean(){
+		long count = this.getCount();
+		if (count == 0)
+			return 0;
+		return (double) this.sum.sum() / count;
+	}
+
+	/**
+	 * Return the largest latency recorded in this histogram, 0 if none are recorded.
+	 */
+	@Basic
+	public long getMax(){
+		return this.max.get();
+	}
+
+	/**
+	 * Return an upper bound on the given percentile of the latencies recorded in this histogram.
+	 * The bound is the largest latency of the bucket holding that percentile, but never more than the maximum.
+	 *
+	 * @param 	percentile
+	 * 			The percentile, between 0 and 100.
+	 * @return	0 if no latencies are recorded.
+	 * @throws	IllegalArgumentException
+	 * 			| !(percentile >= 0 && percentile <= 100)
+	 */
+	public long getPercentile(double percentile) throws IllegalArgumentException{
+		if (!(percentile >= 0 && percentile <= 100))
+			throw new IllegalArgumentException();
+		long[] counts = new long[NB_BUCKETS];
+		long total = 0;
+		for (int i = 0; i < NB_BUCKETS; i++){
+			counts[i] = this.buckets.get(i);
+			total += counts[i];
+		}
+		if (total == 0)
+			return 0;
+		long rank = (long) Math.ceil(percentile / 100 * total);
+		long seen = 0;
+		for (int i = 0; i < NB_BUCKETS; i++){
+			seen += counts[i];
+			if (seen >= rank && counts[i] > 0)
+				return Math.min(getUpperBound(i), this.getMax());
+		}
+		return this.getMax();
+	}
+
+	/**
+	 * Forget all latencies recorded in this histogram.
+	 * Latencies recorded during the reset may be partly kept.
+	 */
+	public void reset(){
+		for (int i = 0; i < NB_BUCKETS; i++)
+			this.buckets.set(i, 0);
+		this.count.reset();
+		this.sum.reset();
+		this.max.set(0);
+	}
+}
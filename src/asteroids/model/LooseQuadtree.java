@@ -0,0 +1,466 @@
+package asteroids.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * A class of loose quadtrees that index the round entities of a space by their position.
+ * Each node covers a square of the space, but the entities of a node may stick out of that
+ * square up to half its size, so an entity is stored in the deepest node whose square contains
+ * its centre and whose half size is not smaller than its radius.
+ * Entities that don't fit in the root, like the entities of an unbound space, are kept in a separate list.
+ *
+ * @invar	Each round entity of the space of this quadtree is registered exactly once.
+ *
+ * @version 1.0
+ *
+ * @author Amber Van Camp & Jasper Vanmeerbeeck
+ */
+class LooseQuadtree {
+
+	/**
+	 * Initialize this new quadtree covering a space with the given width and height.
+	 *
+	 * @param 	width
+	 * 			The width of the space.
+	 * @param 	height
+	 * 			The height of the space.
+	 */
+	LooseQuadtree(double width, double height){
+		this.resize(width, height);
+	}
+
+	/**
+	 * Constant registering the maximum depth of the nodes of a quadtree.
+	 */
+	private static final int MAX_DEPTH = 16;
+
+	/**
+	 * The root node of this quadtree, null if the space is not bounded.
+	 */
+	private Node root;
+
+	/**
+	 * List of the entries that don't fit in the root.
+	 */
+	private final List<Entry> overflow = new ArrayList<Entry>();
+
+	/**
+	 * Map registering the entry of each round entity.
+	 */
+	private final Map<RoundEntity, Entry> entries = new HashMap<RoundEntity, Entry>();
+
+	/**
+	 * List of the nodes that were removed from this quadtree, kept for reuse.
+	 */
+	private final List<Node> freeNodes = new ArrayList<Node>();
+
+	/**
+	 * Let this quadtree cover a space with the given width and height, registering all its entities again.
+	 *
+	 * @param 	width
+	 * 			The new width of the space.
+	 * @param 	height
+	 * 			The new height of the space.
+	 */
+	void resize(double width, double height){
+		double size = Math.max(width, height);
+		if (Double.isInfinite(size) || Double.isNaN(size) || size <= 0)
+			this.root = null;
+		else
+			this.root = new Node(size/2, size/2, size/2, 0, null);
+		this.overflow.clear();
+		for (Entry entry : this.entries.values())
+			this.insert(entry);
+	}
+
+	/**
+	 * Register the given entity in this quadtree, at its current position.
+	 *
+	 * @param 	entity
+	 * 			The entity to register.
+	 */
+	void insert(RoundEntity entity){
+		if (this.entries.containsKey(entity))
+			return;
+		Entry entry = new Entry(entity, entity.getxPosition(), entity.getyPosition(), entity.getRadius());
+		this.entries.put(entity, entry);
+		this.insert(entry);
+	}
+
+	/**
+	 * Store the given entry in the deepest node it fits in, or in the overflow list.
+	 */
+	private void insert(Entry entry){
+		if (this.root == null || !this.root.fits(entry)){
+			entry.node = null;
+			this.overflow.add(entry);
+			return;
+		}
+		Node node = this.root;
+		while (node.depth < MAX_DEPTH && entry.radius <= node.halfSize/2){
+			node = this.getChild(node, entry.x, entry.y);
+		}
+		entry.node = node;
+		node.entries.add(entry);
+	}
+
+	/**
+	 * Remove the given entity from this quadtree.
+	 *
+	 * @param 	entity
+	 * 			The entity to remove.
+	 */
+	void remove(RoundEntity entity){
+		Entry entry = this.entries.remove(entity);
+		if (entry != null)
+			this.remove(entry);
+	}
+
+	/**
+	 * Remove the given entry from the node or list it is stored in.
+	 */
+	private void remove(Entry entry){
+		if (entry.node == null)
+			this.overflow.remove(entry);
+		else {
+			entry.node.entries.remove(entry);
+			this.prune(entry.node);
+		}
+	}
+
+	/**
+	 * Return the child of the given node whose square contains the given point, creating it if needed.
+	 */
+	private Node getChild(Node node, double x, double y){
+		if (node.children == null)
+			node.children = new Node[4];
+		int index = node.getChildIndex(x, y);
+		if (node.children[index] == null){
+			double quarter = node.halfSize/2;
+			double xCentre = x < node.xCentre ? node.xCentre-quarter : node.xCentre+quarter;
+			double yCentre = y < node.yCentre ? node.yCentre-quarter : node.yCentre+quarter;
+			Node child;
+			if (this.freeNodes.isEmpty())
+				child = new Node(xCentre, yCentre, quarter, node.depth+1, node);
+			else {
+				child = this.freeNodes.remove(this.freeNodes.size()-1);
+				child.set(xCentre, yCentre, quarter, node.depth+1, node);
+			}
+			node.children[index] = child;
+		}
+		return node.children[index];
+	}
+
+	/**
+	 * Remove the given node and its ancestors from this quadtree for as long as they store no entries
+	 * and have no children, keeping them for reuse. Entities moving through the space thus don't leave
+	 * a trail of empty nodes behind, and moving them allocates no new nodes.
+	 */
+	private void prune(Node node){
+		while (node.parent != null && node.entries.isEmpty() && !node.hasChildren()){
+			Node parent = node.parent;
+			parent.children[parent.getChildIndex(node.xCentre, node.yCentre)] = null;
+			node.parent = null;
+			this.freeNodes.add(node);
+			node = parent;
+		}
+	}
+
+	/**
+	 * Move the given entity to its current position.
+	 * The radius registered at insertion is kept, radii of round entities never grow.
+	 *
+	 * @param 	entity
+	 * 			The entity that has moved.
+	 */
+	void update(RoundEntity entity){
+		Entry entry = this.entries.get(entity);
+		if (entry == null)
+			return;
+		entry.x = entity.getxPosition();
+		entry.y = entity.getyPosition();
+		if (entry.node != null && entry.node.contains(entry.x, entry.y))
+			return;
+		this.remove(entry);
+		this.insert(entry);
+	}
+
+	/**
+	 * Return all entities whose circle intersects the circle with the given centre and radius.
+	 *
+	 * @param 	x
+	 * 			The x-coordinate of the centre of the circle.
+	 * @param 	y
+	 * 			The y-coordinate of the centre of the circle.
+	 * @param 	radius
+	 * 			The radius of the circle.
+	 * @return	A new list of all entities whose centre lies at a distance not larger than
+	 * 			the sum of both radii from the given centre.
+	 */
+	List<RoundEntity> getEntitiesWithin(double x, double y, double radius){
+		List<RoundEntity> result = new ArrayList<RoundEntity>();
+		for (Entry entry : this.overflow){
+			if (entry.intersects(x, y, radius))
+				result.add(entry.entity);
+		}
+		if (this.root != null)
+			this.collect(this.root, x, y, radius, result);
+		return result;
+	}
+
+	/**
+	 * Return the entity whose centre lies closest to the given point, within the given tolerance.
+	 *
+	 * @param 	x
+	 * 			The x-coordinate of the point.
+	 * @param 	y
+	 * 			The y-coordinate of the point.
+	 * @param 	tolerance
+	 * 			The largest distance between the point and the centre of the entity.
+	 * @return	The entity whose centre lies closest to the given point, if that distance is not
+	 * 			larger than the given tolerance. Null otherwise.
+	 */
+	RoundEntity getEntityAt(double x, double y, double tolerance){
+		if (Double.isNaN(x) || Double.isNaN(y) || Double.isInfinite(x) || Double.isInfinite(y)
+				|| Double.isNaN(tolerance) || tolerance < 0)
+			return null;
+		RoundEntity closest = null;
+		double smallestDistance = tolerance;
+		// The circle of each entity whose centre lies within the tolerance intersects the circle of the tolerance.
+		for (RoundEntity entity : this.getEntitiesWithin(x, y, tolerance)){
+			double distance = Math.hypot(entity.getxPosition()-x, entity.getyPosition()-y);
+			if (distance < smallestDistance || (closest == null && distance == smallestDistance)){
+				closest = entity;
+				smallestDistance = distance;
+			}
+		}
+		return closest;
+	}
+
+	/**
+	 * Add all entities of the given node and its children whose circle intersects the given circle to the given list.
+	 */
+	private void collect(Node node, double x, double y, double radius, List<RoundEntity> result){
+		// Entities of a node lie within its square, extended by half the size of the node.
+		if (node.getDistanceTo(x, y) > radius + node.halfSize)
+			return;
+		for (Entry entry : node.entries){
+			if (entry.intersects(x, y, radius))
+				result.add(entry.entity);
+		}
+		if (node.children != null){
+			for (Node child : node.children){
+				if (child != null)
+					this.collect(child, x, y, radius, result);
+			}
+		}
+	}
+
+	/**
+	 * Return the given number of entities that lie closest to the given point, the closest first.
+	 * The distance to an entity is measured up to its boundary.
+	 *
+	 * @param 	x
+	 * 			The x-coordinate of the point.
+	 * @param 	y
+	 * 			The y-coordinate of the point.
+	 * @param 	number
+	 * 			The number of entities to return.
+	 * @return	A new list of at most the given number of entities, sorted by their distance to the given point.
+	 */
+	List<RoundEntity> getNearestEntities(double x, double y, int number){
+		List<RoundEntity> result = new ArrayList<RoundEntity>();
+		if (number <= 0)
+			return result;
+		// Nodes and entries are visited by increasing (lower bound on their) distance.
+		PriorityQueue<Candidate> queue = new PriorityQueue<Candidate>();
+		for (Entry entry : this.overflow)
+			queue.add(new Candidate(entry.getDistanceTo(x, y), entry, null));
+		if (this.root != null)
+			queue.add(new Candidate(this.root.getDistanceTo(x, y) - this.root.halfSize, null, this.root));
+		while (!queue.isEmpty() && result.size() < number){
+			Candidate candidate = queue.poll();
+			if (candidate.entry != null){
+				result.add(candidate.entry.entity);
+				continue;
+			}
+			Node node = candidate.node;
+			for (Entry entry : node.entries)
+				queue.add(new Candidate(entry.getDistanceTo(x, y), entry, null));
+			if (node.children != null){
+				for (Node child : node.children){
+					if (child != null)
+						queue.add(new Candidate(child.getDistanceTo(x, y) - child.halfSize, null, child));
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * A class of nodes covering a square part of the space.
+	 */
+	private static class Node {
+
+		/**
+		 * Initialize this new node with the given centre, half size, depth and parent.
+		 */
+		Node(double xCentre, double yCentre, double halfSize, int depth, Node parent){
+			this.set(xCentre, yCentre, halfSize, depth, parent);
+		}
+
+		/**
+		 * Let this node cover the square with the given centre and half size, at the given depth below the given parent.
+		 */
+		void set(double xCentre, double yCentre, double halfSize, int depth, Node parent){
+			this.xCentre = xCentre;
+			this.yCentre = yCentre;
+			this.halfSize = halfSize;
+			this.depth = depth;
+			this.parent = parent;
+		}
+
+		/**
+		 * The centre, half size and depth of this node.
+		 */
+		double xCentre, yCentre, halfSize;
+		int depth;
+
+		/**
+		 * The parent of this node, null for the root.
+		 */
+		Node parent;
+
+		/**
+		 * The entries stored in this node.
+		 */
+		final List<Entry> entries = new ArrayList<Entry>(2);
+
+		/**
+		 * The four children of this node, created when they are first needed.
+		 */
+		Node[] children;
+
+		/**
+		 * Check whether the square of this node contains the given point.
+		 */
+		boolean contains(double x, double y){
+			return Math.abs(x-xCentre) <= halfSize && Math.abs(y-yCentre) <= halfSize;
+		}
+
+		/**
+		 * Check whether the given entry fits in this node.
+		 */
+		boolean fits(Entry entry){
+			return this.contains(entry.x, entry.y) && entry.radius <= halfSize;
+		}
+
+		/**
+		 * Return the distance between the given point and the square of this node.
+		 */
+		double getDistanceTo(double x, double y){
+			double dx = Math.max(Math.abs(x-xCentre) - halfSize, 0);
+			double dy = Math.max(Math.abs(y-yCentre) - halfSize, 0);
+			return Math.sqrt(dx*dx + dy*dy);
+		}
+
+		/**
+		 * Return the index of the child of this node whose square contains the given point.
+		 */
+		int getChildIndex(double x, double y){
+			return (x < xCentre ? 0 : 1) + (y < yCentre ? 0 : 2);
+		}
+
+		/**
+		 * Check whether this node has any children.
+		 */
+		boolean hasChildren(){
+			if (this.children == null)
+				return false;
+			for (Node child : this.children){
+				if (child != null)
+					return true;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * A class of entries registering a round entity with the position and radius it is stored with.
+	 */
+	private static class Entry {
+
+		/**
+		 * Initialize this new entry with the given entity, position and radius.
+		 */
+		Entry(RoundEntity entity, double x, double y, double radius){
+			this.entity = entity;
+			this.x = x;
+			this.y = y;
+			this.radius = radius;
+		}
+
+		/**
+		 * The entity of this entry.
+		 */
+		final RoundEntity entity;
+
+		/**
+		 * The position and radius of this entry.
+		 */
+		double x, y;
+		final double radius;
+
+		/**
+		 * The node this entry is stored in, null if it is stored in the overflow list.
+		 */
+		Node node;
+
+		/**
+		 * Check whether the circle of this entry intersects the given circle.
+		 */
+		boolean intersects(double x, double y, double radius){
+			double dx = this.x - x;
+			double dy = this.y - y;
+			return dx*dx + dy*dy <= (this.radius + radius)*(this.radius + radius);
+		}
+
+		/**
+		 * Return the distance between the given point and the boundary of the circle of this entry.
+		 */
+		double getDistanceTo(double x, double y){
+			return Math.sqrt((this.x-x)*(this.x-x) + (this.y-y)*(this.y-y)) - this.radius;
+		}
+	}
+
+	/**
+	 * A class of candidates for a nearest neighbour search, either an entry or a node still to be searched.
+	 */
+	private static class Candidate implements Comparable<Candidate> {
+
+		/**
+		 * Initialize this new candidate with the given distance, entry and node.
+		 */
+		Candidate(double distance, Entry entry, Node node){
+			this.distance = distance;
+			this.entry = entry;
+			this.node = node;
+		}
+
+		/**
+		 * The (lower bound on the) distance of this candidate, its entry and its node.
+		 */
+		final double distance;
+		final Entry entry;
+		final Node node;
+
+		@Override
+		public int compareTo(Candidate other){
+			return Double.compare(this.distance, other.distance);
+		}
+	}
+}
@@ -0,0 +1,355 @@
+package asteroids.model;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import be.kuleuven.cs.som.annotate.Basic;
+
+/**
+ * A class of metrics registries that record all measurements of the spaces using them in memory,
+ * without taking locks. Counters are striped, so threads evolving different spaces hardly contend.
+ * The measurements can be dumped to a file and exposed over JMX.
+ *
+ * @version 1.0
+ *
+ * @author Amber Van Camp & Jasper Vanmeerbeeck
+ */
+public class MetricsRecorder implements SimulationMetrics, MetricsRecorderMXBean {
+
+//	All methods related to the counters of this recorder.
+
+	/**
+	 * Counters registering the number of pair tests, wall bounces, moved entities and allocated bytes.
+	 */
+	private final LongAdder nbPairTests = new LongAdder();
+	private final LongAdder nbWallBounces = new LongAdder();
+	private final LongAdder nbMovedEntities = new LongAdder();
+	private final LongAdder nbAllocatedBytes = new LongAdder();
+
+	/**
+	 * Map registering the number of collisions per pair of entity classes.
+	 * Each pair is registered under the class whose name comes first.
+	 */
+	private final ConcurrentMap<Class<?>, ConcurrentMap<Class<?>, LongAdder>> collisions =
+			new ConcurrentHashMap<Class<?>, ConcurrentMap<Class<?>, LongAdder>>();
+
+	@Override
+	public void countPairTests(long count){
+		this.nbPairTests.add(count);
+	}
+
+	@Override
+	public void countCollision(RoundEntity first, RoundEntity second){
+		Class<?> firstClass = first.getClass();
+		Class<?> secondClass = second.getClass();
+		if (firstClass.getName().compareTo(secondClass.getName()) > 0){
+			firstClass = secondClass;
+			secondClass = first.getClass();
+		}
+		ConcurrentMap<Class<?>, LongAdder> counters = this.collisions.get(firstClass);
+		if (counters == null){
+			this.collisions.putIfAbsent(firstClass, new ConcurrentHashMap<Class<?>, LongAdder>());
+			counters = this.collisions.get(firstClass);
+		}
+		LongAdder counter = counters.get(secondClass);
+		if (counter == null){
+			counters.putIfAbsent(secondClass, new LongAdder());
+			counter = counters.get(secondClass);
+		}
+		counter.increment();
+	}
+
+	@Override
+	public void countWallBounce(RoundEntity entity){
+		this.nbWallBounces.increment();
+	}
+
+	@Override
+	public void countMovedEntities(long count){
+		this.nbMovedEntities.add(count);
+	}
+
+	@Override
+	public void countAllocatedBytes(long bytes){
+		this.nbAllocatedBytes.add(bytes);
+	}
+
+	@Override
+	public long getNbPairTests(){
+		return this.nbPairTests.sum();
+	}
+
+	@Override
+	public long getNbWallBounces(){
+		return this.nbWallBounces.sum();
+	}
+
+	@Override
+	public long getNbMovedEntities(){
+		return this.nbMovedEntities.sum();
+	}
+
+	@Override
+	public long getNbAllocatedBytes(){
+		return this.nbAllocatedBytes.sum();
+	}
+
+	/**
+	 * Return the number of resolved collisions between entities of both given classes, in either order.
+	 *
+	 * @param 	first
+	 * 			The class of one entity of the collisions.
+	 * @param 	second
+	 * 			The class of the other entity of the collisions.
+	 */
+	public long getNbCollisions(Class<?> first, Class<?> second){
+		if (first.getName().compareTo(second.getName()) > 0)
+			return this.getNbCollisions(second, first);
+		Map<Class<?>, LongAdder> counters = this.collisions.get(first);
+		if (counters == null || counters.get(second) == null)
+			return 0;
+		return counters.get(second).sum();
+	}
+
+	@Override
+	public Map<String, Long> getCollisionCounts(){
+		Map<String, Long> result = new TreeMap<String, Long>();
+		for (Map.Entry<Class<?>, ConcurrentMap<Class<?>, LongAdder>> counters : this.collisions.entrySet()){
+			for (Map.Entry<Class<?>, LongAdder> counter : counters.getValue().entrySet())
+				result.put(counters.getKey().getSimpleName() + "-" + counter.getKey().getSimpleName(),
+						counter.getValue().sum());
+		}
+		return result;
+	}
+
+//	All methods related to the latencies of this recorder.
+
+	/**
+	 * Histograms registering the latencies of evolves, of collision predictions and of program executions.
+	 */
+	private final LatencyHistogram evolveLatencies = new LatencyHistogram();
+	private final LatencyHistogram predictionLatencies = new LatencyHistogram();
+	private final LatencyHistogram programLatencies = new LatencyHistogram();
+
+	@Override
+	public void recordEvolveLatency(long nanos){
+		this.evolveLatencies.record(nanos);
+	}
+
+	@Override
+	public void recordPredictionLatency(long nanos){
+		this.predictionLatencies.record(nanos);
+	}
+
+	@Override
+	public void recordProgramLatency(long nanos){
+		this.programLatencies.record(nanos);
+	}
+
+	/**
+	 * Return the histogram of the latencies of the evolves recorded by this recorder.
+	 */
+	@Basic
+	public LatencyHistogram getEvolveLatencies(){
+		return this.evolveLatencies;
+	}
+
+	/**
+	 * Return the histogram of the time spent predicting collisions during each evolve recorded by this recorder.
+	 */
+	@Basic
+	public LatencyHistogram getPredictionLatencies(){
+		return this.predictionLatencies;
+	}
+
+	/**
+	 * Return the histogram of the latencies of the program executions recorded by this recorder.
+	 */
+	@Basic
+	public LatencyHistogram getProgramLatencies(){
+		return this.programLatencies;
+	}
+
+	@Override
+	public long getNbEvolves(){
+		return this.evolveLatencies.getCount();
+	}
+
+	@Override
+	public double getMeanEvolveLatency(){
+		return this.evolveLatencies.getMean();
+	}
+
+	@Override
+	public long getMaxEvolveLatency(){
+		return this.evolveLatencies.getMax();
+	}
+
+	@Override
+	public long getEvolveLatencyP99(){
+		return this.evolveLatencies.getPercentile(99);
+	}
+
+	@Override
+	public double getMeanPredictionLatency(){
+		return this.predictionLatencies.getMean();
+	}
+
+	@Override
+	public long getMaxPredictionLatency(){
+		return this.predictionLatencies.getMax();
+	}
+
+	@Override
+	public long getPredictionLatencyP99(){
+		return this.predictionLatencies.getPercentile(99);
+	}
+
+	@Override
+	public long getNbProgramExecutions(){
+		return this.programLatencies.getCount();
+	}
+
+	@Override
+	public double getMeanProgramLatency(){
+		return this.programLatencies.getMean();
+	}
+
+	@Override
+	public long getMaxProgramLatency(){
+		return this.programLatencies.getMax();
+	}
+
+	@Override
+	public long getProgramLatencyP99(){
+		return this.programLatencies.getPercentile(99);
+	}
+
+	@Override
+	public void reset(){
+		this.nbPairTests.reset();
+		this.nbWallBounces.reset();
+		this.nbMovedEntities.reset();
+		this.nbAllocatedBytes.reset();
+		this.collisions.clear();
+		this.evolveLatencies.reset();
+		this.predictionLatencies.reset();
+		this.programLatencies.reset();
+	}
+
+//	All methods related to the output of this recorder.
+
+	/**
+	 * Write all measurements of this recorder to the given writer, one per line as a name and a value.
+	 * Each histogram is written as its count, mean, maximum and the count of each non-empty bucket,
+	 * named after the largest latency of that bucket.
+	 *
+	 * @param 	writer
+	 * 			The writer to write to. It is flushed, but not closed.
+	 */
+	public void dump(Writer writer){
+		PrintWriter out = new PrintWriter(writer);
+		out.println("pairTests " + this.getNbPairTests());
+		out.println("wallBounces " + this.getNbWallBounces());
+		out.println("movedEntities " + this.getNbMovedEntities());
+		out.println("allocatedBytes " + this.getNbAllocatedBytes());
+		for (Map.Entry<String, Long> counter : this.getCollisionCounts().entrySet())
+			out.println("collisions." + counter.getKey() + " " + counter.getValue());
+		dump(out, "evolve", this.evolveLatencies);
+		dump(out, "prediction", this.predictionLatencies);
+		dump(out, "program", this.programLatencies);
+		out.flush();
+	}
+
+	/**
+	 * Write the given histogram to the given writer, prefixing all names with the given name.
+	 */
+	private static void dump(PrintWriter out, String name, LatencyHistogram histogram){
+		out.println(name + ".count " + histogram.getCount());
+		out.println(name + ".mean " + histogram.getMean());
+		out.println(name + ".max " + histogram.getMax());
+		for (int i = 0; i < LatencyHistogram.NB_BUCKETS; i++){
+			long count = histogram.getCount(i);
+			if (count > 0)
+				out.println(name + ".le." + LatencyHistogram.getUpperBound(i) + " " + count);
+		}
+	}
+
+	/**
+	 * Write all measurements of this recorder to the file at the given path, replacing its contents.
+	 *
+	 * @param 	path
+	 * 			The path of the file to write.
+	 * @effect	| dump(Files.newBufferedWriter(path))
+	 * @throws	IOException
+	 * 			The file could not be written.
+	 */
+	public void dump(Path path) throws IOException{
+		BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+		try {
+			this.dump(writer);
+		}
+		finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Variable registering the name under which this recorder is registered with the platform MBean server.
+	 */
+	private ObjectName objectName = null;
+
+	/**
+	 * Register this recorder with the platform MBean server under the given name,
+	 * such as "asteroids:type=MetricsRecorder,name=game".
+	 *
+	 * @param 	name
+	 * 			The object name of this recorder.
+	 * @throws	JMException
+	 * 			The name is not valid or already registered.
+	 * @throws	IllegalArgumentException
+	 * 			This recorder is already registered.
+	 * 			| isRegistered()
+	 */
+	public synchronized void register(String name) throws JMException, IllegalArgumentException{
+		if (this.isRegistered())
+			throw new IllegalArgumentException();
+		ObjectName objectName = new ObjectName(name);
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		this.objectName = objectName;
+	}
+
+	/**
+	 * Remove this recorder from the platform MBean server, if it is registered.
+	 *
+	 * @throws	JMException
+	 * 			This recorder could not be removed.
+	 */
+	public synchronized void unregister() throws JMException{
+		if (!this.isRegistered())
+			return;
+		ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.objectName);
+		this.objectName = null;
+	}
+
+	/**
+	 * Check whether this recorder is registered with the platform MBean server.
+	 */
+	public synchronized boolean isRegistered(){
+		return this.objectName != null;
+	}
+}
@@ -0,0 +1,54 @@
+package asteroids.model;
+
+import java.util.Map;
+
+/**
+ * The management interface through which a metrics recorder is exposed over JMX.
+ * All latencies are in nanoseconds.
+ *
+ * @version 1.0
+ *
+ * @author Amber Van Camp & Jasper Vanmeerbeeck
+ */
+public interface MetricsRecorderMXBean {
+
+	long getNbPairTests();
+
+	long getNbWallBounces();
+
+	long getNbMovedEntities();
+
+	long getNbAllocatedBytes();
+
+	/**
+	 * Return the number of resolved collisions per pair of entity types, such as "Asteroid-Ship".
+	 */
+	Map<String, Long> getCollisionCounts();
+
+	long getNbEvolves();
+
+	double getMeanEvolveLatency();
+
+	long getMaxEvolveLatency();
+
+	long getEvolveLatencyP99();
+
+	double getMeanPredictionLatency();
+
+	long getMaxPredictionLatency();
+
+	long getPredictionLatencyP99();
+
+	long getNbProgramExecutions();
+
+	double getMeanProgramLatency();
+
+	long getMaxProgramLatency();
+
+	long getProgramLatencyP99();
+
+	/**
+	 * Forget all measurements.
+	 */
+	void reset();
+}
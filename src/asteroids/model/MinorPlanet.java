@@ -39,6 +39,16 @@ public abstract class MinorPlanet extends RoundEntity{
 			throws IllegalArgumentException {
 		super(x, y, xVelocity, yVelocity, radius);
 	}
+	
+	/**
+	 * Initialize this new minor planet with given parameters as an entity of the given space,
+	 * without registering it in that space yet.
+	 */
+	@Raw
+	MinorPlanet(double x, double y, double xVelocity, double yVelocity, double radius, Space space)
+			throws IllegalArgumentException {
+		super(x, y, xVelocity, yVelocity, radius, space);
+	}
 
 	
 // 	All methods handling the termination of a minor planet.
@@ -98,7 +108,7 @@ public abstract class MinorPlanet extends RoundEntity{
 	public void move(double duration){
 		if (!canHaveAsDuration(duration))
 			throw new IllegalArgumentException();
-		setPosition(getPositionAfterMoving(duration)[0],getPositionAfterMoving(duration)[1]);
+		setPosition(getxPositionAfterMoving(duration),getyPositionAfterMoving(duration));
 	}
 
 	/**
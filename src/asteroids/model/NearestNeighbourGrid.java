@@ -0,0 +1,223 @@
+package asteroids.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A class of hashed grids that find the round entity lying closest to a given round entity.
+ * Entities are registered in the cell of their centre. A query searches rings of cells around
+ * the cell of the given entity, moving outwards until no entity in an unvisited ring
+ * can lie closer than the closest entity found so far.
+ *
+ * @invar	Each registered round entity is registered in the cell of its centre.
+ *
+ * @version 1.0
+ *
+ * @author Amber Van Camp & Jasper Vanmeerbeeck
+ */
+class NearestNeighbourGrid {
+
+	/**
+	 * Constant registering the width and height of a single cell.
+	 */
+	private static final double CELL_SIZE = 100;
+
+	/**
+	 * Table of all occupied cells, keyed by their packed cell coordinates.
+	 */
+	private final CellTable cells = new CellTable();
+
+	/**
+	 * Map registering for each round entity the cell it is registered in.
+	 */
+	private final Map<RoundEntity, CellTable.Cell> entityCells = new HashMap<RoundEntity, CellTable.Cell>();
+
+	/**
+	 * Variable registering an upper bound on the radius of all registered entities.
+	 */
+	private double maxRadius = 0;
+
+	/**
+	 * Variables registering the range of cell coordinates that may be occupied.
+	 */
+	private int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+
+	/**
+	 * List used to collect the entities of a ring before their distances are computed.
+	 */
+	private final List<RoundEntity> ring = new ArrayList<RoundEntity>();
+
+	/**
+	 * Return the number of entities registered in this grid.
+	 */
+	int size(){
+		return this.entityCells.size();
+	}
+
+	/**
+	 * Return the cell coordinate of the given position.
+	 */
+	private static int getCell(double position){
+		double cell = Math.floor(position/CELL_SIZE);
+		if (cell < Integer.MIN_VALUE)
+			return Integer.MIN_VALUE;
+		if (cell > Integer.MAX_VALUE)
+			return Integer.MAX_VALUE;
+		return (int) cell;
+	}
+
+	/**
+	 * Return the key of the cell with the given cell coordinates.
+	 */
+	private static long getKey(int x, int y){
+		return (((long) x) << 32) ^ (y & 0xffffffffL);
+	}
+
+	/**
+	 * Register the given entity in the cell of its current position.
+	 *
+	 * @param 	entity
+	 * 			The entity to register.
+	 */
+	void insert(RoundEntity entity){
+		if (this.entityCells.containsKey(entity))
+			return;
+		this.addToCell(entity, getCell(entity.getxPosition()), getCell(entity.getyPosition()));
+		if (entity.getRadius() > this.maxRadius)
+			this.maxRadius = entity.getRadius();
+	}
+
+	/**
+	 * Register the given entity in the cell with the given coordinates.
+	 * An entity that is already registered only has the cell it is registered in replaced,
+	 * so no new map entry is made.
+	 */
+	private void addToCell(RoundEntity entity, int x, int y){
+		this.entityCells.put(entity, this.cells.add(getKey(x, y), entity));
+		this.minX = Math.min(this.minX, x);
+		this.minY = Math.min(this.minY, y);
+		this.maxX = Math.max(this.maxX, x);
+		this.maxY = Math.max(this.maxY, y);
+	}
+
+	/**
+	 * Remove the given entity from this grid.
+	 *
+	 * @param 	entity
+	 * 			The entity to remove.
+	 */
+	void remove(RoundEntity entity){
+		CellTable.Cell cell = this.entityCells.remove(entity);
+		if (cell != null)
+			this.cells.remove(cell.getKey(), entity);
+	}
+
+	/**
+	 * Move the given entity to the cell of its current position.
+	 * Nothing changes if it is still in the same cell.
+	 *
+	 * @param 	entity
+	 * 			The entity that has moved.
+	 */
+	void update(RoundEntity entity){
+		CellTable.Cell cell = this.entityCells.get(entity);
+		if (cell == null)
+			return;
+		int x = getCell(entity.getxPosition());
+		int y = getCell(entity.getyPosition());
+		if (cell.getKey() == getKey(x, y))
+			return;
+		this.cells.remove(cell.getKey(), entity);
+		this.addToCell(entity, x, y);
+	}
+
+	/**
+	 * Return the registered entity that lies closest to the given entity.
+	 * The distance is measured between the boundaries of both entities.
+	 *
+	 * @param 	entity
+	 * 			The entity to find the closest entity of.
+	 * @param 	maxDistance
+	 * 			Only entities lying closer than this distance are considered.
+	 * @return	The registered entity with the smallest distance to the given entity,
+	 * 			if that distance is smaller than the given distance. Null otherwise.
+	 * 			| @see implementation
+	 */
+	RoundEntity getClosestEntity(RoundEntity entity, double maxDistance){
+		RoundEntity closest = null;
+		if (this.entityCells.isEmpty())
+			return closest;
+		int x = getCell(entity.getxPosition());
+		int y = getCell(entity.getyPosition());
+		// Rings beyond this one can't contain any entity.
+		long lastRing = Math.max(Math.max((long) x-this.minX, (long) this.maxX-x),
+				Math.max((long) y-this.minY, (long) this.maxY-y));
+		long visitedCells = 0;
+		for (int k = 0; k <= lastRing; k++){
+			// An entity in ring k lies at least k-1 cells away from the centre of the given entity.
+			double lowerBound = (k-1)*CELL_SIZE - entity.getRadius() - this.maxRadius;
+			if (maxDistance <= lowerBound)
+				break;
+			visitedCells += (k == 0) ? 1 : 8L*k;
+			if (visitedCells > 2L*this.entityCells.size()){
+				// Searching the cells around the entity costs more than checking all entities.
+				ring.clear();
+				for (int slot = 0; slot < this.cells.getCapacity(); slot++)
+					this.addCell(this.cells.getCellInSlot(slot));
+				return getClosestOfRing(entity, closest, maxDistance);
+			}
+			ring.clear();
+			for (int i = x-k; i <= x+k; i++){
+				this.addCell(i, y-k);
+				if (k != 0)
+					this.addCell(i, y+k);
+			}
+			for (int j = y-k+1; j <= y+k-1; j++){
+				this.addCell(x-k, j);
+				this.addCell(x+k, j);
+			}
+			RoundEntity closestOfRing = getClosestOfRing(entity, closest, maxDistance);
+			if (closestOfRing != closest){
+				closest = closestOfRing;
+				maxDistance = entity.getDistanceBetween(closest);
+			}
+		}
+		return closest;
+	}
+
+	/**
+	 * Add the entities of the cell with the given coordinates to the current ring.
+	 */
+	private void addCell(int x, int y){
+		this.addCell(this.cells.get(getKey(x, y)));
+	}
+
+	/**
+	 * Add the entities of the given cell, if any, to the current ring.
+	 */
+	private void addCell(CellTable.Cell cell){
+		if (cell == null)
+			return;
+		for (int i = 0; i < cell.size(); i++)
+			ring.add(cell.get(i));
+	}
+
+	/**
+	 * Return the entity of the current ring lying closest to the given entity,
+	 * or the given closest entity if no entity of the ring lies closer than the given distance.
+	 */
+	private RoundEntity getClosestOfRing(RoundEntity entity, RoundEntity closest, double maxDistance){
+		// The distances are only computed after the ring is collected, computing the radius
+		// of a planetoid may terminate it and remove it from this grid.
+		for (RoundEntity other : ring){
+			double distanceBetween = entity.getDistanceBetween(other);
+			if (distanceBetween < maxDistance){
+				maxDistance = distanceBetween;
+				closest = other;
+			}
+		}
+		return closest;
+	}
+}
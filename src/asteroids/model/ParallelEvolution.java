@@ -0,0 +1,191 @@
+package asteroids.model;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A class of helpers that split the work of an evolve over the threads of a fork/join pool.
+ * Each task only reads the state of the entities, or writes the state of the entities in its own
+ * range, so the tasks don't interfere. Results are written to arrays indexed like the input,
+ * and combined afterwards on the calling thread in a fixed order, so the outcome does not depend
+ * on the number of threads or on how the work was divided.
+ *
+ * @version 1.0
+ *
+ * @author Amber Van Camp & Jasper Vanmeerbeeck
+ */
+class ParallelEvolution {
+
+	/**
+	 * Constant registering the largest number of elements handled by a single task without splitting it.
+	 */
+	static final int CHUNK_SIZE = 512;
+
+	/**
+	 * Return the pool the tasks are run in.
+	 */
+	static ForkJoinPool getPool(){
+		return ForkJoinPool.commonPool();
+	}
+
+	/**
+	 * Run the given task, in the pool if it is large enough to be split.
+	 */
+	private static void run(RangeTask task){
+		if (task.to - task.from <= CHUNK_SIZE)
+			task.computeRange(task.from, task.to);
+		else
+			getPool().invoke(task);
+	}
+
+	/**
+	 * Move the position of the first given number of entities along their velocity during the given duration.
+	 * The entities don't register their new position in their space.
+	 *
+	 * @param 	entities
+	 * 			The entities to move.
+	 * @param 	size
+	 * 			The number of entities to move.
+	 * @param 	duration
+	 * 			The duration of the movement.
+	 */
+	static void advance(final RoundEntity[] entities, int size, final double duration){
+		run(new RangeTask(0, size){
+			@Override
+			void computeRange(int from, int to){
+				for (int i = from; i < to; i++){
+					if (!entities[i].isTerminated())
+						entities[i].advancePosition(duration);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Move the positions of all entities in the given columns along their velocity during the given duration.
+	 *
+	 * @param 	columns
+	 * 			The columns to move.
+	 * @param 	duration
+	 * 			The duration of the movement.
+	 */
+	static void advance(final KinematicColumns columns, final double duration){
+		run(new RangeTask(0, columns.size()){
+			@Override
+			void computeRange(int from, int to){
+				columns.advance(from, to, duration);
+			}
+		});
+	}
+
+	/**
+	 * Compute the time to collision of all given pairs of entities.
+	 *
+	 * @param 	pairs
+	 * 			The pairs of entities, two consecutive elements forming one pair.
+	 * @param 	times
+	 * 			The array to store the times in, the time of the i-th pair at index i.
+	 */
+	static void computeTimesToCollision(final List<RoundEntity> pairs, final double[] times){
+		run(new RangeTask(0, pairs.size()/2){
+			@Override
+			void computeRange(int from, int to){
+				for (int i = from; i < to; i++)
+					times[i] = pairs.get(2*i).computeTimeToCollision(pairs.get(2*i+1));
+			}
+		});
+	}
+
+	/**
+	 * Compute the time to hit a wall of the first given number of entities.
+	 *
+	 * @param 	entities
+	 * 			The entities to check.
+	 * @param 	size
+	 * 			The number of entities to check.
+	 * @param 	times
+	 * 			The array to store the times in, the time of the i-th entity at index i.
+	 */
+	static void computeTimesToHitWall(final RoundEntity[] entities, int size, final double[] times){
+		run(new RangeTask(0, size){
+			@Override
+			void computeRange(int from, int to){
+				for (int i = from; i < to; i++)
+					times[i] = entities[i].computeTimeToHitWall();
+			}
+		});
+	}
+
+	/**
+	 * A class of tasks working on a range of indices, split in halves until the range is small enough.
+	 */
+	@SuppressWarnings("serial")
+	private static abstract class RangeTask extends RecursiveAction {
+
+		/**
+		 * Initialize this new task for the given range, from inclusive to exclusive.
+		 */
+		RangeTask(int from, int to){
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * The range of this task.
+		 */
+		final int from, to;
+
+		/**
+		 * Return a task doing the same work as this task, for the given range.
+		 */
+		RangeTask createSubtask(int from, int to){
+			return new Subtask(this, from, to);
+		}
+
+		/**
+		 * Do the work of this task for the given range.
+		 */
+		abstract void computeRange(int from, int to);
+
+		@Override
+		protected void compute(){
+			if (this.to - this.from <= CHUNK_SIZE){
+				this.computeRange(this.from, this.to);
+				return;
+			}
+			int middle = (this.from + this.to) >>> 1;
+			invokeAll(this.createSubtask(this.from, middle), this.createSubtask(middle, this.to));
+		}
+	}
+
+	/**
+	 * A class of tasks doing the work of another task for a part of its range.
+	 */
+	@SuppressWarnings("serial")
+	private static class Subtask extends RangeTask {
+
+		/**
+		 * Initialize this new subtask doing the work of the given task for the given range.
+		 */
+		Subtask(RangeTask task, int from, int to){
+			super(from, to);
+			this.task = task;
+		}
+
+		/**
+		 * The task whose work is done.
+		 */
+		private final RangeTask task;
+
+		@Override
+		RangeTask createSubtask(int from, int to){
+			return new Subtask(this.task, from, to);
+		}
+
+		@Override
+		void computeRange(int from, int to){
+			this.task.computeRange(from, to);
+		}
+	}
+}
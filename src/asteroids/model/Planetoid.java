@@ -20,6 +20,19 @@ public class Planetoid extends MinorPlanet {
 		this.setTotalTraveledDistance(totalTraveledDistance);
 	}
 	
+	/**
+	 * Initialize this new planetoid with given parameters as an entity of the given space,
+	 * without registering it in that space yet.
+	 */
+	@Raw
+	Planetoid(double x, double y, double xVelocity, double yVelocity, double radius, double totalTraveledDistance,
+			Space space) throws IllegalArgumentException {
+		super(x, y, xVelocity, yVelocity, radius, space);
+		this.density = 0.917*Math.pow(10,12);
+		this.mass = 4.0/3.0*Math.PI*Math.pow(this.getRadius(),3)*this.getDensity();
+		this.setTotalTraveledDistance(totalTraveledDistance);
+	}
+	
 //	All methods related to the radius of a planetoid
 	
 	/**
@@ -45,8 +58,19 @@ public class Planetoid extends MinorPlanet {
 	public double getRadius(){
 		if (!canHaveAsRadius())
 			this.terminate();
-		return (this.radius-this.getTotalTraveledDistance()*0.000001);
+		return this.getRawRadius();
 	}	
+	
+	/**
+	 * Return the radius of this planetoid, without terminating it when it has become too small.
+	 * 
+	 * @return	| result == this.radius-this.getTotalTraveledDistance()*0.000001
+	 */
+	@Override
+	@Raw
+	double getRawRadius(){
+		return (this.radius-this.getTotalTraveledDistance()*0.000001);
+	}
 
 //	All methods related to the mass of a planetoid.
 	
@@ -125,7 +149,13 @@ public class Planetoid extends MinorPlanet {
 	public void move(double duration){
 		if (!canHaveAsDuration(duration))
 			throw new IllegalArgumentException();
-		setPosition(getPositionAfterMoving(duration)[0],getPositionAfterMoving(duration)[1]);
+		setPosition(getxPositionAfterMoving(duration),getyPositionAfterMoving(duration));
+		this.setTotalTraveledDistance(totalTraveledDistance+this.getSpeed()*duration);
+	}
+	
+	@Override
+	void advanced(double duration){
+		super.advanced(duration);
 		this.setTotalTraveledDistance(totalTraveledDistance+this.getSpeed()*duration);
 	}
 	
@@ -1,8 +1,10 @@
 package asteroids.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import asteroids.model.*;
 import asteroids.model.Programs.*;
@@ -14,7 +16,11 @@ public class Program{
 	private Ship ship;
 	private double executeTime = 0.0;
 	private List<Object> printResults = new ArrayList<Object>();	
-	private HashMap<String, Expression<?>> variables = new HashMap<>();
+	private Map<String, Integer> variableSlots = new HashMap<>();
+	private Object[] variables = new Object[0];
+	// The execution state of the body: one resume point per block, while and if statement that has been executed.
+	private int[] resumePoints = new int[0];
+	private boolean finished = false;
 	private boolean isBreaking = false;
 	// Variables can be of any type
 	// How to keep the type of a variable when first assigned?
@@ -36,11 +42,36 @@ public class Program{
 	}
 	
 	public List<Object> execute(double duration) throws ClassNotFoundException{
+		ProgramEvent event = ProgramEvent.isRecorded() ? new ProgramEvent(null, this.getShip()) : null;
+		if (event != null)
+			event.begin();
 		this.setExecuteTime(this.getExecuteTime() + duration);
-		body.execute();
-		
+		boolean suspended = false;
+		try {
+			// Resumes at the action statement that suspended the previous execution, if any.
+			body.execute();
+		}
+		catch (ExecutionSuspendedException exc) {
+			suspended = true;
+		}
+		finally {
+			// An execution that ends, or fails, leaves no resume points behind.
+			if (!suspended)
+				Arrays.fill(resumePoints, 0);
+			finished = !suspended;
+		}
+		if (event != null && event.shouldCommit()) {
+			event.setTimeLeft(this.getExecuteTime());
+			event.commit();
+		}
+		// The values printed so far, also while the program is suspended.
 		return printResults;
 	}
+
+	// Check whether the last execution of this program ran to its end, rather than being suspended.
+	public boolean isFinished() {
+		return finished;
+	}
 	// functions moeten pas uitgevoerd worden wanneer deze worden opgeroepen
 	// Met tijd uitvoeren
 
@@ -68,12 +99,64 @@ public class Program{
 		this.ship = ship;
 	}
 
-	public HashMap<String, Expression<?>> getVariables() {
-		return variables;
+	// Resolve all names of this program, giving each variable a slot of the variable frame.
+	public void resolve() throws IllegalArgumentException {
+		ProgramResolver.resolve(this);
+	}
+
+	public boolean hasVariable(String name) {
+		return variableSlots.containsKey(name);
+	}
+
+	public int getVariableSlot(String name) throws IllegalArgumentException {
+		Integer slot = variableSlots.get(name);
+		if (slot == null)
+			throw new IllegalArgumentException("Undefined variable " + name);
+		return slot;
+	}
+
+	// Return the slot of the given variable, adding a slot to the variable frame if it has none yet.
+	public int declareVariable(String name) {
+		Integer slot = variableSlots.get(name);
+		if (slot == null) {
+			slot = variables.length;
+			variableSlots.put(name, slot);
+			variables = Arrays.copyOf(variables, slot + 1);
+		}
+		return slot;
+	}
+
+	// The slots hold the values the variables were assigned, not the expressions they were assigned.
+	public Object getVariable(int slot) {
+		return variables[slot];
+	}
+
+	public void setVariable(int slot, Object value) {
+		variables[slot] = value;
+	}
+
+	public Object getVariable(String name) {
+		return hasVariable(name) ? variables[getVariableSlot(name)] : null;
+	}
+
+	public void setVariable(String name, Object value) {
+		int slot = declareVariable(name);
+		variables[slot] = value;
+	}
+
+	// Return a new slot in the execution state of this program, holding the resume point of a single statement.
+	public int declareResumePoint() {
+		int slot = resumePoints.length;
+		resumePoints = Arrays.copyOf(resumePoints, slot + 1);
+		return slot;
+	}
+
+	public int getResumePoint(int slot) {
+		return resumePoints[slot];
 	}
 
-	public void setVariables(HashMap<String, Expression<?>> variables) {
-		this.variables = variables;
+	public void setResumePoint(int slot, int point) {
+		resumePoints[slot] = point;
 	}
 
 	public double getExecuteTime() {
@@ -0,0 +1,77 @@
+package asteroids.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A class of flight recorder events spanning a single execution of the program of a ship,
+ * or a single invocation of one of its functions.
+ * The event is only filled in and committed while a recording has it enabled.
+ *
+ * @version 1.0
+ *
+ * @author Amber Van Camp & Jasper Vanmeerbeeck
+ */
+@Name("asteroids.ProgramExecution")
+@Label("Program Execution")
+@Category("Asteroids")
+@Description("An execution of a ship program or an invocation of one of its functions")
+public class ProgramEvent extends jdk.jfr.Event {
+
+	/**
+	 * The type of these events.
+	 */
+	private static final EventType TYPE = EventType.getEventType(ProgramEvent.class);
+
+	/**
+	 * Check whether a running recording has these events enabled.
+	 * Callers ask this before creating an event, so nothing is allocated while no recording runs.
+	 */
+	public static boolean isRecorded(){
+		return TYPE.isEnabled();
+	}
+
+	/**
+	 * Initialize this new event for the given function of a program executed by the given ship.
+	 *
+	 * @param 	function
+	 * 			The name of the invoked function, null for an execution of the whole program.
+	 * @param 	ship
+	 * 			The ship executing the program, possibly null.
+	 */
+	public ProgramEvent(String function, Ship ship){
+		this.function = function;
+		this.shipId = (ship == null) ? -1 : ship.getId();
+	}
+
+	@Label("Function")
+	@Description("The name of the invoked function, missing for an execution of the whole program")
+	String function;
+
+	@Label("Ship Id")
+	long shipId;
+
+	@Label("Arguments")
+	int nbArguments;
+
+	@Label("Time Left")
+	@Description("The time in seconds the program has left to execute actions")
+	double timeLeft;
+
+	/**
+	 * Set the number of arguments of the invocation of this event.
+	 */
+	public void setNbArguments(int nbArguments){
+		this.nbArguments = nbArguments;
+	}
+
+	/**
+	 * Set the time the program of this event has left after its execution.
+	 */
+	public void setTimeLeft(double timeLeft){
+		this.timeLeft = timeLeft;
+	}
+}
@@ -1,5 +1,6 @@
 package asteroids.model.Programs;
 
+import asteroids.model.ReplayJournal;
 import asteroids.part3.programs.SourceLocation;
 
 public abstract class ActionStatement extends Statement{
@@ -7,4 +8,22 @@ public abstract class ActionStatement extends Statement{
 	public ActionStatement(SourceLocation sourceLocation) {
 		super(sourceLocation);
 	}
+
+	// The time in seconds each action takes.
+	public static final double DURATION = 0.2;
+
+	/**
+	 * Suspend the execution of the program of this statement if it has less time left than this action takes.
+	 */
+	protected void suspendUnlessTimeLeft() throws ExecutionSuspendedException{
+		if (this.getProgram().getExecuteTime() < DURATION)
+			throw ExecutionSuspendedException.INSTANCE;
+	}
+
+	/**
+	 * Return the journal recording the world of the ship executing this statement, null if there is none.
+	 */
+	protected ReplayJournal getJournal(){
+		return ReplayJournal.of(this.getProgram().getShip());
+	}
 }
@@ -1,11 +1,13 @@
 package asteroids.model.Programs;
 
+import asteroids.model.RoundEntity;
 import asteroids.part3.programs.SourceLocation;
 
 public class AssignmentStatement extends Statement{
 	
 	private String variableName;
 	private Expression<?> value;
+	private int slot = -1;
 	
 	public AssignmentStatement(String variableName, Expression<?> value, SourceLocation sourceLocation){
 		super(sourceLocation);
@@ -18,6 +20,7 @@ public class AssignmentStatement extends Statement{
 	}
 	public void setVariableName(String variableName) {
 		this.variableName = variableName;
+		this.slot = -1;
 	}
 	public Expression<?> getValue() {
 		return value;
@@ -26,8 +29,44 @@ public class AssignmentStatement extends Statement{
 		this.value = value;
 	}
 	
+	// The slot of the assigned variable, -1 if it has not been resolved yet.
+	int getSlot() {
+		return slot;
+	}
+
+	void setSlot(int slot) {
+		this.slot = slot;
+	}
+	
+	// An assignment in a function body assigns a local variable of that function, any other assignment a global variable.
 	@Override
-	public void execute() {
-		this.getProgram().getVariables().put(this.getVariableName(), this.getValue());
+	public void execute() throws ClassNotFoundException {
+		Function function = this.getFunction();
+		if (slot < 0)
+			// Not resolved with a program, e.g. when executed on its own.
+			slot = (function != null) ? function.declareVariable(this.getVariableName())
+					: this.getProgram().declareVariable(this.getVariableName());
+		// The value is evaluated when it is assigned, so later reads see the value it had then.
+		Object value = this.getValue().evaluate(this.getProgram().getShip(), function);
+		Object oldValue = (function != null) ? function.getVariable(slot) : this.getProgram().getVariable(slot);
+		checkType(this.getVariableName(), oldValue, value);
+		if (function != null)
+			function.setVariable(slot, value);
+		else
+			this.getProgram().setVariable(slot, value);
+	}
+
+	// Return the given value to be assigned to the variable with the given name and old value.
+	// A variable keeps the type of the first value it is assigned, null fits any type.
+	// Public, so that the classes generated for compiled functions can call it.
+	public static Object checkType(String variableName, Object oldValue, Object value) throws IllegalArgumentException {
+		if (oldValue != null && value != null && getType(oldValue) != getType(value))
+			throw new IllegalArgumentException("Variable " + variableName + " cannot hold a value of another type");
+		return value;
+	}
+
+	// Return the type of the given value: all entities share a type, numbers and booleans have their own.
+	private static Class<?> getType(Object value) {
+		return (value instanceof RoundEntity) ? RoundEntity.class : value.getClass();
 	}
 }
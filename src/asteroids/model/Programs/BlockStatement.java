@@ -7,6 +7,7 @@ import asteroids.part3.programs.SourceLocation;
 public class BlockStatement extends Statement{
 	
 	private List<Statement> statements;
+	// The resume point of a block is the index of the statement it was suspended in.
 	
 	public BlockStatement(List<Statement> statements, SourceLocation sourceLocation) {
 		super(sourceLocation);
@@ -19,11 +20,14 @@ public class BlockStatement extends Statement{
 
 	@Override
 	public void execute() throws ClassNotFoundException {
-		for (Statement statement: this.getStatements()){
+		List<Statement> statements = this.getStatements();
+		for (int next = this.getResumePoint(); next < statements.size() && !this.isReturning(); next++){
 //			statement.setProgram(this.getProgram());
 //			statement.setFunction(this.getFunction());
-			statement.execute();
+			this.setResumePoint(next);
+			statements.get(next).execute();
 		}
+		this.setResumePoint(0);
 	}
 
 	public List<Statement> getStatements() {
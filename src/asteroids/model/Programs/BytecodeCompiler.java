@@ -0,0 +1,697 @@
+package asteroids.model.Programs;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import asteroids.model.Ship;
+
+/**
+ * A class compiling the numeric and boolean expressions of a program into generated JVM classes.
+ * Each expression becomes a single evaluate method of its own class, which implements
+ * the closure interfaces of the expression compiler. The JIT compiles that method as a whole,
+ * so the arithmetic of an expression runs without any dispatch between its nodes.
+ * Nodes without a primitive form are kept in an array of the generated object and evaluated
+ * through the tree, like the expression compiler does.
+ *
+ * The body of a function is compiled into a single execute method as well, as long as it only assigns,
+ * branches, loops and returns. Its arguments stay in their array, its local variables live in
+ * JVM locals, and its conditions, loops and returns become plain jumps, so the JIT compiles the whole
+ * function as a single method. Function calls and variables of the program are compiled into
+ * calls of their nodes. A function that prints, breaks or runs an action, skip included, is executed
+ * through the tree, like the body of the program itself, whose execution can be suspended halfway.
+ *
+ * Each class is defined by a class loader of its own, so it is unloaded as soon as its closure
+ * is no longer used. Classes are written in the format of Java 5, that the JVM verifies by inferring
+ * the types of the locals itself, so the code of conditions and loops needs no stack map frames.
+ *
+ * @version 1.0
+ *
+ * @author Amber Van Camp & Jasper Vanmeerbeeck
+ */
+final class BytecodeCompiler {
+
+	private BytecodeCompiler(){
+	}
+
+	/**
+	 * Constants registering the internal names and descriptors used by the generated classes.
+	 */
+	private static final String EXPRESSION = "asteroids/model/Programs/Expression";
+	private static final String EXPRESSIONS = "[L" + EXPRESSION + ";";
+	private static final String EVALUATE = "(Lasteroids/model/Ship;Lasteroids/model/Programs/Function;)";
+	private static final String ENTITY = "asteroids/model/RoundEntity";
+	private static final String OBJECT = "java/lang/Object";
+	private static final String EXECUTE = "(Lasteroids/model/Ship;Lasteroids/model/Programs/Function;[Ljava/lang/Object;)Ljava/lang/Object;";
+	private static final String INVOCATION = "asteroids/model/Programs/FunctionInvocationExpression";
+	private static final String ASSIGNMENT = "asteroids/model/Programs/AssignmentStatement";
+
+	/**
+	 * Constant registering the index of the JVM local holding the first local variable of a compiled function,
+	 * after the generated object, the executing ship, the executing function and the arguments.
+	 */
+	private static final int FIRST_VARIABLE = 4;
+
+	/**
+	 * Constant registering the largest number of local variables of a compiled function.
+	 */
+	private static final int MAX_NB_VARIABLES = 255 - FIRST_VARIABLE;
+
+	/**
+	 * Variable registering the number of classes generated so far, used to name them.
+	 */
+	private static final AtomicInteger nbClasses = new AtomicInteger();
+
+	/**
+	 * Return a generated closure evaluating to the same double as the given expression.
+	 *
+	 * @param 	expression
+	 * 			The expression to compile.
+	 */
+	static ExpressionCompiler.DoubleClosure compileDouble(Expression<?> expression){
+		Generator generator = new Generator(ExpressionCompiler.DoubleClosure.class, null);
+		generator.generateDouble(expression);
+		generator.emit(Opcodes.DRETURN, 0);
+		return (ExpressionCompiler.DoubleClosure) generator.define("evaluate", EVALUATE + "D", 3);
+	}
+
+	/**
+	 * Return a generated closure evaluating to the same boolean as the given expression.
+	 *
+	 * @param 	expression
+	 * 			The expression to compile.
+	 */
+	static ExpressionCompiler.BooleanClosure compileBoolean(Expression<?> expression){
+		Generator generator = new Generator(ExpressionCompiler.BooleanClosure.class, null);
+		generator.generateBoolean(expression);
+		generator.emit(Opcodes.IRETURN, 0);
+		return (ExpressionCompiler.BooleanClosure) generator.define("evaluate", EVALUATE + "Z", 3);
+	}
+
+	/**
+	 * An interface for function bodies compiled to generated JVM classes.
+	 */
+	public interface CompiledBody {
+
+		Object execute(Ship ExecutingShip, Function ExecutingFunction, Object[] arguments) throws ClassNotFoundException;
+	}
+
+	/**
+	 * Return the body of the given function compiled to a generated JVM class, or null if it can't be compiled.
+	 * All variables, parameters and calls of the function must have been resolved.
+	 *
+	 * @param 	function
+	 * 			The function to compile.
+	 */
+	static CompiledBody compileFunction(Function function){
+		if (function.getNbVariables() > MAX_NB_VARIABLES)
+			return null;
+		Generator generator = new Generator(CompiledBody.class, function);
+		try {
+			// The verifier only accepts locals that are stored before they are loaded.
+			for (int slot = 0; slot < function.getNbVariables(); slot++){
+				generator.emit(Opcodes.ACONST_NULL, 1);
+				generator.storeLocal(slot);
+			}
+			generator.generateStatement(function.getBody());
+		}
+		catch (NotCompilableException exc){
+			return null;
+		}
+		generator.generateThrow("java/lang/IllegalStateException", "Function " + function.getFunctionname() + " ends without a return");
+		return (CompiledBody) generator.define("execute", EXECUTE, FIRST_VARIABLE + function.getNbVariables());
+	}
+
+	/**
+	 * A class of exceptions signalling that a function body has a statement or expression that can't be compiled.
+	 */
+	private static final class NotCompilableException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * A class of constants registering the opcodes of the JVM instructions that are generated.
+	 */
+	private static final class Opcodes {
+
+		static final int ACONST_NULL = 0x01, ICONST_0 = 0x03, ICONST_1 = 0x04, LDC_W = 0x13, LDC2_W = 0x14,
+				SIPUSH = 0x11, ALOAD = 0x19, ALOAD_0 = 0x2a, ALOAD_1 = 0x2b, ALOAD_2 = 0x2c, ALOAD_3 = 0x2d,
+				AALOAD = 0x32, ASTORE = 0x3a, AASTORE = 0x53, DUP = 0x59, DADD = 0x63, DMUL = 0x6b, DNEG = 0x77,
+				IUSHR = 0x7c, IXOR = 0x82, DCMPG = 0x98, IFEQ = 0x99, IF_ACMPNE = 0xa6, GOTO = 0xa7,
+				IRETURN = 0xac, DRETURN = 0xaf, ARETURN = 0xb0, RETURN = 0xb1, GETFIELD = 0xb4,
+				PUTFIELD = 0xb5, INVOKEVIRTUAL = 0xb6, INVOKESPECIAL = 0xb7, INVOKESTATIC = 0xb8,
+				INVOKEINTERFACE = 0xb9, NEW = 0xbb, ANEWARRAY = 0xbd, ATHROW = 0xbf, CHECKCAST = 0xc0;
+	}
+
+	/**
+	 * A class of buffers of big-endian class file data.
+	 */
+	private static final class Buffer extends ByteArrayOutputStream {
+
+		private void u1(int value){
+			this.write(value);
+		}
+
+		private void u2(int value){
+			this.write(value >>> 8);
+			this.write(value);
+		}
+
+		private void u4(int value){
+			this.u2(value >>> 16);
+			this.u2(value);
+		}
+
+		private void u8(long value){
+			this.u4((int) (value >>> 32));
+			this.u4((int) value);
+		}
+
+		private void bytes(byte[] value){
+			this.write(value, 0, value.length);
+		}
+
+		/**
+		 * Overwrite the two bytes at the given position with the given value.
+		 */
+		private void set2(int position, int value){
+			this.buf[position] = (byte) (value >>> 8);
+			this.buf[position+1] = (byte) value;
+		}
+	}
+
+	/**
+	 * A class of class loaders defining a single generated class.
+	 */
+	private static final class Loader extends ClassLoader {
+
+		private Loader(){
+			super(BytecodeCompiler.class.getClassLoader());
+		}
+
+		private Class<?> define(String name, byte[] bytes){
+			return this.defineClass(name, bytes, 0, bytes.length);
+		}
+	}
+
+	/**
+	 * A class of generators writing the class of a single closure.
+	 */
+	private static final class Generator {
+
+		private final String name;
+		private final Class<?> closure;
+
+		/**
+		 * The function whose body is compiled, null if an expression is compiled on its own.
+		 */
+		private final Function function;
+
+		/**
+		 * The constant pool of the generated class, and the index of each of its entries.
+		 */
+		private final Buffer pool = new Buffer();
+		private final Map<String, Integer> poolIndices = new HashMap<String, Integer>();
+		private int nbPoolSlots = 1;
+
+		/**
+		 * The code of the evaluate method, with its current and its largest operand stack depth.
+		 */
+		private final Buffer code = new Buffer();
+		private int depth = 0;
+		private int maxDepth = 0;
+
+		/**
+		 * The expressions evaluated through the tree, in the order of their index in the array of the closure.
+		 */
+		private final List<Expression<?>> nodes = new ArrayList<Expression<?>>();
+
+		/**
+		 * The position in the code of each label, -1 if it is not placed yet, and the position of each jump
+		 * to a label together with that label.
+		 */
+		private final List<Integer> labels = new ArrayList<Integer>();
+		private final List<int[]> jumps = new ArrayList<int[]>();
+
+		private Generator(Class<?> closure, Function function){
+			this.name = "asteroids/model/Programs/" + ((function == null) ? "CompiledExpression" : "CompiledFunction")
+					+ nbClasses.incrementAndGet();
+			this.closure = closure;
+			this.function = function;
+		}
+
+		private void generateDouble(Expression<?> expression){
+			if (expression instanceof ConstantExpression){
+				this.emit(Opcodes.LDC2_W, 2);
+				this.emitShort(this.constant(((ConstantExpression) expression).getValue()));
+			}
+			else if (expression instanceof AdditionExpression){
+				// The second operand is evaluated first, like the interpreter does.
+				this.generateDouble(((AdditionExpression) expression).getE2());
+				this.generateDouble(((AdditionExpression) expression).getE1());
+				this.emit(Opcodes.DADD, -2);
+			}
+			else if (expression instanceof MultiplicationExpression){
+				this.generateDouble(((MultiplicationExpression) expression).getE2());
+				this.generateDouble(((MultiplicationExpression) expression).getE1());
+				this.emit(Opcodes.DMUL, -2);
+			}
+			else if (expression instanceof SqrtExpression){
+				this.generateDouble(((SqrtExpression) expression).getE());
+				this.invoke(Opcodes.INVOKESTATIC, "java/lang/Math", "sqrt", "(D)D", 0);
+			}
+			else if (expression instanceof ChangeSignExpression){
+				this.generateDouble(((ChangeSignExpression) expression).getExpression());
+				this.emit(Opcodes.DNEG, 0);
+			}
+			else if (expression instanceof GetDirectionExpression){
+				this.emit(Opcodes.ALOAD_1, 1);
+				this.invoke(Opcodes.INVOKEVIRTUAL, "asteroids/model/Ship", "getOrientation", "()D", 1);
+			}
+			else if (expression instanceof GetXExpression)
+				this.generateProperty(((GetXExpression) expression).getE(), "getxPosition");
+			else if (expression instanceof GetYExpression)
+				this.generateProperty(((GetYExpression) expression).getE(), "getyPosition");
+			else if (expression instanceof GetVXExpression)
+				this.generateProperty(((GetVXExpression) expression).getE(), "getxVelocity");
+			else if (expression instanceof GetVYExpression)
+				this.generateProperty(((GetVYExpression) expression).getE(), "getyVelocity");
+			else if (expression instanceof GetRadiusExpression)
+				this.generateProperty(((GetRadiusExpression) expression).getE(), "getRadius");
+			else {
+				this.generateObject(expression);
+				this.generateCast("java/lang/Double");
+				this.invoke(Opcodes.INVOKEVIRTUAL, "java/lang/Double", "doubleValue", "()D", 1);
+			}
+		}
+
+		private void generateBoolean(Expression<?> expression){
+			if (expression instanceof LessThanExpression){
+				// The sign bit of the comparison is set if and only if the first operand is smaller.
+				this.generateDouble(((LessThanExpression) expression).getE1());
+				this.generateDouble(((LessThanExpression) expression).getE2());
+				this.emit(Opcodes.DCMPG, -3);
+				this.emit(Opcodes.SIPUSH, 1);
+				this.emitShort(31);
+				this.emit(Opcodes.IUSHR, -1);
+			}
+			else if (expression instanceof LogicalNegationExpression){
+				this.generateBoolean(((LogicalNegationExpression) expression).getExpression());
+				this.emit(Opcodes.ICONST_1, 1);
+				this.emit(Opcodes.IXOR, -1);
+			}
+			else if (expression instanceof EqualToExpression){
+				// Like the interpreter, operands of different kinds are never equal and are not evaluated.
+				EqualToExpression equalTo = (EqualToExpression) expression;
+				if (equalTo.getE1().getClass() != equalTo.getE2().getClass()){
+					this.emit(Opcodes.ICONST_0, 1);
+					return;
+				}
+				int different = this.newLabel(), end = this.newLabel();
+				this.generateObject(equalTo.getE1());
+				this.generateObject(equalTo.getE2());
+				this.jump(Opcodes.IF_ACMPNE, different, -2);
+				this.emit(Opcodes.ICONST_1, 1);
+				this.jump(Opcodes.GOTO, end, -1);
+				this.placeLabel(different);
+				this.emit(Opcodes.ICONST_0, 1);
+				this.placeLabel(end);
+			}
+			else {
+				this.generateObject(expression);
+				this.generateCast("java/lang/Boolean");
+				this.invoke(Opcodes.INVOKEVIRTUAL, "java/lang/Boolean", "booleanValue", "()Z", 0);
+			}
+		}
+
+		/**
+		 * Generate the code evaluating the given expression to an object.
+		 * Outside a function, the expression is evaluated through the tree.
+		 */
+		private void generateObject(Expression<?> expression){
+			if (this.function == null)
+				this.generateNode(expression);
+			else if (expression instanceof VariableExpression && ((VariableExpression) expression).isLocal()){
+				if (((VariableExpression) expression).getSlot() < 0)
+					throw new NotCompilableException();
+				this.loadLocal(((VariableExpression) expression).getSlot());
+			}
+			else if (expression instanceof ParameterExpression){
+				this.emit(Opcodes.ALOAD_3, 1);
+				this.emit(Opcodes.SIPUSH, 1);
+				this.emitShort(((ParameterExpression) expression).getIndex());
+				this.emit(Opcodes.AALOAD, -1);
+			}
+			else if (expression instanceof FunctionInvocationExpression){
+				// The arguments are evaluated here, so they can read the locals of this function.
+				FunctionInvocationExpression call = (FunctionInvocationExpression) expression;
+				if (call.getTarget() == null)
+					throw new NotCompilableException();
+				this.loadNode(call);
+				this.generateCast(INVOCATION);
+				this.emit(Opcodes.SIPUSH, 1);
+				this.emitShort(call.getActualArgs().size());
+				this.emit(Opcodes.ANEWARRAY, 0);
+				this.emitShort(this.type(OBJECT));
+				for (int i = 0; i < call.getActualArgs().size(); i++){
+					this.emit(Opcodes.DUP, 1);
+					this.emit(Opcodes.SIPUSH, 1);
+					this.emitShort(i);
+					this.generateObject(call.getActualArgs().get(i));
+					this.emit(Opcodes.AASTORE, -3);
+				}
+				this.invoke(Opcodes.INVOKEVIRTUAL, INVOCATION, "invoke", "([Ljava/lang/Object;)Ljava/lang/Object;", -1);
+			}
+			else if (expression instanceof AdditionExpression || expression instanceof MultiplicationExpression
+					|| expression instanceof SqrtExpression || expression instanceof ChangeSignExpression
+					|| expression instanceof GetXExpression || expression instanceof GetYExpression
+					|| expression instanceof GetVXExpression || expression instanceof GetVYExpression
+					|| expression instanceof GetRadiusExpression){
+				this.generateDouble(expression);
+				this.invoke(Opcodes.INVOKESTATIC, "java/lang/Double", "valueOf", "(D)Ljava/lang/Double;", -1);
+			}
+			else if (expression instanceof LessThanExpression || expression instanceof LogicalNegationExpression
+					|| expression instanceof EqualToExpression){
+				this.generateBoolean(expression);
+				this.invoke(Opcodes.INVOKESTATIC, "java/lang/Boolean", "valueOf", "(Z)Ljava/lang/Boolean;", 0);
+			}
+			else
+				// Literals, entities and variables of the program don't read the frame of the function.
+				this.generateNode(expression);
+		}
+
+		/**
+		 * Generate the code executing the given statement of the body of the compiled function.
+		 */
+		private void generateStatement(Statement statement){
+			if (statement instanceof BlockStatement){
+				for (Statement nested : ((BlockStatement) statement).getStatements())
+					this.generateStatement(nested);
+			}
+			else if (statement instanceof AssignmentStatement){
+				AssignmentStatement assignment = (AssignmentStatement) statement;
+				if (assignment.getSlot() < 0)
+					throw new NotCompilableException();
+				this.generateString(assignment.getVariableName());
+				this.loadLocal(assignment.getSlot());
+				this.generateObject(assignment.getValue());
+				this.invoke(Opcodes.INVOKESTATIC, ASSIGNMENT, "checkType",
+						"(Ljava/lang/String;Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;", -2);
+				this.storeLocal(assignment.getSlot());
+			}
+			else if (statement instanceof IfThenElseStatement){
+				IfThenElseStatement ifThenElse = (IfThenElseStatement) statement;
+				int elseBody = this.newLabel(), end = this.newLabel();
+				this.generateBoolean(ifThenElse.getCondition());
+				this.jump(Opcodes.IFEQ, elseBody, -1);
+				this.generateStatement(ifThenElse.getIfBody());
+				this.jump(Opcodes.GOTO, end, 0);
+				this.placeLabel(elseBody);
+				if (ifThenElse.getElseBody() != null)
+					this.generateStatement(ifThenElse.getElseBody());
+				this.placeLabel(end);
+			}
+			else if (statement instanceof WhileStatement){
+				WhileStatement loop = (WhileStatement) statement;
+				int condition = this.newLabel(), end = this.newLabel();
+				this.placeLabel(condition);
+				this.generateBoolean(loop.getCondition());
+				this.jump(Opcodes.IFEQ, end, -1);
+				this.generateStatement(loop.getBody());
+				this.jump(Opcodes.GOTO, condition, 0);
+				this.placeLabel(end);
+			}
+			else if (statement instanceof ReturnStatement){
+				this.generateObject(((ReturnStatement) statement).getValue());
+				this.emit(Opcodes.ARETURN, -1);
+			}
+			else
+				throw new NotCompilableException();
+		}
+
+		/**
+		 * Generate the code throwing a new exception of the given class with the given message.
+		 */
+		private void generateThrow(String exception, String message){
+			this.emit(Opcodes.NEW, 1);
+			this.emitShort(this.type(exception));
+			this.emit(Opcodes.DUP, 1);
+			this.generateString(message);
+			this.invoke(Opcodes.INVOKESPECIAL, exception, "<init>", "(Ljava/lang/String;)V", -2);
+			this.emit(Opcodes.ATHROW, -1);
+		}
+
+		/**
+		 * Generate the code evaluating the given entity expression and reading the given property of the result.
+		 */
+		private void generateProperty(Expression<?> entity, String getter){
+			this.generateObject(entity);
+			this.generateCast(ENTITY);
+			this.invoke(Opcodes.INVOKEVIRTUAL, ENTITY, getter, "()D", 1);
+		}
+
+		private void generateCast(String type){
+			this.emit(Opcodes.CHECKCAST, 0);
+			this.emitShort(this.type(type));
+		}
+
+		private void generateString(String value){
+			this.emit(Opcodes.LDC_W, 1);
+			this.emitShort(this.string(value));
+		}
+
+		/**
+		 * Generate the code evaluating the given expression through the tree.
+		 */
+		private void generateNode(Expression<?> expression){
+			this.loadNode(expression);
+			this.emit(Opcodes.ALOAD_1, 1);
+			this.emit(Opcodes.ALOAD_2, 1);
+			this.emit(Opcodes.INVOKEINTERFACE, -2);
+			this.emitShort(this.member(11, EXPRESSION, "evaluate", EVALUATE + "Ljava/lang/Object;"));
+			this.code.u1(3);
+			this.code.u1(0);
+		}
+
+		/**
+		 * Generate the code loading the given expression itself from the array of the generated object.
+		 */
+		private void loadNode(Expression<?> expression){
+			this.emit(Opcodes.ALOAD_0, 1);
+			this.emit(Opcodes.GETFIELD, 0);
+			this.emitShort(this.member(9, this.name, "nodes", EXPRESSIONS));
+			this.emit(Opcodes.SIPUSH, 1);
+			this.emitShort(this.nodes.size());
+			this.emit(Opcodes.AALOAD, -1);
+			this.nodes.add(expression);
+		}
+
+		/**
+		 * Generate the code loading or storing the JVM local of the local variable in the given slot.
+		 */
+		private void loadLocal(int slot){
+			this.emit(Opcodes.ALOAD, 1);
+			this.code.u1(FIRST_VARIABLE + slot);
+		}
+
+		private void storeLocal(int slot){
+			this.emit(Opcodes.ASTORE, -1);
+			this.code.u1(FIRST_VARIABLE + slot);
+		}
+
+		/**
+		 * Return a new label, to be placed in the code later.
+		 */
+		private int newLabel(){
+			this.labels.add(-1);
+			return this.labels.size()-1;
+		}
+
+		private void placeLabel(int label){
+			this.labels.set(label, this.code.size());
+		}
+
+		/**
+		 * Generate a jump to the given label, that changes the stack depth by the given amount.
+		 * The offset of the jump is filled in once the class is defined.
+		 */
+		private void jump(int opcode, int label, int change){
+			this.jumps.add(new int[] {this.code.size(), label});
+			this.emit(opcode, change);
+			this.emitShort(0);
+		}
+
+		/**
+		 * Generate a call of the given method, that changes the stack depth by the given amount.
+		 */
+		private void invoke(int opcode, String owner, String method, String descriptor, int change){
+			this.emit(opcode, change);
+			this.emitShort(this.member(10, owner, method, descriptor));
+		}
+
+		private void emit(int opcode, int change){
+			this.code.u1(opcode);
+			this.depth += change;
+			this.maxDepth = Math.max(this.maxDepth, this.depth);
+		}
+
+		private void emitShort(int value){
+			this.code.u2(value);
+		}
+
+		/**
+		 * Define the generated class, with a method with the given name, descriptor and number of locals
+		 * running the generated code, and return a new instance of it.
+		 */
+		private Object define(String method, String descriptor, int maxLocals){
+			for (int[] jump : this.jumps)
+				this.code.set2(jump[0]+1, this.labels.get(jump[1]) - jump[0]);
+			Buffer out = new Buffer();
+			String closure = this.closure.getName().replace('.', '/');
+			int thisClass = this.type(this.name);
+			int superClass = this.type(OBJECT);
+			int interfaceClass = this.type(closure);
+			int field = this.member(9, this.name, "nodes", EXPRESSIONS);
+			int superConstructor = this.member(10, OBJECT, "<init>", "()V");
+			int fieldName = this.utf8("nodes"), fieldType = this.utf8(EXPRESSIONS);
+			int constructorName = this.utf8("<init>"), constructorType = this.utf8("(" + EXPRESSIONS + ")V");
+			int methodName = this.utf8(method), methodType = this.utf8(descriptor);
+			int codeName = this.utf8("Code");
+			out.u4(0xCAFEBABE);
+			out.u2(0);
+			out.u2(49);
+			out.u2(this.nbPoolSlots);
+			out.bytes(this.pool.toByteArray());
+			out.u2(0x0001 | 0x0010 | 0x0020);
+			out.u2(thisClass);
+			out.u2(superClass);
+			out.u2(1);
+			out.u2(interfaceClass);
+			out.u2(1);
+			out.u2(0x0002 | 0x0010);
+			out.u2(fieldName);
+			out.u2(fieldType);
+			out.u2(0);
+			out.u2(2);
+			Buffer constructor = new Buffer();
+			constructor.u1(Opcodes.ALOAD_0);
+			constructor.u1(Opcodes.INVOKESPECIAL);
+			constructor.u2(superConstructor);
+			constructor.u1(Opcodes.ALOAD_0);
+			constructor.u1(Opcodes.ALOAD_1);
+			constructor.u1(Opcodes.PUTFIELD);
+			constructor.u2(field);
+			constructor.u1(Opcodes.RETURN);
+			writeMethod(out, constructorName, constructorType, codeName, 2, 2, constructor.toByteArray());
+			writeMethod(out, methodName, methodType, codeName, this.maxDepth, maxLocals, this.code.toByteArray());
+			out.u2(0);
+			try {
+				Class<?> generated = new Loader().define(this.name.replace('/', '.'), out.toByteArray());
+				return generated.getConstructor(Expression[].class).newInstance(
+						(Object) this.nodes.toArray(new Expression<?>[this.nodes.size()]));
+			}
+			catch (ReflectiveOperationException exc){
+				throw new AssertionError(exc);
+			}
+		}
+
+		private static void writeMethod(Buffer out, int name, int descriptor, int codeName, int maxStack,
+				int maxLocals, byte[] code){
+			out.u2(0x0001);
+			out.u2(name);
+			out.u2(descriptor);
+			out.u2(1);
+			out.u2(codeName);
+			out.u4(12 + code.length);
+			out.u2(maxStack);
+			out.u2(maxLocals);
+			out.u4(code.length);
+			out.bytes(code);
+			out.u2(0);
+			out.u2(0);
+		}
+
+		//	All methods related to the constant pool of the generated class.
+
+		private int utf8(String value){
+			Integer index = this.poolIndices.get("U" + value);
+			if (index == null){
+				index = this.add(1, 1);
+				byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+				this.pool.u2(bytes.length);
+				this.pool.bytes(bytes);
+				this.poolIndices.put("U" + value, index);
+			}
+			return index;
+		}
+
+		private int type(String name){
+			Integer index = this.poolIndices.get("C" + name);
+			if (index == null){
+				int nameIndex = this.utf8(name);
+				index = this.add(7, 1);
+				this.pool.u2(nameIndex);
+				this.poolIndices.put("C" + name, index);
+			}
+			return index;
+		}
+
+		/**
+		 * Return the index of a field (tag 9), method (tag 10) or interface method (tag 11) reference.
+		 */
+		private int member(int tag, String owner, String name, String descriptor){
+			String key = "M" + tag + owner + "." + name + descriptor;
+			Integer index = this.poolIndices.get(key);
+			if (index == null){
+				int ownerIndex = this.type(owner);
+				int nameIndex = this.utf8(name);
+				int descriptorIndex = this.utf8(descriptor);
+				int nameAndType = this.add(12, 1);
+				this.pool.u2(nameIndex);
+				this.pool.u2(descriptorIndex);
+				index = this.add(tag, 1);
+				this.pool.u2(ownerIndex);
+				this.pool.u2(nameAndType);
+				this.poolIndices.put(key, index);
+			}
+			return index;
+		}
+
+		private int string(String value){
+			Integer index = this.poolIndices.get("S" + value);
+			if (index == null){
+				int valueIndex = this.utf8(value);
+				index = this.add(8, 1);
+				this.pool.u2(valueIndex);
+				this.poolIndices.put("S" + value, index);
+			}
+			return index;
+		}
+
+		private int constant(double value){
+			String key = "D" + Double.doubleToRawLongBits(value);
+			Integer index = this.poolIndices.get(key);
+			if (index == null){
+				index = this.add(6, 2);
+				this.pool.u8(Double.doubleToRawLongBits(value));
+				this.poolIndices.put(key, index);
+			}
+			return index;
+		}
+
+		/**
+		 * Start a new entry of the constant pool with the given tag, taking the given number of slots.
+		 */
+		private int add(int tag, int slots){
+			int index = this.nbPoolSlots;
+			this.pool.u1(tag);
+			this.nbPoolSlots += slots;
+			return index;
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package asteroids.model.Programs;
+
+/**
+ * A class of exceptions signalling that the execution of a program is suspended, because an action statement
+ * needs more time than the program has left. The statements it passes through have recorded the point they
+ * reached in the execution state of their program, so the next execution of the program resumes at the suspended action.
+ * The exception carries no stack trace, so a single instance serves all suspensions.
+ *
+ * @version 1.0
+ *
+ * @author Amber Van Camp & Jasper Vanmeerbeeck
+ */
+public class ExecutionSuspendedException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The instance thrown by all suspended action statements.
+	 */
+	public static final ExecutionSuspendedException INSTANCE = new ExecutionSuspendedException();
+
+	private ExecutionSuspendedException(){
+		super(null, null, false, false);
+	}
+}
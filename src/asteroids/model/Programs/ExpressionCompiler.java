@@ -0,0 +1,264 @@
+package asteroids.model.Programs;
+
+import asteroids.model.RoundEntity;
+import asteroids.model.Ship;
+
+/**
+ * A class compiling the numeric and boolean expressions of a program into closures that return
+ * primitive values. The kind of each node is resolved once, at compile time, so evaluating a
+ * compiled expression neither boxes its intermediate results nor tests their types.
+ * Subexpressions made up of literals only are folded into a single constant.
+ * Nodes without a primitive form, such as variables, parameters and function calls, are evaluated
+ * as before and the value they hold or return is unboxed, failing in the same way as the expression
+ * they replace. A missing expression
+ * compiles to a closure that fails with a NullPointerException once it is evaluated.
+ *
+ * @version 1.0
+ *
+ * @author Amber Van Camp & Jasper Vanmeerbeeck
+ */
+public final class ExpressionCompiler {
+
+	private ExpressionCompiler(){
+	}
+
+	/**
+	 * An interface for compiled expressions evaluating to a double.
+	 */
+	public interface DoubleClosure {
+
+		double evaluate(Ship ExecutingShip, Function ExecutingFunction) throws ClassNotFoundException;
+	}
+
+	/**
+	 * An interface for compiled expressions evaluating to a boolean.
+	 */
+	public interface BooleanClosure {
+
+		boolean evaluate(Ship ExecutingShip, Function ExecutingFunction) throws ClassNotFoundException;
+	}
+
+	/**
+	 * A class of compiled expressions that always evaluate to the same double.
+	 */
+	private static final class Constant implements DoubleClosure {
+
+		private final double value;
+
+		private Constant(double value){
+			this.value = value;
+		}
+
+		@Override
+		public double evaluate(Ship ExecutingShip, Function ExecutingFunction){
+			return this.value;
+		}
+	}
+
+	/**
+	 * A class of compiled expressions reading a property of the entity another expression evaluates to.
+	 */
+	private static abstract class EntityProperty implements DoubleClosure {
+
+		private final Expression<? extends RoundEntity> entity;
+
+		private EntityProperty(Expression<? extends RoundEntity> entity){
+			this.entity = entity;
+		}
+
+		@Override
+		public final double evaluate(Ship ExecutingShip, Function ExecutingFunction) throws ClassNotFoundException{
+			return this.get(this.entity.evaluate(ExecutingShip, ExecutingFunction));
+		}
+
+		protected abstract double get(RoundEntity entity);
+	}
+
+	/**
+	 * Variable registering whether expressions are compiled to generated JVM classes rather than to closure trees,
+	 * and whether the functions of programs are compiled to generated JVM classes when their program is resolved.
+	 */
+	private static volatile boolean bytecodeEnabled = false;
+
+	/**
+	 * Check whether expressions are compiled to generated JVM classes.
+	 */
+	public static boolean isBytecodeEnabled(){
+		return bytecodeEnabled;
+	}
+
+	/**
+	 * Set whether expressions compiled and functions resolved from now on are compiled to generated JVM classes.
+	 * Expressions compiled and functions resolved before keep their closures.
+	 *
+	 * @param 	enabled
+	 * 			Whether to generate JVM classes.
+	 */
+	public static void setBytecodeEnabled(boolean enabled){
+		bytecodeEnabled = enabled;
+	}
+
+	/**
+	 * Return a closure evaluating to the same double as the given expression.
+	 *
+	 * @param 	expression
+	 * 			The expression to compile.
+	 */
+	public static DoubleClosure compileDouble(Expression<?> expression){
+		if (isBytecodeEnabled())
+			return BytecodeCompiler.compileDouble(expression);
+		return closureOfDouble(expression);
+	}
+
+	/**
+	 * Return a closure evaluating to the same boolean as the given expression.
+	 *
+	 * @param 	expression
+	 * 			The expression to compile.
+	 */
+	public static BooleanClosure compileBoolean(Expression<?> expression){
+		if (isBytecodeEnabled())
+			return BytecodeCompiler.compileBoolean(expression);
+		return closureOfBoolean(expression);
+	}
+
+	/**
+	 * Return a tree of closures evaluating to the same double as the given expression.
+	 */
+	private static DoubleClosure closureOfDouble(final Expression<?> expression){
+		if (expression instanceof ConstantExpression)
+			return new Constant(((ConstantExpression) expression).getValue());
+		if (expression instanceof AdditionExpression){
+			// The second operand is evaluated first, like the interpreter does.
+			final DoubleClosure e1 = closureOfDouble(((AdditionExpression) expression).getE1());
+			final DoubleClosure e2 = closureOfDouble(((AdditionExpression) expression).getE2());
+			if (e1 instanceof Constant && e2 instanceof Constant)
+				return new Constant(((Constant) e2).value + ((Constant) e1).value);
+			return new DoubleClosure(){
+				@Override
+				public double evaluate(Ship ExecutingShip, Function ExecutingFunction) throws ClassNotFoundException{
+					return e2.evaluate(ExecutingShip, ExecutingFunction) + e1.evaluate(ExecutingShip, ExecutingFunction);
+				}
+			};
+		}
+		if (expression instanceof MultiplicationExpression){
+			final DoubleClosure e1 = closureOfDouble(((MultiplicationExpression) expression).getE1());
+			final DoubleClosure e2 = closureOfDouble(((MultiplicationExpression) expression).getE2());
+			if (e1 instanceof Constant && e2 instanceof Constant)
+				return new Constant(((Constant) e2).value * ((Constant) e1).value);
+			return new DoubleClosure(){
+				@Override
+				public double evaluate(Ship ExecutingShip, Function ExecutingFunction) throws ClassNotFoundException{
+					return e2.evaluate(ExecutingShip, ExecutingFunction) * e1.evaluate(ExecutingShip, ExecutingFunction);
+				}
+			};
+		}
+		if (expression instanceof SqrtExpression){
+			final DoubleClosure e = closureOfDouble(((SqrtExpression) expression).getE());
+			if (e instanceof Constant)
+				return new Constant(Math.sqrt(((Constant) e).value));
+			return new DoubleClosure(){
+				@Override
+				public double evaluate(Ship ExecutingShip, Function ExecutingFunction) throws ClassNotFoundException{
+					return Math.sqrt(e.evaluate(ExecutingShip, ExecutingFunction));
+				}
+			};
+		}
+		if (expression instanceof ChangeSignExpression){
+			final DoubleClosure e = closureOfDouble(((ChangeSignExpression) expression).getExpression());
+			if (e instanceof Constant)
+				return new Constant(-((Constant) e).value);
+			return new DoubleClosure(){
+				@Override
+				public double evaluate(Ship ExecutingShip, Function ExecutingFunction) throws ClassNotFoundException{
+					return -e.evaluate(ExecutingShip, ExecutingFunction);
+				}
+			};
+		}
+		if (expression instanceof GetDirectionExpression){
+			return new DoubleClosure(){
+				@Override
+				public double evaluate(Ship ExecutingShip, Function ExecutingFunction){
+					return ExecutingShip.getOrientation();
+				}
+			};
+		}
+		if (expression instanceof GetXExpression){
+			return new EntityProperty(((GetXExpression) expression).getE()){
+				@Override
+				protected double get(RoundEntity entity){
+					return entity.getxPosition();
+				}
+			};
+		}
+		if (expression instanceof GetYExpression){
+			return new EntityProperty(((GetYExpression) expression).getE()){
+				@Override
+				protected double get(RoundEntity entity){
+					return entity.getyPosition();
+				}
+			};
+		}
+		if (expression instanceof GetVXExpression){
+			return new EntityProperty(((GetVXExpression) expression).getE()){
+				@Override
+				protected double get(RoundEntity entity){
+					return entity.getxVelocity();
+				}
+			};
+		}
+		if (expression instanceof GetVYExpression){
+			return new EntityProperty(((GetVYExpression) expression).getE()){
+				@Override
+				protected double get(RoundEntity entity){
+					return entity.getyVelocity();
+				}
+			};
+		}
+		if (expression instanceof GetRadiusExpression){
+			return new EntityProperty(((GetRadiusExpression) expression).getE()){
+				@Override
+				protected double get(RoundEntity entity){
+					return entity.getRadius();
+				}
+			};
+		}
+		return new DoubleClosure(){
+			@Override
+			public double evaluate(Ship ExecutingShip, Function ExecutingFunction) throws ClassNotFoundException{
+				return (Double) expression.evaluate(ExecutingShip, ExecutingFunction);
+			}
+		};
+	}
+
+	/**
+	 * Return a tree of closures evaluating to the same boolean as the given expression.
+	 */
+	private static BooleanClosure closureOfBoolean(final Expression<?> expression){
+		if (expression instanceof LessThanExpression){
+			final DoubleClosure e1 = closureOfDouble(((LessThanExpression) expression).getE1());
+			final DoubleClosure e2 = closureOfDouble(((LessThanExpression) expression).getE2());
+			return new BooleanClosure(){
+				@Override
+				public boolean evaluate(Ship ExecutingShip, Function ExecutingFunction) throws ClassNotFoundException{
+					return e1.evaluate(ExecutingShip, ExecutingFunction) < e2.evaluate(ExecutingShip, ExecutingFunction);
+				}
+			};
+		}
+		if (expression instanceof LogicalNegationExpression){
+			final BooleanClosure e = closureOfBoolean(((LogicalNegationExpression) expression).getExpression());
+			return new BooleanClosure(){
+				@Override
+				public boolean evaluate(Ship ExecutingShip, Function ExecutingFunction) throws ClassNotFoundException{
+					return !e.evaluate(ExecutingShip, ExecutingFunction);
+				}
+			};
+		}
+		return new BooleanClosure(){
+			@Override
+			public boolean evaluate(Ship ExecutingShip, Function ExecutingFunction) throws ClassNotFoundException{
+				return (Boolean) expression.evaluate(ExecutingShip, ExecutingFunction);
+			}
+		};
+	}
+}
@@ -1,9 +1,12 @@
 package asteroids.model.Programs;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import asteroids.model.Program;
+import asteroids.model.ProgramEvent;
 import asteroids.part3.programs.SourceLocation;
 
 public class Function{
@@ -12,11 +15,33 @@ public class Function{
 	private String functionname;
 	private Statement body;
 	
-	private boolean returnReached = false;
-	private Expression<?> ReturnValue;	
 	private Program program;
-	private HashMap <String, Expression<?>> parameters = new HashMap<>();
-	// Map with parameters belonging to this function.
+	private int nbParameters = 0;
+	// The variables assigned in the body of this function are local to it, each with a slot in the frame of a call.
+	private Map<String, Integer> variableSlots = new HashMap<>();
+	
+	// Activation frame of a single call of a function, holding the values of its arguments, one slot per parameter,
+	// the values of its local variables and its return value. Each call pushes a frame on top of the frame of
+	// the call it interrupts, so recursive calls do not overwrite the arguments and variables of their callers.
+	private static final class Frame {
+		private final Object[] arguments;
+		private Object[] variables;
+		private final Frame caller;
+		private boolean returnReached = false;
+		private Object returnValue;
+		
+		private Frame(Object[] arguments, Object[] variables, Frame caller) {
+			this.arguments = arguments;
+			this.variables = variables;
+			this.caller = caller;
+		}
+	}
+	
+	// The frame of the innermost call, a frame without arguments if this function is not being executed.
+	private Frame frame = new Frame(new Object[0], new Object[0], null);
+	
+	// The body of this function compiled to a generated JVM class, null if the body is executed through the tree.
+	private BytecodeCompiler.CompiledBody compiledBody = null;
 	
 	public Function(String functionName, Statement body, SourceLocation sourceLocation) {
 		setSourceLocation(sourceLocation);
@@ -26,16 +51,56 @@ public class Function{
 		body.setProgram(this.getProgram());
 	}
 	
-	public Expression<?> execute(List<Expression<?>> actualArgs) throws ClassNotFoundException{	
-		for(int i = 1; i <= actualArgs.size(); i++){
-			this.getParameters().put("$" + Integer.toString(i), (Expression<?>)actualArgs.toArray()[i-1]);
+	// The arguments are the values of the actual arguments, evaluated by the caller.
+	public Object execute(Object[] actualArgs) throws ClassNotFoundException{	
+		ProgramEvent event = ProgramEvent.isRecorded()
+				? new ProgramEvent(this.getFunctionname(), (this.getProgram() == null) ? null : this.getProgram().getShip()) : null;
+		if (event != null)
+			event.begin();
+		if (actualArgs.length < this.getNbParameters())
+			throw new IllegalArgumentException("Function " + this.getFunctionname() + " reads " + this.getNbParameters()
+					+ " parameters, but is called with " + actualArgs.length + " arguments");
+		// A compiled body keeps the arguments and variables of the call in its own JVM frame.
+		Object returnValue = (compiledBody != null)
+				? compiledBody.execute((this.getProgram() == null) ? null : this.getProgram().getShip(), this, actualArgs)
+				: this.interpret(actualArgs);
+		if (event != null && event.shouldCommit()) {
+			event.setNbArguments(actualArgs.length);
+			if (this.getProgram() != null)
+				event.setTimeLeft(this.getProgram().getExecuteTime());
+			event.commit();
 		}
-		while(!this.getReturnReached()){
+		return returnValue;
+	}
+	// Function execution always ends with a return.
+	
+	// Execute the body through the tree, in a new activation frame.
+	private Object interpret(Object[] actualArgs) throws ClassNotFoundException {
+		Frame frame = new Frame(actualArgs, new Object[variableSlots.size()], this.frame);
+		this.frame = frame;
+		try {
 			this.getBody().execute();
+			if (!this.getReturnReached())
+				throw new IllegalStateException("Function " + this.getFunctionname() + " ends without a return");
 		}
-		return this.getReturnValue();
+		catch (ExecutionSuspendedException exc) {
+			// A function call is evaluated as a whole, so its body cannot be suspended halfway.
+			throw new IllegalStateException("Function " + this.getFunctionname() + " has no time left for an action");
+		}
+		finally {
+			this.frame = frame.caller;
+		}
+		return frame.returnValue;
+	}
+	
+	// Check whether the body of this function runs as a generated JVM class.
+	public boolean isCompiled() {
+		return compiledBody != null;
+	}
+	
+	void setCompiledBody(BytecodeCompiler.CompiledBody compiledBody) {
+		this.compiledBody = compiledBody;
 	}
-	// Function execution always ends with a return.
 	
 	public Program getProgram() {
 		return this.program;
@@ -69,27 +134,69 @@ public class Function{
 		this.functionname = functionname;
 	}
 	
-	public HashMap <String, Expression<?>> getParameters() {
-		return parameters;
+	public Object getArgument(int index) {
+		return frame.arguments[index];
+	}
+
+	public boolean hasVariable(String name) {
+		return variableSlots.containsKey(name);
+	}
+
+	public int getVariableSlot(String name) throws IllegalArgumentException {
+		Integer slot = variableSlots.get(name);
+		if (slot == null)
+			throw new IllegalArgumentException("Undefined variable " + name + " in function " + this.getFunctionname());
+		return slot;
+	}
+
+	// Return the slot of the given local variable, adding a slot to the frames of later calls if it has none yet.
+	public int declareVariable(String name) {
+		Integer slot = variableSlots.get(name);
+		if (slot == null) {
+			slot = variableSlots.size();
+			variableSlots.put(name, slot);
+		}
+		return slot;
+	}
+
+	// The local variables of the innermost call.
+	public Object getVariable(int slot) {
+		return (slot < frame.variables.length) ? frame.variables[slot] : null;
+	}
+
+	public void setVariable(int slot, Object value) {
+		if (slot >= frame.variables.length)
+			// Declared while this call was running, e.g. by an assignment executed on its own.
+			frame.variables = Arrays.copyOf(frame.variables, variableSlots.size());
+		frame.variables[slot] = value;
+	}
+
+	// The number of local variables of this function.
+	int getNbVariables() {
+		return variableSlots.size();
+	}
+
+	public int getNbParameters() {
+		return nbParameters;
 	}
 
-	public void setParameters(HashMap <String, Expression<?>> parameters) {
-		this.parameters = parameters;
+	public void setNbParameters(int nbParameters) {
+		this.nbParameters = nbParameters;
 	}
 	
 	public boolean getReturnReached() {
-		return this.returnReached;
+		return this.frame.returnReached;
 	}
 
 	public void setReturnReached(boolean returnReached) {
-		this.returnReached = returnReached;
+		this.frame.returnReached = returnReached;
 	}
 
-	public Expression<?> getReturnValue() {
-		return ReturnValue;
+	public Object getReturnValue() {
+		return this.frame.returnValue;
 	}
 
-	public void setReturnValue(Expression<?> returnValue) {
-		ReturnValue = returnValue;
+	public void setReturnValue(Object returnValue) {
+		this.frame.returnValue = returnValue;
 	}
 }
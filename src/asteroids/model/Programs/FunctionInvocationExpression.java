@@ -5,11 +5,13 @@ import java.util.List;
 import asteroids.model.Ship;
 import asteroids.part3.programs.SourceLocation;
 
-public class FunctionInvocationExpression implements Expression<Expression<?>> {
+public class FunctionInvocationExpression implements Expression<Object> {
 	
 	private SourceLocation sourceLocation;
 	private String functionName;
 	private List<Expression<?>> actualArgs;
+	private Function target;
+	// The called function, bound when the program is resolved.
 	
 	public FunctionInvocationExpression(String functionName, List<Expression<?>> actualArgs, SourceLocation sourceLocation) {
 		setSourceLocation(sourceLocation);
@@ -19,13 +21,19 @@ public class FunctionInvocationExpression implements Expression<Expression<?>> {
 	// Wat kan actual arguments allemaal zijn?
 
 	@Override
-	public Expression<?> evaluate(Ship ExecutingShip, Function ExecutingFunction) throws ClassNotFoundException {
+	public Object evaluate(Ship ExecutingShip, Function ExecutingFunction) throws ClassNotFoundException {
 //		Statement functionBody = ExecutingShip.getProgram().getFunctionsMap().get(functionName);
 //		return functionBody.execute();
+		// The arguments are evaluated by the caller, before the called function gets its frame.
+		Object[] arguments = new Object[this.getActualArgs().size()];
+		for (int i = 0; i < arguments.length; i++)
+			arguments[i] = this.getActualArgs().get(i).evaluate(ExecutingShip, ExecutingFunction);
+		if (target != null)
+			return target.execute(arguments);
 		List<Function> AllFunctions = ExecutingShip.getProgram().getFunctions();
 		for(Function function: AllFunctions){
 			if (function.getFunctionname() == this.getFunctionName())
-				return function.execute(this.getActualArgs());
+				return function.execute(arguments);
 				// Moet hier effectief return staan?				
 		}
 		return null;
@@ -47,6 +55,21 @@ public class FunctionInvocationExpression implements Expression<Expression<?>> {
 
 	public void setFunctionName(String functionName) {
 		this.functionName = functionName;
+		this.target = null;
+	}
+
+	// Call the bound function with the given values of the arguments, for callers that evaluate the arguments themselves.
+	// Public, so that the classes generated for compiled functions can call it.
+	public Object invoke(Object[] arguments) throws ClassNotFoundException {
+		return target.execute(arguments);
+	}
+
+	public Function getTarget() {
+		return target;
+	}
+
+	void setTarget(Function target) {
+		this.target = target;
 	}
 
 	public List<Expression<?>> getActualArgs() {
@@ -6,8 +6,11 @@ import asteroids.part3.programs.SourceLocation;
 public class IfThenElseStatement extends Statement{
 	
 	private Expression<? extends Boolean> condition;
+	private ExpressionCompiler.BooleanClosure compiledCondition;
 	private Statement ifBody;
 	private Statement elseBody;
+	// The resume point of an if statement is 1 if its if body was suspended and 2 if its else body was,
+	// so the condition is not evaluated again when resuming.
 	
 	public IfThenElseStatement(Expression<? extends Boolean> condition, Statement ifBody, Statement elseBody, SourceLocation sourceLocation) {
 		super(sourceLocation);
@@ -22,13 +25,16 @@ public class IfThenElseStatement extends Statement{
 	public void execute() throws ClassNotFoundException {
 		Function ExecutingFunction = this.getFunction();
 		Ship ExecutingShip = this.getProgram().getShip();
-		if (this.getCondition().evaluate(ExecutingShip, ExecutingFunction))
-			this.getIfBody().execute();
-
-		else
-			// Else body optional
-			if (this.getElseBody() != null)
-				this.getElseBody().execute();			
+		int branch = this.getResumePoint();
+		if (branch == 0)
+			branch = this.compiledCondition.evaluate(ExecutingShip, ExecutingFunction) ? 1 : 2;
+		Statement body = (branch == 1) ? this.getIfBody() : this.getElseBody();
+		// Else body optional
+		if (body != null) {
+			this.setResumePoint(branch);
+			body.execute();
+			this.setResumePoint(0);
+		}
 	}
 
 	public Statement getElseBody() {
@@ -53,6 +59,7 @@ public class IfThenElseStatement extends Statement{
 
 	public void setCondition(Expression<? extends Boolean> condition) {
 		this.condition = condition;
+		this.compiledCondition = ExpressionCompiler.compileBoolean(condition);
 	}
 
 }
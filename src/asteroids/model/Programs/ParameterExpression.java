@@ -3,9 +3,10 @@ package asteroids.model.Programs;
 import asteroids.model.Ship;
 import asteroids.part3.programs.SourceLocation;
 
-public class ParameterExpression implements Expression<Expression<?>> {
+public class ParameterExpression implements Expression<Object> {
 	
 	private String parameterName;
+	private int index;
 	private SourceLocation sourceLocation;
 	
 	public ParameterExpression(String parameterName, SourceLocation sourceLocation) {
@@ -14,10 +15,8 @@ public class ParameterExpression implements Expression<Expression<?>> {
 	}
 
 	@Override
-	public Expression<?> evaluate(Ship ExecutingShip, Function ExecutingFunction) throws ClassNotFoundException {
-		return ExecutingFunction.getParameters().get(parameterName);
-		// Verwachten ze de return van de eigenlijke value of van de expression? .evaluate(ExecutingShip, ExecutingFunction) of niet?
-		// Indien toch value: werk met enumeratie Type, en casting
+	public Object evaluate(Ship ExecutingShip, Function ExecutingFunction) throws ClassNotFoundException {
+		return ExecutingFunction.getArgument(index);
 	}
 
 	public String getParameterName() {
@@ -26,6 +25,12 @@ public class ParameterExpression implements Expression<Expression<?>> {
 
 	public void setParameterName(String parameterName) {
 		this.parameterName = parameterName;
+		this.index = Integer.parseInt(parameterName.substring(1)) - 1;
+	}
+
+	// The index of this parameter in the frame of the executing function, $1 having index 0.
+	public int getIndex() {
+		return index;
 	}
 
 	public SourceLocation getSourceLocation() {
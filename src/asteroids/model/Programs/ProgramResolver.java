@@ -0,0 +1,176 @@
+package asteroids.model.Programs;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import asteroids.model.Program;
+
+/**
+ * A class resolving the names used by a program before it is executed.
+ * Every variable assigned in the body of the program gets a fixed slot in the variable frame of that program,
+ * every variable assigned in the body of a function a fixed slot in the frames of the calls of that function,
+ * and every read of a variable or a parameter is bound to its slot, so executing the program never looks
+ * a name up. A function reads its own variable if it assigns one with the given name, and the variable
+ * of the program otherwise. Reads of variables that are never assigned, of parameters outside a function body and
+ * calls of functions that are not defined are reported instead. Each call is bound to the function it calls,
+ * and each statement to the program and the function it belongs to. If the bytecode backend is enabled,
+ * the functions are then compiled to generated JVM classes.
+ *
+ * @version 1.0
+ *
+ * @author Amber Van Camp & Jasper Vanmeerbeeck
+ */
+public final class ProgramResolver {
+
+	private ProgramResolver(Program program){
+		this.program = program;
+	}
+
+	/**
+	 * The program being resolved.
+	 */
+	private final Program program;
+
+	/**
+	 * Resolve all names used by the given program.
+	 *
+	 * @param 	program
+	 * 			The program to resolve.
+	 * @throws	IllegalArgumentException
+	 * 			The program reads a variable it never assigns, reads a parameter outside a function body
+	 * 			or calls a function it does not define.
+	 */
+	public static void resolve(Program program) throws IllegalArgumentException{
+		ProgramResolver resolver = new ProgramResolver(program);
+		resolver.walk(program.getBody(), null);
+		Map<String, Function> functionsByName = new HashMap<String, Function>();
+		for (Function function : program.getFunctions()){
+			if (!functionsByName.containsKey(function.getFunctionname()))
+				functionsByName.put(function.getFunctionname(), function);
+			function.setNbParameters(0);
+			resolver.walk(function.getBody(), function);
+		}
+		for (AssignmentStatement assignment : resolver.assignments){
+			String name = assignment.getVariableName();
+			Function function = assignment.getFunction();
+			assignment.setSlot((function != null) ? function.declareVariable(name) : program.declareVariable(name));
+		}
+		for (int i = 0; i < resolver.expressions.size(); i++){
+			Expression<?> expression = resolver.expressions.get(i);
+			Function function = resolver.functions.get(i);
+			if (expression instanceof VariableExpression){
+				String name = ((VariableExpression) expression).getVariableName();
+				if (function != null && function.hasVariable(name))
+					((VariableExpression) expression).setSlot(function.getVariableSlot(name), true);
+				else if (program.hasVariable(name))
+					((VariableExpression) expression).setSlot(program.getVariableSlot(name), false);
+				else
+					throw new IllegalArgumentException("Undefined variable " + name);
+			}
+			else if (expression instanceof ParameterExpression){
+				ParameterExpression parameter = (ParameterExpression) expression;
+				if (function == null)
+					throw new IllegalArgumentException("Parameter " + parameter.getParameterName() + " outside a function body");
+				function.setNbParameters(Math.max(function.getNbParameters(), parameter.getIndex()+1));
+			}
+			else {
+				FunctionInvocationExpression call = (FunctionInvocationExpression) expression;
+				Function target = functionsByName.get(call.getFunctionName());
+				if (target == null)
+					throw new IllegalArgumentException("Undefined function " + call.getFunctionName());
+				call.setTarget(target);
+			}
+		}
+		for (Function function : program.getFunctions())
+			function.setCompiledBody(ExpressionCompiler.isBytecodeEnabled() ? BytecodeCompiler.compileFunction(function) : null);
+	}
+
+	/**
+	 * The assignments of the program, in the order they were met.
+	 */
+	private final List<AssignmentStatement> assignments = new ArrayList<AssignmentStatement>();
+
+	/**
+	 * The variables, parameters and function calls of the program, with the function enclosing each of them.
+	 */
+	private final List<Expression<?>> expressions = new ArrayList<Expression<?>>();
+	private final List<Function> functions = new ArrayList<Function>();
+
+	private void walk(Statement statement, Function function){
+		if (statement != null){
+			// The statements keep the program and function they run in, so that they can be suspended and resumed.
+			statement.setProgram(this.program);
+			statement.setFunction(function);
+		}
+		if (statement instanceof AssignmentStatement){
+			this.assignments.add((AssignmentStatement) statement);
+			this.walk(((AssignmentStatement) statement).getValue(), function);
+		}
+		else if (statement instanceof BlockStatement){
+			for (Statement nested : ((BlockStatement) statement).getStatements())
+				this.walk(nested, function);
+		}
+		else if (statement instanceof WhileStatement){
+			this.walk(((WhileStatement) statement).getCondition(), function);
+			this.walk(((WhileStatement) statement).getBody(), function);
+		}
+		else if (statement instanceof IfThenElseStatement){
+			this.walk(((IfThenElseStatement) statement).getCondition(), function);
+			this.walk(((IfThenElseStatement) statement).getIfBody(), function);
+			this.walk(((IfThenElseStatement) statement).getElseBody(), function);
+		}
+		else if (statement instanceof PrintStatement)
+			this.walk(((PrintStatement) statement).getValue(), function);
+		else if (statement instanceof ReturnStatement)
+			this.walk(((ReturnStatement) statement).getValue(), function);
+		else if (statement instanceof TurnStatement)
+			this.walk(((TurnStatement) statement).getAngle(), function);
+	}
+
+	private void walk(Expression<?> expression, Function function){
+		if (expression instanceof VariableExpression || expression instanceof ParameterExpression){
+			this.expressions.add(expression);
+			this.functions.add(function);
+		}
+		else if (expression instanceof FunctionInvocationExpression){
+			this.expressions.add(expression);
+			this.functions.add(function);
+			for (Expression<?> argument : ((FunctionInvocationExpression) expression).getActualArgs())
+				this.walk(argument, function);
+		}
+		else if (expression instanceof AdditionExpression){
+			this.walk(((AdditionExpression) expression).getE1(), function);
+			this.walk(((AdditionExpression) expression).getE2(), function);
+		}
+		else if (expression instanceof MultiplicationExpression){
+			this.walk(((MultiplicationExpression) expression).getE1(), function);
+			this.walk(((MultiplicationExpression) expression).getE2(), function);
+		}
+		else if (expression instanceof LessThanExpression){
+			this.walk(((LessThanExpression) expression).getE1(), function);
+			this.walk(((LessThanExpression) expression).getE2(), function);
+		}
+		else if (expression instanceof EqualToExpression){
+			this.walk(((EqualToExpression) expression).getE1(), function);
+			this.walk(((EqualToExpression) expression).getE2(), function);
+		}
+		else if (expression instanceof SqrtExpression)
+			this.walk(((SqrtExpression) expression).getE(), function);
+		else if (expression instanceof ChangeSignExpression)
+			this.walk(((ChangeSignExpression) expression).getExpression(), function);
+		else if (expression instanceof LogicalNegationExpression)
+			this.walk(((LogicalNegationExpression) expression).getExpression(), function);
+		else if (expression instanceof GetXExpression)
+			this.walk(((GetXExpression) expression).getE(), function);
+		else if (expression instanceof GetYExpression)
+			this.walk(((GetYExpression) expression).getE(), function);
+		else if (expression instanceof GetVXExpression)
+			this.walk(((GetVXExpression) expression).getE(), function);
+		else if (expression instanceof GetVYExpression)
+			this.walk(((GetVYExpression) expression).getE(), function);
+		else if (expression instanceof GetRadiusExpression)
+			this.walk(((GetRadiusExpression) expression).getE(), function);
+	}
+}
@@ -10,6 +10,7 @@ public class ReturnStatement extends Statement{
 	
 	public ReturnStatement(Expression<?> value, SourceLocation sourceLocation) {
 		super(sourceLocation);
+		setValue(value);
 	}
 	
 	@Override
@@ -17,8 +18,7 @@ public class ReturnStatement extends Statement{
 		// Effective return happens in Function.
 		Function ExecutingFunction = this.getFunction();
 		Ship ExecutingShip = this.getProgram().getShip();		
-		ExecutingFunction.setReturnValue(this.getValue());
-		// .evaluate(ExecutingShip, ExecutingFunction)
+		ExecutingFunction.setReturnValue(this.getValue().evaluate(ExecutingShip, ExecutingFunction));
 		ExecutingFunction.setReturnReached(true);
 	}
 	// Werken met klasse Optional?
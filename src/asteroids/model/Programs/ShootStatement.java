@@ -10,12 +10,11 @@ public class ShootStatement extends ActionStatement{
 
 	@Override
 	public void execute() {
-		while(this.getProgram().getExecuteTime() < 0.2){
-			;
-			// Put on hold.
-		}
+		this.suspendUnlessTimeLeft();
 		this.getProgram().getShip().fireBullet();
-		this.getProgram().setExecuteTime(this.getProgram().getExecuteTime()-0.2);
+		if (this.getJournal() != null)
+			this.getJournal().recordFire(this.getProgram().getShip());
+		this.getProgram().setExecuteTime(this.getProgram().getExecuteTime()-DURATION);
 	}
 
 }
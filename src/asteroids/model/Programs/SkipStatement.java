@@ -10,11 +10,8 @@ public class SkipStatement extends ActionStatement{
 
 	@Override
 	public void execute() {
-		while(this.getProgram().getExecuteTime() < 0.2){
-			;
-			// Put on hold.
-		}
-		this.getProgram().setExecuteTime(this.getProgram().getExecuteTime()-0.2);
+		this.suspendUnlessTimeLeft();
+		this.getProgram().setExecuteTime(this.getProgram().getExecuteTime()-DURATION);
 	}
 	// Zal dit zoals we willen effectief niets doen?
 
@@ -8,6 +8,8 @@ public abstract class Statement {
 	private SourceLocation sourceLocation;
 	private Program program;
 	private Function function = null;
+	private int resumeSlot = -1;
+	// The slot of the resume point of this statement in the execution state of its program, -1 if it has none yet.
 	
 	public Statement(SourceLocation sourceLocation){
 		this.setSourceLocation(sourceLocation);
@@ -19,6 +21,7 @@ public abstract class Statement {
 
 	public void setProgram(Program program) {
 		this.program = program;
+		this.resumeSlot = -1;
 	}
 
 	public SourceLocation getSourceLocation() {
@@ -31,6 +34,31 @@ public abstract class Statement {
 	
 	public abstract void execute() throws ClassNotFoundException;
 
+	// Return the point where the execution of this statement was suspended, 0 if it was not suspended.
+	// Statements of a function body are never suspended, a function call is evaluated as a whole,
+	// so they keep no resume point and recursive calls cannot overwrite each other's.
+	protected int getResumePoint() {
+		if (this.getFunction() != null)
+			return 0;
+		if (resumeSlot < 0)
+			resumeSlot = this.getProgram().declareResumePoint();
+		return this.getProgram().getResumePoint(resumeSlot);
+	}
+
+	// Record the point this statement has reached, so a suspended execution resumes there.
+	protected void setResumePoint(int point) {
+		if (this.getFunction() != null)
+			return;
+		if (resumeSlot < 0)
+			resumeSlot = this.getProgram().declareResumePoint();
+		this.getProgram().setResumePoint(resumeSlot, point);
+	}
+
+	// Check whether this statement is part of a function body whose return has been reached.
+	protected boolean isReturning() {
+		return this.getFunction() != null && this.getFunction().getReturnReached();
+	}
+
 	public Function getFunction() {
 		return function;
 	}
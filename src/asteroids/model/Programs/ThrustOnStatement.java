@@ -10,12 +10,11 @@ public class ThrustOnStatement extends ActionStatement{
 
 	@Override
 	public void execute() {
-		while(this.getProgram().getExecuteTime() < 0.2){
-			;
-			// Put on hold.
-		}
+		this.suspendUnlessTimeLeft();
 		this.getProgram().getShip().thrustOn();
-		this.getProgram().setExecuteTime(this.getProgram().getExecuteTime()-0.2);
+		if (this.getJournal() != null)
+			this.getJournal().recordThrust(this.getProgram().getShip(), true);
+		this.getProgram().setExecuteTime(this.getProgram().getExecuteTime()-DURATION);
 	}
 
 }
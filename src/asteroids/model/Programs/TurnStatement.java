@@ -6,6 +6,7 @@ import asteroids.part3.programs.SourceLocation;
 public class TurnStatement extends ActionStatement{
 	
 	private Expression<Double> angle;
+	private ExpressionCompiler.DoubleClosure compiledAngle;
 	
 	public TurnStatement(Expression<Double> angle, SourceLocation location) {
 		super(location);
@@ -16,12 +17,15 @@ public class TurnStatement extends ActionStatement{
 	public void execute() throws ClassNotFoundException {
 		Function ExecutingFunction = this.getFunction();
 		Ship ExecutingShip = this.getProgram().getShip();
-		while(this.getProgram().getExecuteTime() < 0.2){
-			;
-			// Put on hold.
-		}
-		this.getProgram().getShip().turn(this.getAngle().evaluate(ExecutingShip,ExecutingFunction));
-		this.getProgram().setExecuteTime(this.getProgram().getExecuteTime()-0.2);
+		this.suspendUnlessTimeLeft();
+		double angle = this.compiledAngle.evaluate(ExecutingShip,ExecutingFunction);
+		// Ship.turn requires a valid resulting orientation, a program can ask for any angle.
+		if (!Ship.canHaveAsOrientation(ExecutingShip.getOrientation() + angle))
+			throw new IllegalArgumentException("Turn by " + angle + " to an invalid orientation");
+		this.getProgram().getShip().turn(angle);
+		if (this.getJournal() != null)
+			this.getJournal().recordTurn(ExecutingShip, angle);
+		this.getProgram().setExecuteTime(this.getProgram().getExecuteTime()-DURATION);
 	}
 
 	public Expression<Double> getAngle() {
@@ -30,6 +34,7 @@ public class TurnStatement extends ActionStatement{
 
 	public void setAngle(Expression<Double> angle) {
 		this.angle = angle;
+		this.compiledAngle = ExpressionCompiler.compileDouble(angle);
 	}
 
 }
@@ -1,13 +1,15 @@
 package asteroids.model.Programs;
 
-import java.util.HashMap;
-
+import asteroids.model.Program;
 import asteroids.model.Ship;
 import asteroids.part3.programs.SourceLocation;
 
-public class VariableExpression implements Expression<Expression<?>> {
+public class VariableExpression implements Expression<Object> {
 	
 	private String variableName;
+	private int slot = -1;
+	private boolean local = false;
+	// Whether the slot is one of the local variables of the executing function, rather than a global variable.
 	private SourceLocation location;
 	
 	public VariableExpression(String variableName, SourceLocation sourceLocation) {
@@ -16,11 +18,16 @@ public class VariableExpression implements Expression<Expression<?>> {
 	}
 	
 	@Override
-	public Expression<?> evaluate(Ship ExecutingShip, Function ExecutingFunction) throws ClassNotFoundException {
-		HashMap<String, Expression<?>> variables = ExecutingShip.getProgram().getVariables();
-		return variables.get(this.getVariableName());
-		// Verwachten ze de return van de eigenlijke value of van de expression? .evaluate(ExecutingShip, ExecutingFunction) of niet?
-		// Indien toch value: werk met enumeratie Type, en casting
+	public Object evaluate(Ship ExecutingShip, Function ExecutingFunction) throws ClassNotFoundException {
+		Program program = ExecutingShip.getProgram();
+		if (slot < 0) {
+			// Not resolved with a program, e.g. when evaluated on its own.
+			local = ExecutingFunction != null && ExecutingFunction.hasVariable(this.getVariableName());
+			slot = local ? ExecutingFunction.getVariableSlot(this.getVariableName()) : program.getVariableSlot(this.getVariableName());
+		}
+		if (local)
+			return ExecutingFunction.getVariable(slot);
+		return program.getVariable(slot);
 	}
 
 	public SourceLocation getLocation() {
@@ -39,5 +46,20 @@ public class VariableExpression implements Expression<Expression<?>> {
 
 	public void setVariableName(String variableName) {
 		this.variableName = variableName;
+		this.slot = -1;
+	}
+
+	// The slot this expression reads, -1 if it has not been resolved yet.
+	int getSlot() {
+		return slot;
+	}
+
+	boolean isLocal() {
+		return local;
+	}
+
+	void setSlot(int slot, boolean local) {
+		this.slot = slot;
+		this.local = local;
 	}
 }
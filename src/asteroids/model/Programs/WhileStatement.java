@@ -6,7 +6,9 @@ import asteroids.part3.programs.SourceLocation;
 public class WhileStatement extends Statement{
 	
 	private Expression<Boolean> condition;
+	private ExpressionCompiler.BooleanClosure compiledCondition;
 	private Statement body;
+	// The resume point of a while statement is 1 if its body was suspended, so the condition is not evaluated again when resuming.
 	
 	public WhileStatement(Expression<Boolean> condition, Statement body, SourceLocation sourceLocation) {
 		super(sourceLocation);
@@ -20,8 +22,14 @@ public class WhileStatement extends Statement{
 		Function ExecutingFunction = this.getFunction();
 		Ship ExecutingShip = this.getProgram().getShip();
 
-		while(this.getCondition().evaluate(ExecutingShip, ExecutingFunction) && !this.getProgram().getIsBreaking())
+		boolean inBody = this.getResumePoint() == 1;
+		while(inBody || (!this.isReturning() && this.compiledCondition.evaluate(ExecutingShip, ExecutingFunction)
+				&& !this.getProgram().getIsBreaking())){
+			this.setResumePoint(1);
 			this.getBody().execute();
+			this.setResumePoint(0);
+			inBody = false;
+		}
 		
 		if(this.getProgram().getIsBreaking())
 			this.getProgram().setIsBreaking(false);
@@ -50,6 +58,7 @@ public class WhileStatement extends Statement{
 
 	public void setCondition(Expression<Boolean> condition) {
 		this.condition = condition;
+		this.compiledCondition = ExpressionCompiler.compileBoolean(condition);
 	}
 
 	public Statement getBody() {
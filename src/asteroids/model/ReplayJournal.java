@@ -0,0 +1,569 @@
+package asteroids.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import be.kuleuven.cs.som.annotate.Basic;
+
+/**
+ * A class of append-only journals recording all inputs of a world, so the match played in that world
+ * can be replayed exactly: every evolve, every entity added to or removed from the world, every bullet
+ * loaded on a ship of the world and every turn, thrust and fire command, whether it comes from the facade
+ * or from the program of a ship. The seed of the random generator of the world is recorded as well.
+ *
+ * Records are encoded on the thread changing the world into a buffer, that is handed to a background writer
+ * at the end of each evolve or when it is full. The writer writes all buffers handed to it at once
+ * through a single gathering write on a file channel.
+ *
+ * The journal starts with a header holding a magic number, the format version, the width and height of
+ * the world and the seed. Each record starts with its kind. Entities are referred to by the order in which
+ * the journal first met them; the first reference to an entity is preceded by a record defining it, holding
+ * its kind, position, velocity and radius, followed by the mass, orientation and thruster state of a ship or
+ * the total traveled distance of a planetoid. All numbers are big-endian.
+ *
+ * @version 1.0
+ *
+ * @author Amber Van Camp & Jasper Vanmeerbeeck
+ */
+public class ReplayJournal {
+
+	/**
+	 * Constant registering the magic number every journal starts with, "ASTJ" in ASCII.
+	 */
+	public static final int MAGIC = 0x4153544A;
+
+	/**
+	 * Constant registering the version of the format written by this class.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * Constants registering the kind of each record.
+	 */
+	private static final byte DEFINE = 0, ADD = 1, REMOVE = 2, LOAD = 3, UNLOAD = 4, TERMINATE = 5,
+			THRUST = 6, TURN = 7, FIRE = 8, EVOLVE = 9;
+
+	/**
+	 * Constants registering the kind of each defined entity.
+	 */
+	private static final byte SHIP = 0, BULLET = 1, ASTEROID = 2, PLANETOID = 3;
+
+	/**
+	 * Constant registering the size of the buffers handed to the writer, that is far larger than any record.
+	 */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * Constant registering the largest size of a single record.
+	 */
+	private static final int MAX_RECORD_SIZE = 1+4+1+7*8+1;
+
+	/**
+	 * Initialize this new journal for the given world, writing to the file at the given path.
+	 * The random generator of the world is restarted from its seed, and the journal records all following
+	 * inputs of the world until it is closed.
+	 *
+	 * @param 	world
+	 * 			The world to record.
+	 * @param 	path
+	 * 			The path of the journal file, whose contents are replaced.
+	 * @post	| world.getJournal() == this
+	 * @throws	IllegalArgumentException
+	 * 			The world is not effective or terminated, already has a journal or already has entities.
+	 * 			| world == null || world.isTerminated() || world.getJournal() != null ||
+	 * 			|	!world.getEntities().isEmpty()
+	 * @throws	IOException
+	 * 			The file could not be opened.
+	 */
+	public ReplayJournal(World world, Path path) throws IllegalArgumentException, IOException{
+		if (world == null || world.isTerminated() || world.getJournal() != null || !world.getEntities().isEmpty())
+			throw new IllegalArgumentException();
+		this.world = world;
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		world.setRandomSeed(world.getRandomSeed());
+		this.buffer.putInt(MAGIC);
+		this.buffer.putInt(VERSION);
+		this.buffer.putDouble(world.getWidth());
+		this.buffer.putDouble(world.getHeight());
+		this.buffer.putLong(world.getRandomSeed());
+		this.writer = new Thread(new Runnable(){
+			@Override
+			public void run(){
+				write();
+			}
+		}, "ReplayJournal-writer");
+		this.writer.setDaemon(true);
+		this.writer.start();
+		world.setJournal(this);
+	}
+
+	/**
+	 * Variable referencing the world recorded by this journal.
+	 */
+	private final World world;
+
+	/**
+	 * Return the world recorded by this journal.
+	 */
+	@Basic
+	public World getWorld(){
+		return this.world;
+	}
+
+	/**
+	 * Return the journal of the world of the given entity, null if the entity is not in a world
+	 * or that world is not recorded. Bullets loaded on a ship belong to the world of that ship.
+	 *
+	 * @param 	entity
+	 * 			The entity to return the journal of.
+	 */
+	public static ReplayJournal of(RoundEntity entity){
+		if (entity instanceof Bullet && ((Bullet) entity).getShip() != null)
+			entity = ((Bullet) entity).getShip();
+		if (entity == null || entity.getWorld() == null)
+			return null;
+		return entity.getWorld().getJournal();
+	}
+
+//	All methods related to recording inputs.
+
+	/**
+	 * Map registering the number of each entity this journal has met.
+	 */
+	private final Map<RoundEntity, Integer> indices = new IdentityHashMap<RoundEntity, Integer>();
+
+	/**
+	 * Return the number of the given entity, defining it first if this journal has not met it yet.
+	 * A ship is defined together with the bullets loaded on it.
+	 */
+	private int getIndex(RoundEntity entity){
+		Integer index = this.indices.get(entity);
+		if (index != null)
+			return index;
+		index = this.indices.size();
+		this.indices.put(entity, index);
+		ByteBuffer buffer = this.reserve();
+		buffer.put(DEFINE);
+		if (entity instanceof Ship){
+			buffer.put(SHIP);
+			putKinematics(buffer, entity);
+			buffer.putDouble(((Ship) entity).getShipMass());
+			buffer.putDouble(((Ship) entity).getOrientation());
+			buffer.put((byte) (((Ship) entity).isThrusterOn() ? 1 : 0));
+			for (Bullet bullet : ((Ship) entity).getBullets())
+				this.record(LOAD, entity, bullet);
+		}
+		else if (entity instanceof Bullet){
+			buffer.put(BULLET);
+			putKinematics(buffer, entity);
+		}
+		else if (entity instanceof Asteroid){
+			buffer.put(ASTEROID);
+			putKinematics(buffer, entity);
+		}
+		else {
+			buffer.put(PLANETOID);
+			putKinematics(buffer, entity);
+			buffer.putDouble(((Planetoid) entity).getTotalTraveledDistance());
+		}
+		return index;
+	}
+
+	/**
+	 * Put the position, velocity and radius of the given entity in the given buffer.
+	 */
+	private static void putKinematics(ByteBuffer buffer, RoundEntity entity){
+		buffer.putDouble(entity.getxPosition());
+		buffer.putDouble(entity.getyPosition());
+		buffer.putDouble(entity.getxVelocity());
+		buffer.putDouble(entity.getyVelocity());
+		buffer.putDouble(entity.radius);
+	}
+
+	/**
+	 * Record an input of the given kind on the given entities.
+	 */
+	private synchronized void record(byte kind, RoundEntity first, RoundEntity second){
+		int firstIndex = this.getIndex(first);
+		int secondIndex = (second == null) ? -1 : this.getIndex(second);
+		ByteBuffer buffer = this.reserve();
+		buffer.put(kind);
+		buffer.putInt(firstIndex);
+		if (second != null)
+			buffer.putInt(secondIndex);
+	}
+
+	/**
+	 * Record that the given entity has been added to the world of this journal.
+	 */
+	public void recordAdd(RoundEntity entity){
+		this.record(ADD, entity, null);
+	}
+
+	/**
+	 * Record that the given entity has been removed from the world of this journal.
+	 */
+	public void recordRemove(RoundEntity entity){
+		this.record(REMOVE, entity, null);
+	}
+
+	/**
+	 * Record that the given bullet has been loaded on the given ship.
+	 */
+	public void recordLoad(Ship ship, Bullet bullet){
+		this.record(LOAD, ship, bullet);
+	}
+
+	/**
+	 * Record that the given bullet has been removed from the given ship.
+	 */
+	public void recordUnload(Ship ship, Bullet bullet){
+		this.record(UNLOAD, ship, bullet);
+	}
+
+	/**
+	 * Record that the given entity has been terminated from outside the world.
+	 */
+	public void recordTerminate(RoundEntity entity){
+		this.record(TERMINATE, entity, null);
+	}
+
+	/**
+	 * Record that the thruster of the given ship has been turned on or off.
+	 */
+	public synchronized void recordThrust(Ship ship, boolean on){
+		this.record(THRUST, ship, null);
+		this.buffer.put((byte) (on ? 1 : 0));
+	}
+
+	/**
+	 * Record that the given ship has turned over the given angle.
+	 */
+	public synchronized void recordTurn(Ship ship, double angle){
+		this.record(TURN, ship, null);
+		this.buffer.putDouble(angle);
+	}
+
+	/**
+	 * Record that the given ship has fired a bullet.
+	 */
+	public void recordFire(Ship ship){
+		this.record(FIRE, ship, null);
+	}
+
+	/**
+	 * Record that the world of this journal has evolved during the given duration,
+	 * and hand all records so far to the writer.
+	 */
+	synchronized void recordEvolve(double duration){
+		this.reserve().put(EVOLVE);
+		this.buffer.putDouble(duration);
+		this.handOff();
+	}
+
+//	All methods related to writing the journal.
+
+	/**
+	 * The buffer records are encoded into.
+	 */
+	private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+	/**
+	 * Queue of the buffers handed to the writer, in order.
+	 * An empty buffer asks the writer to stop.
+	 */
+	private final BlockingQueue<ByteBuffer> pendingBuffers = new LinkedBlockingQueue<ByteBuffer>();
+
+	/**
+	 * Queue of the buffers written by the writer, to be reused.
+	 */
+	private final ConcurrentLinkedQueue<ByteBuffer> freeBuffers = new ConcurrentLinkedQueue<ByteBuffer>();
+
+	/**
+	 * The channel of the journal file.
+	 */
+	private final FileChannel channel;
+
+	/**
+	 * The thread writing the buffers handed to it.
+	 */
+	private final Thread writer;
+
+	/**
+	 * The failure of the writer, null if all writes have succeeded.
+	 */
+	private volatile IOException failure = null;
+
+	/**
+	 * Variable registering whether this journal is closed.
+	 */
+	private boolean isClosed = false;
+
+	/**
+	 * Return the buffer to encode the next record into, handing the current buffer to the writer
+	 * if it can't hold another record.
+	 */
+	private ByteBuffer reserve(){
+		if (this.buffer.remaining() < 2*MAX_RECORD_SIZE)
+			this.handOff();
+		return this.buffer;
+	}
+
+	/**
+	 * Hand the records encoded so far to the writer.
+	 */
+	private void handOff(){
+		if (this.isClosed || this.buffer.position() == 0)
+			return;
+		this.buffer.flip();
+		this.pendingBuffers.add(this.buffer);
+		ByteBuffer buffer = this.freeBuffers.poll();
+		this.buffer = (buffer == null) ? ByteBuffer.allocate(BUFFER_SIZE) : buffer;
+	}
+
+	/**
+	 * Write all buffers handed to the writer, until an empty buffer is handed.
+	 */
+	private void write(){
+		List<ByteBuffer> buffers = new ArrayList<ByteBuffer>();
+		while (true){
+			try {
+				buffers.add(this.pendingBuffers.take());
+			}
+			catch (InterruptedException exc){
+				continue;
+			}
+			this.pendingBuffers.drainTo(buffers);
+			boolean stop = false;
+			int nbBuffers = 0;
+			for (ByteBuffer buffer : buffers){
+				if (!buffer.hasRemaining()){
+					stop = true;
+					break;
+				}
+				nbBuffers++;
+			}
+			ByteBuffer[] batch = buffers.subList(0, nbBuffers).toArray(new ByteBuffer[nbBuffers]);
+			try {
+				if (this.failure == null){
+					long remaining = 0;
+					for (ByteBuffer buffer : batch)
+						remaining += buffer.remaining();
+					while (remaining > 0)
+						remaining -= this.channel.write(batch);
+				}
+			}
+			catch (IOException exc){
+				this.failure = exc;
+			}
+			for (ByteBuffer buffer : batch){
+				buffer.clear();
+				this.freeBuffers.add(buffer);
+			}
+			buffers.clear();
+			if (stop)
+				return;
+		}
+	}
+
+	/**
+	 * Write all records of this journal, stop recording the world and close the journal file.
+	 *
+	 * @post	| new.getWorld().getJournal() == null
+	 * @throws	IOException
+	 * 			A record could not be written or the file could not be closed.
+	 */
+	public void close() throws IOException{
+		synchronized (this){
+			if (this.isClosed)
+				return;
+			this.handOff();
+			this.isClosed = true;
+			this.world.setJournal(null);
+		}
+		this.pendingBuffers.add(ByteBuffer.allocate(0));
+		boolean interrupted = false;
+		while (this.writer.isAlive()){
+			try {
+				this.writer.join();
+			}
+			catch (InterruptedException exc){
+				interrupted = true;
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		this.channel.close();
+		if (this.failure != null)
+			throw this.failure;
+	}
+
+//	All methods related to replaying a journal.
+
+	/**
+	 * Replay the journal in the file at the given path in a new world, with new entities.
+	 * Only inputs that succeeded are recorded, so an input that fails while replaying means the replay
+	 * no longer follows the recorded match; the replay then stops at once.
+	 * A record that was cut off at the end of the file, because the recording stopped while writing it,
+	 * is ignored.
+	 *
+	 * @param 	path
+	 * 			The path of the journal file.
+	 * @return	The world in the state at the end of the journal.
+	 * @throws	IOException
+	 * 			The file could not be read, is not a journal of a supported version or is damaged.
+	 * @throws	IOException
+	 * 			A record could not be replayed. The message holds the offset of that record in the file,
+	 * 			the cause is the failure of the replayed input.
+	 */
+	public static World replay(Path path) throws IOException{
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		ByteBuffer buffer;
+		try {
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException("Not a replay journal: " + path);
+			buffer = ByteBuffer.allocate((int) channel.size());
+			while (buffer.hasRemaining() && channel.read(buffer) >= 0)
+				;
+			buffer.flip();
+		}
+		finally {
+			channel.close();
+		}
+		if (buffer.remaining() < 4+4+8+8+8 || buffer.getInt() != MAGIC)
+			throw new IOException("Not a replay journal: " + path);
+		int version = buffer.getInt();
+		if (version != VERSION)
+			throw new IOException("Unsupported replay journal version " + version);
+		World world = new World(buffer.getDouble(), buffer.getDouble());
+		world.setRandomSeed(buffer.getLong());
+		List<RoundEntity> entities = new ArrayList<RoundEntity>();
+		while (buffer.remaining() >= MAX_RECORD_SIZE || isComplete(buffer)){
+			int offset = buffer.position();
+			try {
+				replayRecord(buffer, world, entities);
+			}
+			catch (IOException exc){
+				throw new IOException("Damaged replay journal " + path + " at record offset " + offset, exc);
+			}
+			catch (RuntimeException exc){
+				throw new IOException("Replay of " + path + " failed at record offset " + offset, exc);
+			}
+			catch (AssertionError exc){
+				throw new IOException("Replay of " + path + " failed at record offset " + offset, exc);
+			}
+		}
+		return world;
+	}
+
+	/**
+	 * Replay the next record of the given buffer in the given world, with the given entities
+	 * defined so far.
+	 */
+	private static void replayRecord(ByteBuffer buffer, World world, List<RoundEntity> entities) throws IOException{
+		byte kind = buffer.get();
+		if (kind == DEFINE){
+			entities.add(readEntity(buffer));
+			return;
+		}
+		if (kind == EVOLVE){
+			world.evolve(buffer.getDouble(), null);
+			return;
+		}
+		RoundEntity entity = getEntity(entities, buffer.getInt());
+		RoundEntity other = (kind == LOAD || kind == UNLOAD) ? getEntity(entities, buffer.getInt()) : null;
+		if (kind == ADD)
+			entity.placeInSpace(world);
+		else if (kind == REMOVE)
+			entity.removeEntityFromWorld(world);
+		else if (kind == LOAD)
+			((Ship) entity).placeBulletsInShip(Collections.singletonList((Bullet) other));
+		else if (kind == UNLOAD)
+			((Bullet) other).removeBulletFromShip((Ship) entity);
+		else if (kind == TERMINATE)
+			entity.terminate();
+		else if (kind == THRUST && buffer.get() != 0)
+			((Ship) entity).thrustOn();
+		else if (kind == THRUST)
+			((Ship) entity).thrustOff();
+		else if (kind == TURN)
+			((Ship) entity).turn(buffer.getDouble());
+		else if (kind == FIRE)
+			((Ship) entity).fireBullet();
+		else
+			throw new IOException("Unknown record kind " + kind);
+	}
+
+	/**
+	 * Check whether the given buffer holds a complete record, for the records at the end of the journal.
+	 */
+	private static boolean isComplete(ByteBuffer buffer){
+		if (!buffer.hasRemaining())
+			return false;
+		int position = buffer.position();
+		byte kind = buffer.get(position);
+		int size;
+		if (kind == DEFINE){
+			if (buffer.remaining() < 2)
+				return false;
+			byte entityKind = buffer.get(position+1);
+			size = 2+5*8 + ((entityKind == SHIP) ? 8+8+1 : (entityKind == PLANETOID) ? 8 : 0);
+		}
+		else if (kind == EVOLVE)
+			size = 1+8;
+		else if (kind == LOAD || kind == UNLOAD)
+			size = 1+4+4;
+		else if (kind == THRUST)
+			size = 1+4+1;
+		else if (kind == TURN)
+			size = 1+4+8;
+		else
+			size = 1+4;
+		return buffer.remaining() >= size;
+	}
+
+	/**
+	 * Read the entity defined by the next record of the given buffer, without its kind.
+	 */
+	private static RoundEntity readEntity(ByteBuffer buffer) throws IOException{
+		byte kind = buffer.get();
+		double x = buffer.getDouble(), y = buffer.getDouble();
+		double xVelocity = buffer.getDouble(), yVelocity = buffer.getDouble();
+		double radius = buffer.getDouble();
+		if (kind == SHIP){
+			double mass = buffer.getDouble();
+			Ship ship = new Ship(x, y, xVelocity, yVelocity, radius, buffer.getDouble(), mass);
+			if (buffer.get() != 0)
+				ship.thrustOn();
+			return ship;
+		}
+		if (kind == BULLET)
+			return new Bullet(x, y, xVelocity, yVelocity, radius);
+		if (kind == ASTEROID)
+			return new Asteroid(x, y, xVelocity, yVelocity, radius);
+		if (kind == PLANETOID)
+			return new Planetoid(x, y, xVelocity, yVelocity, radius, buffer.getDouble());
+		throw new IOException("Unknown entity kind " + kind);
+	}
+
+	/**
+	 * Return the entity with the given number.
+	 */
+	private static RoundEntity getEntity(List<RoundEntity> entities, int index) throws IOException{
+		if (index < 0 || index >= entities.size())
+			throw new IOException("Unknown entity number " + index);
+		return entities.get(index);
+	}
+}
@@ -3,6 +3,7 @@ package asteroids.model;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 
 import be.kuleuven.cs.som.annotate.*;
 
@@ -88,6 +89,29 @@ public abstract class RoundEntity {
 	 */
 	protected RoundEntity(double x, double y, double xVelocity, double yVelocity, double radius) 
 			throws IllegalArgumentException {
+		this(x, y, xVelocity, yVelocity, radius, null);
+		UnboundSpace unboundspace = new UnboundSpace();
+		this.placeInSpace(unboundspace);
+		// Round entities need to be associated with an unbound space until associated with another space.
+	}
+	
+	/**
+	 * Initialize this new round entity with given parameters as an entity of the given space,
+	 * without registering it in that space yet. The space registers it later on, together with
+	 * other new entities, through addTrustedEntities.
+	 * An unbound space only builds its indexes once they are asked for, but it still costs more
+	 * than the entity itself, so entities that are restored in bulk skip it this way.
+	 * 
+	 * @param	space
+	 * 			The space this new round entity will be added to, null if it is not added to any space.
+	 * @post	| new.getSpace() == space
+	 * @throws 	IllegalArgumentException
+	 *          | !canHaveAsPosition(y, y) || !canHaveAsRadius(radius)
+	 */
+	@Raw
+	@Model
+	RoundEntity(double x, double y, double xVelocity, double yVelocity, double radius, Space space) 
+			throws IllegalArgumentException {
 		if (!canHaveAsPosition(y, y) || !canHaveAsRadius(radius))
 			throw new IllegalArgumentException();
 		this.setPosition(x,y);
@@ -99,10 +123,7 @@ public abstract class RoundEntity {
 		this.setVelocity(xVelocity, yVelocity);
 		this.radius = radius;
 		// No setter for density because radius is a final variable
-		
-		UnboundSpace unboundspace = new UnboundSpace();
-		this.placeInSpace(unboundspace);
-		// Round entities need to be associated with an unbound space until associated with another space.
+		this.space = space;
 	}
 	
 //	All methods related to the termination of a roundentity.
@@ -129,6 +150,29 @@ public abstract class RoundEntity {
 		return this.isTerminated;
 	}
 
+//	All methods related to the identity of a round entity.
+	
+	/**
+	 * Counter handing out the identifiers of new round entities.
+	 */
+	private static final AtomicLong idCounter = new AtomicLong();
+	
+	/**
+	 * Variable registering the identifier of this round entity, unique among all round entities.
+	 */
+	private final long id = idCounter.incrementAndGet();
+	
+	/**
+	 * Return the identifier of this round entity.
+	 * Round entities created later have a larger identifier.
+	 */
+	@Basic
+	@Raw
+	@Immutable
+	public long getId(){
+		return this.id;
+	}
+
 //	All methods related to the position of a round entity.
 	
 	/**
@@ -169,6 +213,8 @@ public abstract class RoundEntity {
 	@Raw
 	@Immutable
 	public double getxPosition(){
+		if (this.columns != null)
+			return this.columns.xPositions[this.slot];
 		return this.xPosition;
 	}
 	
@@ -183,6 +229,8 @@ public abstract class RoundEntity {
 	@Raw
 	@Immutable
 	public double getyPosition(){
+		if (this.columns != null)
+			return this.columns.yPositions[this.slot];
 		return this.yPosition;
 	}
 	
@@ -226,8 +274,32 @@ public abstract class RoundEntity {
 	public void setPosition(double x, double y) throws IllegalArgumentException {
 		if (!canHaveAsPosition(x, y))
 			throw new IllegalArgumentException();
-		this.xPosition = x;
-		this.yPosition = y;	
+		this.storexPosition(x);
+		this.storeyPosition(y);
+		if (this.getSpace() != null)
+			this.getSpace().updateEntity(this);
+	}
+	
+	/**
+	 * Store the given x-coordinate, in the columns of the space of this round entity if it has any.
+	 */
+	@Raw
+	private void storexPosition(double x){
+		if (this.columns != null)
+			this.columns.xPositions[this.slot] = x;
+		else
+			this.xPosition = x;
+	}
+	
+	/**
+	 * Store the given y-coordinate, in the columns of the space of this round entity if it has any.
+	 */
+	@Raw
+	private void storeyPosition(double y){
+		if (this.columns != null)
+			this.columns.yPositions[this.slot] = y;
+		else
+			this.yPosition = y;
 	}
 		
 	
@@ -324,16 +396,125 @@ public abstract class RoundEntity {
 	@Raw
 	public void setVelocity(double xVelocity, double yVelocity){
 		if (canHaveAsVelocity(xVelocity, yVelocity)){
-			this.xVelocity = xVelocity;
-			this.yVelocity = yVelocity;
+			this.storexVelocity(xVelocity);
+			this.storeyVelocity(yVelocity);
 			
 			if (!canHaveAsSpeed(this.getSpeed())){
-				this.xVelocity = xVelocity*getMaxSpeed()/(this.getSpeed());
-				this.yVelocity = yVelocity*getMaxSpeed()/(this.getSpeed());
+				this.storexVelocity(xVelocity*getMaxSpeed()/(this.getSpeed()));
+				this.storeyVelocity(yVelocity*getMaxSpeed()/(this.getSpeed()));
 			}
+			if (this.getSpace() != null)
+				this.getSpace().updateEntity(this);
 		}
 	}
 	
+	/**
+	 * Store the given x-velocity, in the columns of the space of this round entity if it has any.
+	 */
+	@Raw
+	private void storexVelocity(double xVelocity){
+		if (this.columns != null)
+			this.columns.xVelocities[this.slot] = xVelocity;
+		else
+			this.xVelocity = xVelocity;
+	}
+	
+	/**
+	 * Store the given y-velocity, in the columns of the space of this round entity if it has any.
+	 */
+	@Raw
+	private void storeyVelocity(double yVelocity){
+		if (this.columns != null)
+			this.columns.yVelocities[this.slot] = yVelocity;
+		else
+			this.yVelocity = yVelocity;
+	}
+	
+//	All methods related to the columnar storage of the kinematic state of a round entity.
+	
+	/**
+	 * The columns holding the position and velocity of this round entity, null if it holds them itself.
+	 */
+	private KinematicColumns columns = null;
+	
+	/**
+	 * Variable registering the slot of this round entity in its columns.
+	 */
+	private int slot = -1;
+	
+	/**
+	 * Move the position and velocity of this round entity into a new slot of the given columns.
+	 * 
+	 * @param 	columns
+	 * 			The columns to hold the position and velocity of this round entity.
+	 * 
+	 * @post	The position and velocity of this round entity are unchanged.
+	 * 			| new.getPosition() == this.getPosition() && new.getVelocity() == this.getVelocity()
+	 */
+	void attachTo(KinematicColumns columns){
+		if (this.columns != null)
+			this.detachFromColumns();
+		this.slot = columns.attach(this, this.xPosition, this.yPosition, this.xVelocity, this.yVelocity);
+		this.columns = columns;
+	}
+	
+	/**
+	 * Move the position and velocity of this round entity out of its columns, if any, back into this round entity.
+	 * 
+	 * @post	The position and velocity of this round entity are unchanged.
+	 * 			| new.getPosition() == this.getPosition() && new.getVelocity() == this.getVelocity()
+	 */
+	void detachFromColumns(){
+		if (this.columns == null)
+			return;
+		this.xPosition = this.getxPosition();
+		this.yPosition = this.getyPosition();
+		this.xVelocity = this.getxVelocity();
+		this.yVelocity = this.getyVelocity();
+		KinematicColumns columns = this.columns;
+		this.columns = null;
+		columns.detach(this.slot);
+		this.slot = -1;
+	}
+	
+	/**
+	 * Set the slot of this round entity in its columns to the given slot.
+	 */
+	void setSlot(int slot){
+		this.slot = slot;
+	}
+	
+	/**
+	 * Move the position of this round entity along its velocity during the given duration,
+	 * without registering the new position in its space.
+	 * Entities may be advanced in parallel, as this only touches the state of this round entity.
+	 * 
+	 * @param 	duration
+	 * 			The duration of the movement.
+	 * 
+	 * @post	| new.getxPosition() == this.getxPosition()+this.getxVelocity()*duration
+	 * @post	| new.getyPosition() == this.getyPosition()+this.getyVelocity()*duration
+	 */
+	void advancePosition(double duration){
+		this.storexPosition(this.getxPosition()+this.getxVelocity()*duration);
+		this.storeyPosition(this.getyPosition()+this.getyVelocity()*duration);
+	}
+	
+	/**
+	 * Complete a movement of this round entity during the given duration, after its position
+	 * has been moved along its velocity, by its columns or by advancePosition.
+	 * 
+	 * @param 	duration
+	 * 			The duration of the movement.
+	 * 
+	 * @effect	The space of this round entity registers its new position.
+	 * 			| getSpace().updateEntity(this)
+	 */
+	void advanced(double duration){
+		if (this.getSpace() != null)
+			this.getSpace().updateEntity(this);
+	}
+	
 	/**
 	 * Gives the velocity of the given round entity in x-direction.
 	 * 
@@ -344,6 +525,8 @@ public abstract class RoundEntity {
 	@Raw
 	@Immutable
 	public double getxVelocity(){
+		if (this.columns != null)
+			return this.columns.xVelocities[this.slot];
 		return this.xVelocity;
 	}
 	
@@ -358,6 +541,8 @@ public abstract class RoundEntity {
 	@Raw
 	@Immutable
 	public double getyVelocity(){
+		if (this.columns != null)
+			return this.columns.yVelocities[this.slot];
 		return this.yVelocity;
 	}
 	
@@ -419,6 +604,16 @@ public abstract class RoundEntity {
 	public double getRadius() {
 		return this.radius;
 	}
+	
+	/**
+	 * Return the radius of this round entity, without any side effects on this round entity.
+	 * 
+	 * @return	| result == getRadius()
+	 */
+	@Raw
+	double getRawRadius(){
+		return this.radius;
+	}
 
 	/**
 	 * Return the lowest possible value for the radius of this round enity.
@@ -510,7 +705,7 @@ public abstract class RoundEntity {
 		else if (this.getSpace() instanceof World)
 			return (World) this.getSpace();
 		return null;
-	}
+	}
 	
 	/**
 	 * Check whether this round entity has a proper space.
@@ -592,7 +787,7 @@ public abstract class RoundEntity {
 	public void placeInSpace(Space space) throws IllegalArgumentException {
 		if ((!canHaveAsSpace(space)))
 			throw new IllegalArgumentException();
-		for (RoundEntity entity: space.entities){
+		for (RoundEntity entity: space.getEntitiesWithin(this.getxPosition(), this.getyPosition(), this.getRadius())){
 			if (this.overlap(entity))
 				throw new IllegalArgumentException();
 		}
@@ -695,14 +890,51 @@ public abstract class RoundEntity {
 	@Raw
 	public double [] getPositionAfterMoving(double duration) 
 			throws IllegalArgumentException{
+		return new double[] {this.getxPositionAfterMoving(duration), this.getyPositionAfterMoving(duration)};
+	}
+	
+	/**
+	 * Get the x-coordinate of a round entity after it's moved, given a duration.
+	 * 
+	 * @param 	duration
+	 * 			The duration of the movement.
+	 * 
+	 * @return	The first coordinate of the position after moving.
+	 * 			| result == getPositionAfterMoving(duration)[0]
+	 * @throws 	IllegalArgumentException
+	 * 			The duration is not a valid duration or the entity it is used on is already terminated.
+	 * 			| (!canHaveAsDuration(duration)) || this.isTerminated()
+	 */
+	@Raw
+	public double getxPositionAfterMoving(double duration) throws IllegalArgumentException{
+		if (!canHaveAsDuration(duration) || this.isTerminated())
+			throw new IllegalArgumentException();
+		else if (this instanceof Ship && ((Ship)this).isThrusterOn())
+			return this.getxPosition()+this.getxVelocity()*duration+((Ship)this).getAcceleration()*duration*duration/2;
+		else
+			return this.getxPosition()+this.getxVelocity()*duration;
+	}
+	
+	/**
+	 * Get the y-coordinate of a round entity after it's moved, given a duration.
+	 * 
+	 * @param 	duration
+	 * 			The duration of the movement.
+	 * 
+	 * @return	The second coordinate of the position after moving.
+	 * 			| result == getPositionAfterMoving(duration)[1]
+	 * @throws 	IllegalArgumentException
+	 * 			The duration is not a valid duration or the entity it is used on is already terminated.
+	 * 			| (!canHaveAsDuration(duration)) || this.isTerminated()
+	 */
+	@Raw
+	public double getyPositionAfterMoving(double duration) throws IllegalArgumentException{
 		if (!canHaveAsDuration(duration) || this.isTerminated())
 			throw new IllegalArgumentException();
 		else if (this instanceof Ship && ((Ship)this).isThrusterOn())
-			return new double[] {this.getPosition()[0]+this.getVelocity()[0]*duration+((Ship)this).getAcceleration()*duration*duration/2,
-					       		this.getPosition()[1]+this.getVelocity()[1]*duration+((Ship)this).getAcceleration()*duration*duration/2};
+			return this.getyPosition()+this.getyVelocity()*duration+((Ship)this).getAcceleration()*duration*duration/2;
 		else
-			return new double[] {getPosition()[0]+getVelocity()[0]*duration,
-								 getPosition()[1]+getVelocity()[1]*duration};	
+			return this.getyPosition()+this.getyVelocity()*duration;
 	}
 	
 	/**
@@ -718,12 +950,45 @@ public abstract class RoundEntity {
 	 */
 	public double [] getVelocityAfterMoving(double duration) 
 			throws IllegalArgumentException{
+		return new double[] {this.getxVelocityAfterMoving(duration), this.getyVelocityAfterMoving(duration)};
+	}
+	
+	/**
+	 * Return the velocity in x-direction of this round entity after the given time.
+	 * 
+	 * @param 	duration
+	 * 			The duration of the movement
+	 * @return	The first coordinate of the velocity after moving.
+	 * 			| result == getVelocityAfterMoving(duration)[0]
+	 * @throws 	IllegalArgumentException
+	 * 			If the given duration is not a valid duration or this entity is already terminated.
+	 * 			| !canHaveAsDuration(duration) || this.isTerminated()
+	 */
+	public double getxVelocityAfterMoving(double duration) throws IllegalArgumentException{
+		if(!canHaveAsDuration(duration) || this.isTerminated())
+			throw new IllegalArgumentException();
+		if (this instanceof Ship && ((Ship)this).isThrusterOn())
+			return this.getxVelocity()+((Ship)this).getAcceleration()*Math.cos(((Ship)this).getOrientation())*duration;
+		return this.getxVelocity();
+	}
+	
+	/**
+	 * Return the velocity in y-direction of this round entity after the given time.
+	 * 
+	 * @param 	duration
+	 * 			The duration of the movement
+	 * @return	The second coordinate of the velocity after moving.
+	 * 			| result == getVelocityAfterMoving(duration)[1]
+	 * @throws 	IllegalArgumentException
+	 * 			If the given duration is not a valid duration or this entity is already terminated.
+	 * 			| !canHaveAsDuration(duration) || this.isTerminated()
+	 */
+	public double getyVelocityAfterMoving(double duration) throws IllegalArgumentException{
 		if(!canHaveAsDuration(duration) || this.isTerminated())
 			throw new IllegalArgumentException();
 		if (this instanceof Ship && ((Ship)this).isThrusterOn())
-			return new double[] {this.getVelocity()[0]+((Ship)this).getAcceleration()*Math.cos(((Ship)this).getOrientation())*duration,
-								this.getVelocity()[1]+((Ship)this).getAcceleration()*Math.cos(((Ship)this).getOrientation())*duration};
-		return new double[] {this.getVelocity()[0],this.getVelocity()[1]};
+			return this.getyVelocity()+((Ship)this).getAcceleration()*Math.sin(((Ship)this).getOrientation())*duration;
+		return this.getyVelocity();
 	}
 	
 //	Methods concerning the differnce between 2 round entities.
@@ -752,43 +1017,67 @@ public abstract class RoundEntity {
 	}
 	
 	/**
-	 * A method that calculates the distance in x- and y-direction
+	 * A method that calculates the distance in x-direction
 	 * between the centres of the round entities.
 	 * 
 	 * @param 	other
 	 * 			The second round entity to check the distance between.
 	 * 
-	 * @return  A vector of difference between the 2 centres of the round entities in x- and y-coordinate.
-	 * 			| deltaDistance =  {other.getxPosition()-this.getxPosition(),
-	 *			| other.getyPosition()-this.getyPosition()}
-	 *
+	 * @return  The difference between the x-coordinates of the 2 centres of the round entities.
+	 * 			| result == other.getxPosition()-this.getxPosition()
 	 */
 	@Raw
 	@Immutable
-	private double [] getDeltaDistance(RoundEntity other){
-		double [] deltaDistance = {other.getxPosition()-this.getxPosition(),
-				other.getyPosition()-this.getyPosition()};
-		return deltaDistance;
+	private double getDeltaxDistance(RoundEntity other){
+		return other.getxPosition()-this.getxPosition();
+	}
+	
+	/**
+	 * A method that calculates the distance in y-direction
+	 * between the centres of the round entities.
+	 * 
+	 * @param 	other
+	 * 			The second round entity to check the distance between.
+	 * 
+	 * @return  The difference between the y-coordinates of the 2 centres of the round entities.
+	 * 			| result == other.getyPosition()-this.getyPosition()
+	 */
+	@Raw
+	@Immutable
+	private double getDeltayDistance(RoundEntity other){
+		return other.getyPosition()-this.getyPosition();
 	}
 
 	/**
-	 * A method that calculates the difference in velocity in x- and y-direction 
+	 * A method that calculates the difference in velocity in x-direction 
 	 * between two round entities.
 	 * 
 	 * @param 	other
 	 * 			The second round entity to check the difference in velocity between.
 	 * 
-	 * @return 	A vector of difference between velocity of the round entities in x- and y-coordinate.
-	 * 			| deltaVelocity = {other.getxVelocity()-this.getxVelocity(),
-	 *			| other.getyVelocity()-this.getyVelocity()};
-	 *
+	 * @return 	The difference between the velocities of the round entities in x-direction.
+	 * 			| result == other.getxVelocity()-this.getxVelocity()
+	 */	
+	@Raw
+	@Immutable
+	private double getDeltaxVelocity(RoundEntity other){
+		return other.getxVelocity()-this.getxVelocity();
+	}
+	
+	/**
+	 * A method that calculates the difference in velocity in y-direction 
+	 * between two round entities.
+	 * 
+	 * @param 	other
+	 * 			The second round entity to check the difference in velocity between.
+	 * 
+	 * @return 	The difference between the velocities of the round entities in y-direction.
+	 * 			| result == other.getyVelocity()-this.getyVelocity()
 	 */	
 	@Raw
 	@Immutable
-	private double [] getDeltaVelocity(RoundEntity other){
-		double [] deltaVelocity = {other.getxVelocity()-this.getxVelocity(),
-				other.getyVelocity()-this.getyVelocity()};
-		return deltaVelocity;
+	private double getDeltayVelocity(RoundEntity other){
+		return other.getyVelocity()-this.getyVelocity();
 	}
 	
 	/**
@@ -798,15 +1087,15 @@ public abstract class RoundEntity {
 	 * 			The second round entity to check the distance between.
 	 * 
 	 * @return	A double that gives the distance between the round entities
-	 * 			| deltaPowDistance = Math.pow(getDeltaDistance(other)[0],2)+
-	 *			|	Math.pow(getDeltaDistance(other)[1],2);
+	 * 			| deltaPowDistance = Math.pow(getDeltaxDistance(other),2)+
+	 *			|	Math.pow(getDeltayDistance(other),2);
 	 *
 	 */	
 	@Raw
 	@Immutable
 	private double getDeltaPowDistance(RoundEntity other){
-		double deltaPowDistance = Math.pow(this.getDeltaDistance(other)[0],2)+
-					Math.pow(this.getDeltaDistance(other)[1],2);
+		double deltaPowDistance = Math.pow(this.getDeltaxDistance(other),2)+
+					Math.pow(this.getDeltayDistance(other),2);
 		return deltaPowDistance;
 	}
 
@@ -818,15 +1107,15 @@ public abstract class RoundEntity {
 	 * 			The second round entity to check the square of the difference in velocity between.
 	 * 
 	 * @return	A double that gives the difference in velocity between the round entities.
-	 * 			| double deltaPowVelocity = Math.pow(getDeltaVelocity(other)[0], 2)+
-	 *			|	Math.pow(getDeltaVelocity(other)[1], 2);
+	 * 			| double deltaPowVelocity = Math.pow(getDeltaxVelocity(other), 2)+
+	 *			|	Math.pow(getDeltayVelocity(other), 2);
 	 *
 	 */	
 	@Raw
 	@Immutable
 	private double getDeltaPowVelocity(RoundEntity other){
-		double deltaPowVelocity = Math.pow(this.getDeltaVelocity(other)[0], 2)+
-					Math.pow(this.getDeltaVelocity(other)[1], 2);
+		double deltaPowVelocity = Math.pow(this.getDeltaxVelocity(other), 2)+
+					Math.pow(this.getDeltayVelocity(other), 2);
 		return deltaPowVelocity;
 	}
 	
@@ -839,15 +1128,15 @@ public abstract class RoundEntity {
 	 * 			in position and velocity between.
 	 * 
 	 * @return 	A double that gives the sum of the product of velocity- and position-difference in x-and y-coordinate.
-	 * 			| deltaDistanceVelocity = (getDeltaVelocity(other)[0]*getDeltaDistance(other)[0])+
-	 *			|	(getDeltaVelocity(other)[1]*getDeltaDistance(other)[1]);
+	 * 			| deltaDistanceVelocity = (getDeltaxVelocity(other)*getDeltaxDistance(other))+
+	 *			|	(getDeltayVelocity(other)*getDeltayDistance(other));
 	 *
 	 */		
 	@Raw
 	@Immutable
 	private double getDeltaDistanceVelocity(RoundEntity other){
-		double deltaDistanceVelocity = (this.getDeltaVelocity(other)[0]*this.getDeltaDistance(other)[0])+
-						(this.getDeltaVelocity(other)[1]*this.getDeltaDistance(other)[1]);
+		double deltaDistanceVelocity = (this.getDeltaxVelocity(other)*this.getDeltaxDistance(other))+
+						(this.getDeltayVelocity(other)*this.getDeltayDistance(other));
 		return deltaDistanceVelocity;
 	}
 	
@@ -943,6 +1232,23 @@ public abstract class RoundEntity {
 	@Raw
 	@Immutable
 	public double getTimeToCollision(RoundEntity other){
+		if (!this.canAsCollision(other) || !this.inSameSpace(other))
+			return Double.POSITIVE_INFINITY;
+		return this.getSpace().getCollisionCache().getTimeToCollision(this, other);
+	}
+	
+	/**
+	 * A method that computes the time between a collision of 2 round entities,
+	 * without looking it up in the collision cache of their space.
+	 * 
+	 * @param 	other
+	 * 			A second round entity to check if this round entity collides with.
+	 * 
+	 * @return	Returns the time until collision with the other round entity.
+	 * 			| @see implementation
+	 */
+	@Raw
+	double computeTimeToCollision(RoundEntity other){
 		if (!this.canAsCollision(other) || !this.inSameSpace(other))
 			return Double.POSITIVE_INFINITY;
 		if (this.getDeltaDistanceVelocity(other) >= 0 || getD(other) <= 0)
@@ -959,7 +1265,8 @@ public abstract class RoundEntity {
 	 * 
 	 * @return 	A vector that gives the point where the two round entities hit in x- and y-xoordinate.
 	 * 			| collisionPoint = this.getPositionAfterMoving(time)+
-	 *			|					this.getRadius()*getDeltaDistance(other)/getD(other)
+	 *			|					this.getRadius()*(other.getPositionAfterMoving(time)-this.getPositionAfterMoving(time))/
+	 *			|					(this.getRadius()+other.getRadius())
 	 * 
 	 * @return 	null if the ships will may never collide.
 	 * 			| !canAsCollision(other)
@@ -975,13 +1282,15 @@ public abstract class RoundEntity {
 			return null;
 		try{
 		double dt = this.getTimeToCollision(other);
-		double [] newDeltaDistance = 	{other.getPositionAfterMoving(dt)[0]-this.getPositionAfterMoving(dt)[0],
-										other.getPositionAfterMoving(dt)[1]-this.getPositionAfterMoving(dt)[1]}; 
-		double [] collisionPoint = {this.getPositionAfterMoving(dt)[0]+
-									this.getRadius()*newDeltaDistance[0]/
+		double xPositionThis = this.getxPositionAfterMoving(dt);
+		double yPositionThis = this.getyPositionAfterMoving(dt);
+		double xDeltaDistance = other.getxPositionAfterMoving(dt)-xPositionThis;
+		double yDeltaDistance = other.getyPositionAfterMoving(dt)-yPositionThis;
+		double [] collisionPoint = {xPositionThis+
+									this.getRadius()*xDeltaDistance/
 									(this.getRadius()+other.getRadius()),
-									this.getPositionAfterMoving(dt)[1]+
-									this.getRadius()*newDeltaDistance[1]/
+									yPositionThis+
+									this.getRadius()*yDeltaDistance/
 									(this.getRadius()+other.getRadius())};
 		// position of hit = 	position of entity after moving till contact+
 		//						(difference in centra qua x-and y direction*
@@ -1003,6 +1312,19 @@ public abstract class RoundEntity {
 	 * 			| @see implementation
 	 */	
 	public double getTimeToHitWall(){
+		if(this.isTerminated() || this.getWorld() == null )
+			return Double.POSITIVE_INFINITY;
+		return this.getSpace().getCollisionCache().getTimeToHitWall(this);
+	}
+	
+	/**
+	 * A method that computes the time for an entity to hit the wall of its world,
+	 * without looking it up in the collision cache of its world.
+	 * 
+	 * @return	the smallest possible time of hit with a wall
+	 * 			| @see implementation
+	 */
+	double computeTimeToHitWall(){
 		if(this.isTerminated() || this.getWorld() == null )
 			return Double.POSITIVE_INFINITY;
 		if (this.getxPosition() + this.getRadius() == this.getSpace().getWidth() && this.getxVelocity() > 0||
@@ -1053,22 +1375,21 @@ public abstract class RoundEntity {
 		if (this instanceof Bullet)
 			((Bullet)this).setNbWallHits( ((Bullet)this).getNbWallHits() + 1);
 		
+		double timeToHitWall = this.getTimeToHitWall();
+		double x = this.getxPositionAfterMoving(timeToHitWall);
+		double y = this.getyPositionAfterMoving(timeToHitWall);
 		// hit with the right vertical boundary of the world
-		if (this.getPositionAfterMoving(this.getTimeToHitWall())[0]+this.getRadius() == space.getWidth())
-			return new double[] {this.getPositionAfterMoving(this.getTimeToHitWall())[0]+this.getRadius(),
-								this.getPositionAfterMoving(this.getTimeToHitWall())[1]};		
+		if (x+this.getRadius() == space.getWidth())
+			return new double[] {x+this.getRadius(), y};
 		// hit with the left vertical boundary of the world 
-		else if (this.getPositionAfterMoving(this.getTimeToHitWall())[0]-this.getRadius() == 0)	
-			return new double[] {this.getPositionAfterMoving(this.getTimeToHitWall())[0]-this.getRadius(),
-							  this.getPositionAfterMoving(this.getTimeToHitWall())[1]};
+		else if (x-this.getRadius() == 0)	
+			return new double[] {x-this.getRadius(), y};
 		// hit with the upper horizontal boundary of the world
-		else if (this.getPositionAfterMoving(this.getTimeToHitWall())[1] + this.getRadius() == space.getHeight())
-			return new double[] {this.getPositionAfterMoving(this.getTimeToHitWall())[0],
-							  this.getPositionAfterMoving(this.getTimeToHitWall())[1]+this.getRadius()};
+		else if (y + this.getRadius() == space.getHeight())
+			return new double[] {x, y+this.getRadius()};
 		// hit with the lower horizontal boundary of the world
 		else
-			return new double[] {this.getPositionAfterMoving(this.getTimeToHitWall())[0],
-					this.getPositionAfterMoving(this.getTimeToHitWall())[1]-this.getRadius()};
+			return new double[] {x, y-this.getRadius()};
 		
 		}
 
@@ -1102,6 +1423,9 @@ public abstract class RoundEntity {
 	 * 			| this.setVelocity(-this.getxVelocity(), this.getyVelocity());
 	 * @effect 	If the entity hits a horizontal boundary, its y-velocity will be negated.
 	 * 			|this.setVelocity(this.getxVelocity(), -this.getyVelocity());
+	 * @note	An entity hits a boundary if it lies within 1% of its radius from that boundary and moves towards it.
+	 * 			Moving entities to the time of a collision predicted earlier leaves small rounding errors,
+	 * 			so its distance to the boundary is not exactly zero.
 	 */
 	
 	public void setVelocityAfterEntityHitWall() throws IllegalArgumentException{
@@ -1111,11 +1435,13 @@ public abstract class RoundEntity {
 		else if (this instanceof Bullet && ((Bullet)this).getNbWallHits() > ((Bullet)this).getMaxNbWallHits())
 			this.terminate();
 		else
-			if (this.getxPosition()-this.getRadius() == 0 ||
-					this.getxPosition()+this.getRadius() == this.getSpace().getWidth())
+			if (this.getxPosition()-this.getRadius() <= 0.01*this.getRadius() && this.getxVelocity() < 0 ||
+					this.getSpace().getWidth()-(this.getxPosition()+this.getRadius()) <= 0.01*this.getRadius()
+					&& this.getxVelocity() > 0)
 				this.setVelocity(-this.getxVelocity(), this.getyVelocity());
-			if (this.getyPosition()-this.getRadius() == 0 ||
-					this.getyPosition()+this.getRadius() == this.getSpace().getHeight()){
+			if (this.getyPosition()-this.getRadius() <= 0.01*this.getRadius() && this.getyVelocity() < 0 ||
+					this.getSpace().getHeight()-(this.getyPosition()+this.getRadius()) <= 0.01*this.getRadius()
+					&& this.getyVelocity() > 0){
 				this.setVelocity(this.getxVelocity(), -this.getyVelocity());
 			if (this instanceof Bullet)
 				((Bullet)this).setNbWallHits(((Bullet)this).getNbWallHits()+1);
@@ -1146,15 +1472,11 @@ public abstract class RoundEntity {
 			J = 2*other.getMass()*this.getMass()*this.getDeltaDistanceVelocity(other)/
 					( (this.getRadius()+other.getRadius())*(this.getMass()+other.getMass()));
 			
-			double JX = J*this.getDeltaDistance(other)[0]/(this.getRadius()+other.getRadius());
-			double JY = J*this.getDeltaDistance(other)[1]/(this.getRadius()+other.getRadius());
+			double JX = J*this.getDeltaxDistance(other)/(this.getRadius()+other.getRadius());
+			double JY = J*this.getDeltayDistance(other)/(this.getRadius()+other.getRadius());
 			
-			double [] VelocityThis = {(this.getVelocity()[0]+JX/this.getMass()),
-							(this.getVelocity()[1]+JY/this.getMass())};
-			double [] VelocityOther = {(other.getVelocity()[0]-JX/other.getMass()),
-					(other.getVelocity()[1]-JY/other.getMass())};
-			this.setVelocity(VelocityThis[0], VelocityThis[1]);
-			other.setVelocity(VelocityOther[0], VelocityOther[1]);
+			this.setVelocity(this.getxVelocity()+JX/this.getMass(), this.getyVelocity()+JY/this.getMass());
+			other.setVelocity(other.getxVelocity()-JX/other.getMass(), other.getyVelocity()-JY/other.getMass());
 			
 		}
 		else
@@ -1202,4 +1524,4 @@ public abstract class RoundEntity {
 	 * 			the time we want the entities to move.
 	 */
 	public abstract void move(double duration);
-}
+}
@@ -81,6 +81,26 @@ public class Ship extends RoundEntity {
 	public Ship(double x, double y, double xVelocity, double yVelocity, double radius, double orientation, 
 			double mass) throws IllegalArgumentException {
 		super(x, y, xVelocity, yVelocity, radius);
+		this.density = this.initialize(orientation, mass);
+		// No setter for density because it is final variable.
+	}
+	
+	/**
+	 * Initialize this new ship with the given parameters as an entity of the given space,
+	 * without registering it in that space yet.
+	 */
+	@Raw
+	Ship(double x, double y, double xVelocity, double yVelocity, double radius, double orientation, 
+			double mass, Space space) throws IllegalArgumentException {
+		super(x, y, xVelocity, yVelocity, radius, space);
+		this.density = this.initialize(orientation, mass);
+	}
+	
+	/**
+	 * Set the orientation and mass of this new ship, and return its density.
+	 */
+	@Raw
+	private double initialize(double orientation, double mass){
 		this.setOrientation(orientation);
 		if (!canHaveAsMass(mass)){
 			mass = 4.0/3.0*Math.PI*Math.pow(this.getRadius(),3)*MIN_DENSITY;
@@ -89,10 +109,8 @@ public class Ship extends RoundEntity {
 		
 		double density = this.getMass()/(4.0/3.0*Math.PI*Math.pow(this.getRadius(),3));
 		if (!canHaveAsDensity(density))
-			this.density = MIN_DENSITY;
-		else
-			this.density = density;
-			// No setter for density because it is final variable.
+			return MIN_DENSITY;
+		return density;
 	}
 	
 	
@@ -810,7 +828,7 @@ public class Ship extends RoundEntity {
 	 *       	|   ( (I == J) ||
 	 *       	|     (firedBullets.get(I) != firedBullets.get(J))
 	 */
-	public Set<Bullet> firedBullets = new HashSet<Bullet> ();
+	public Set<Bullet> firedBullets = new LinkedHashSet<Bullet> ();
 	
 	/**
 	 * return a random bullet  in the list of bullets fired by the ship
@@ -819,13 +837,13 @@ public class Ship extends RoundEntity {
 	 * 			| if firedBullets.size() == 0
 	 * 			| result == null
 	 * 			otherwise
-	 * 			| index = this.firedBullets.size()*Math.random();
+	 * 			| index = this.firedBullets.size()*this.getSpace().getRandom().nextDouble();
 	 * 			| result == (Bullet) firedBullets.toArray()[index]
 	 */
 	public Bullet getFiredBullet(){
 		if (firedBullets.size() == 0)
 			return null;
-		double index = this.firedBullets.size()*Math.random();
+		double index = this.firedBullets.size()*this.getSpace().getRandom().nextDouble();
 		return (Bullet) firedBullets.toArray()[(int) index];
 	}
 		
@@ -884,7 +902,27 @@ public class Ship extends RoundEntity {
 	public void move(double duration){
 		if (!canHaveAsDuration(duration))
 			throw new IllegalArgumentException();
-		setPosition(getPositionAfterMoving(duration)[0],getPositionAfterMoving(duration)[1]);
+		setPosition(getxPositionAfterMoving(duration),getyPositionAfterMoving(duration));
+	}
+	
+	/**
+	 * Complete a movement of this ship during the given duration, after its position
+	 * has been moved along its velocity.
+	 * 
+	 * @effect	If the thruster of this ship is on, the acceleration during the movement is added to its position.
+	 * 			| if (isThrusterOn())
+	 * 			|	then setPosition(getxPosition()+getAcceleration()*duration*duration/2,
+	 * 			|		getyPosition()+getAcceleration()*duration*duration/2)
+	 * @effect	Otherwise, the space of this ship registers its new position.
+	 * 			| else super.advanced(duration)
+	 */
+	@Override
+	void advanced(double duration){
+		if (this.isThrusterOn())
+			setPosition(getxPosition()+getAcceleration()*duration*duration/2,
+					getyPosition()+getAcceleration()*duration*duration/2);
+		else
+			super.advanced(duration);
 	}
 	
 	/**
@@ -914,14 +952,17 @@ public class Ship extends RoundEntity {
 		else if (other instanceof Asteroid)
 			this.terminate();
 		else if (other instanceof Planetoid){
-			double x = this.getSpace().getWidth()*(new Random().nextDouble());
-			double y = this.getSpace().getHeight()*(new Random().nextDouble());
+			double x = this.getSpace().getWidth()*this.getSpace().getRandom().nextDouble();
+			double y = this.getSpace().getHeight()*this.getSpace().getRandom().nextDouble();
 			if (!this.canHaveAsPosition(x, y))
 				this.terminate();
 			this.setPosition(x, y);
-			for (RoundEntity possibleEntityToHit : this.getSpace().getEntities()){
-				if (this.overlap(possibleEntityToHit))
+			for (RoundEntity possibleEntityToHit : this.getSpace().getEntitiesWithin(this.getxPosition(),
+					this.getyPosition(), this.getRadius())){
+				if (this.overlap(possibleEntityToHit)){
 					this.terminate();
+					break;
+				}
 			}				
 		}
 		else
@@ -942,29 +983,22 @@ public class Ship extends RoundEntity {
 	 * 			| result == null
 	 * 
 	 * @return	the ship which distance to this ship is the smallest otherwise
-	 * 			| @see implemantation
+	 * 			| result == this.getSpace().getClosestEntityOfClass(cls, this)
 	 * 
 	 * @throws ClassNotFoundException
 	 */
 		
 	public RoundEntity getClosestEntityOfClass(Class<?> cls) throws ClassNotFoundException{
-		RoundEntity shipClosest = null;
-		if (this.isTerminated() || this.getSpace().getEntityOfClass(cls).size() == 0)
-			return shipClosest;
-		double maxDistance = Double.MAX_VALUE;
-		for (RoundEntity entity : this.getSpace().getEntityOfClass(cls)){
-			double distanceBetween = this.getDistanceBetween(entity);
-			if (distanceBetween < maxDistance){
-				maxDistance = distanceBetween;
-				shipClosest = entity;
-			}
-		}
-		return shipClosest;
+		if (this.isTerminated())
+			return null;
+		return this.getSpace().getClosestEntityOfClass(cls, this);
 	}
 	
 	/**
 	 * 
 	 * a method that returns a certain entity at a random position in the entities
+	 * The entities are kept in the order they were added and the random generator of the space is seeded,
+	 * so a replay of the same game picks the same entity.
 	 * 
 	 * @return 	the round entity at the given random index
 	 * 			|this.getSpace().getEntities().toArray()[index];
@@ -977,7 +1011,7 @@ public class Ship extends RoundEntity {
 		if (this.isTerminated || this.canHaveAsSpace(this.getWorld()))
 			throw new IllegalArgumentException();
 		else{
-			double index = this.getSpace().entities.size()*Math.random();
+			double index = this.getSpace().entities.size()*this.getSpace().getRandom().nextDouble();
 			return (RoundEntity) this.getSpace().entities.toArray()[(int) index];
 		}
 	}
@@ -999,8 +1033,13 @@ public class Ship extends RoundEntity {
 	 * 
 	 * @result 	if the given program is valid, set this ship to the given program
 	 * 			| program.setShip(this);
+	 * @throws	IllegalArgumentException
+	 * 			The given program uses a name it does not define.
+	 * 			| program != null && !program.resolve()
 	 */
-	public void setProgram(Program program){
+	public void setProgram(Program program) throws IllegalArgumentException{
+		if (program != null)
+			program.resolve();
 		this.program = program;
 		if (program != null)
 			program.setShip(this);		
@@ -1025,7 +1064,16 @@ public class Ship extends RoundEntity {
 	 * 			| this.program.execute(duration)
 	 */
 	public List<Object> executeProgram(double duration) throws ClassNotFoundException{
-		return this.getProgram().execute(duration);
+		SimulationMetrics metrics = (this.getSpace() == null) ? null : this.getSpace().getMetrics();
+		if (metrics == null)
+			return this.getProgram().execute(duration);
+		long start = System.nanoTime();
+		try {
+			return this.getProgram().execute(duration);
+		}
+		finally {
+			metrics.recordProgramLatency(System.nanoTime()-start);
+		}
 	}	
 	
 	/**
@@ -0,0 +1,79 @@
+package asteroids.model;
+
+/**
+ * An interface for registries that receive the measurements of the simulation of a space.
+ * A space reports to its registry once per evolve, so a registry may be shared by several spaces
+ * and must accept reports from several threads at once.
+ *
+ * @version 1.0
+ *
+ * @author Amber Van Camp & Jasper Vanmeerbeeck
+ */
+public interface SimulationMetrics {
+
+	/**
+	 * Register that the given number of pairs of entities has been tested for a collision.
+	 *
+	 * @param 	count
+	 * 			The number of pair tests.
+	 */
+	void countPairTests(long count);
+
+	/**
+	 * Register that a collision between both given entities has been resolved.
+	 *
+	 * @param 	first
+	 * 			The first entity of the collision.
+	 * @param 	second
+	 * 			The second entity of the collision.
+	 */
+	void countCollision(RoundEntity first, RoundEntity second);
+
+	/**
+	 * Register that the given entity has bounced off a wall.
+	 *
+	 * @param 	entity
+	 * 			The entity that has bounced.
+	 */
+	void countWallBounce(RoundEntity entity);
+
+	/**
+	 * Register that the given number of entities has been moved.
+	 *
+	 * @param 	count
+	 * 			The number of moved entities.
+	 */
+	void countMovedEntities(long count);
+
+	/**
+	 * Register that the given number of bytes has been allocated by an evolve.
+	 *
+	 * @param 	bytes
+	 * 			The number of allocated bytes.
+	 */
+	void countAllocatedBytes(long bytes);
+
+	/**
+	 * Register that an evolve has taken the given number of nanoseconds.
+	 *
+	 * @param 	nanos
+	 * 			The duration of the evolve.
+	 */
+	void recordEvolveLatency(long nanos);
+
+	/**
+	 * Register that predicting the collisions of an evolve has taken the given number of nanoseconds.
+	 *
+	 * @param 	nanos
+	 * 			The time spent predicting collisions.
+	 */
+	void recordPredictionLatency(long nanos);
+
+	/**
+	 * Register that executing the program of a ship has taken the given number of nanoseconds.
+	 *
+	 * @param 	nanos
+	 * 			The duration of the execution.
+	 */
+	void recordProgramLatency(long nanos);
+}
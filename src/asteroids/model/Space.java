@@ -1,10 +1,16 @@
 package asteroids.model;
  
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
 import asteroids.part2.CollisionListener;
@@ -136,10 +142,15 @@ public abstract class Space {
 	 * 			
 	 */
 	public void setWidth(double width){
-		if (!canHaveAsWidth(width))
+		if (!canHaveAsWidth(width)){
 			this.width = maxWidth;
-		else
+		}
+		else {
 			this.width = width;
+		}
+		this.collisionCache.clear();
+		if (this.quadtree != null)
+			this.quadtree.resize(this.getWidth(), this.getHeight());
 	}
 	
 	/**
@@ -151,10 +162,15 @@ public abstract class Space {
 	 * 			
 	 */
 	public void setHeight(double height){
-		if (!canHaveAsHeight(height))
+		if (!canHaveAsHeight(height)){
 			this.height = maxHeight;
-		else
+		}
+		else {
 			this.height = height;
+		}
+		this.collisionCache.clear();
+		if (this.quadtree != null)
+			this.quadtree.resize(this.getWidth(), this.getHeight());
 	}
 	
 
@@ -186,8 +202,9 @@ public abstract class Space {
 	
 	/**
 	 * a list of all the entities that are located in this world
+	 * The entities are kept in the order they were added, so every run of the same game visits them in the same order.
 	 */
-	Set<RoundEntity> entities = new HashSet<RoundEntity>();	
+	Set<RoundEntity> entities = new LinkedHashSet<RoundEntity>();	
 	
 	/**
 	 * A method that gives the entities of this space.
@@ -197,6 +214,24 @@ public abstract class Space {
 		return entities;
 	}
 	
+	/**
+	 * An unmodifiable copy of the entities of this space, null if the entities have changed since it was made.
+	 */
+	private Set<RoundEntity> frozenEntities = null;
+	
+	/**
+	 * Return an unmodifiable set of the entities this space has now.
+	 * The set doesn't follow later changes of the entities of this space. The same set is
+	 * returned as long as no entity is added or removed, so asking it repeatedly doesn't copy.
+	 * 
+	 * @return	| result.equals(getEntities())
+	 */
+	public Set<RoundEntity> getFrozenEntities(){
+		if (this.frozenEntities == null)
+			this.frozenEntities = Collections.unmodifiableSet(new LinkedHashSet<RoundEntity>(this.entities));
+		return this.frozenEntities;
+	}
+	
 	/**
 	 * A method to check whether this space has the given entity as one of its entities.
 	 * 
@@ -262,7 +297,60 @@ public abstract class Space {
 		// This function expects that the entity is already pointing to this world.	
 		if (!canHaveAsEntity(entity) || this.hasAsEntity(entity) || (entity.getSpace() != this))
 			throw new IllegalArgumentException();					
+		this.register(entity);
+		if (this.broadPhase != null)
+			this.broadPhase.insert(entity);
+	}
+	
+	/**
+	 * Add all given entities to this space at once. Entities that do not reference this space yet
+	 * are taken out of their current space first. Unlike placing them one by one, it is not checked whether they overlap or fit the boundary of this space,
+	 * and the broad phase of this space is rebuilt once instead of being updated for each entity.
+	 * Only entities known to fit in this space together, such as those restored from a checkpoint,
+	 * may be added this way.
+	 * 
+	 * @param 	entities
+	 * 			The entities to add.
+	 * @post	| for each entity in entities:
+	 * 			|	new.hasAsEntity(entity) && (new entity).getSpace() == this
+	 * @throws	IllegalArgumentException
+	 * 			| for some entity in entities:
+	 * 			|	!canHaveAsEntity(entity) || hasAsEntity(entity) || !entity.canHaveAsSpace(this)
+	 */
+	void addTrustedEntities(Collection<? extends RoundEntity> entities) throws IllegalArgumentException{
+		for (RoundEntity entity : entities){
+			if (!canHaveAsEntity(entity) || this.hasAsEntity(entity) || !entity.canHaveAsSpace(this))
+				throw new IllegalArgumentException();
+		}
+		for (RoundEntity entity : entities){
+			if (entity.getSpace() != this){
+				entity.removeOutSpace();
+				entity.setSpace(this);
+			}
+			this.register(entity);
+		}
+		if (this.broadPhase != null)
+			this.broadPhase.rebuild(this.broadPhase.getHorizon());
+	}
+	
+	/**
+	 * Register the given entity, that already references this space, in the entities and all indices
+	 * of this space, except for its broad phase.
+	 */
+	private void register(RoundEntity entity){
 		this.entities.add(entity);
+		this.frozenEntities = null;
+		if (this.kinematicColumns != null)
+			entity.attachTo(this.kinematicColumns);
+		this.collisionCache.invalidate(entity);
+		if (this.quadtree != null)
+			this.quadtree.insert(entity);
+		if (this.nearestNeighbourGrids != null)
+			this.getNearestNeighbourGrid(entity.getClass()).insert(entity);
+		for (Map.Entry<Class<?>, Set<RoundEntity>> bucket : this.buckets.entrySet()){
+			if (bucket.getKey().isInstance(entity))
+				bucket.getValue().add(entity);
+		}
 	}
 	
 	/**
@@ -281,6 +369,38 @@ public abstract class Space {
 		if (!canHaveAsEntity(entity) || entity.getSpace() == null || !this.hasAsEntity(entity))
 			throw new IllegalArgumentException();
 		entities.remove(entity);
+		this.frozenEntities = null;
+		entity.detachFromColumns();
+		this.collisionCache.remove(entity);
+		if (this.quadtree != null)
+			this.quadtree.remove(entity);
+		if (this.nearestNeighbourGrids != null)
+			this.getNearestNeighbourGrid(entity.getClass()).remove(entity);
+		for (Set<RoundEntity> bucket : this.buckets.values())
+			bucket.remove(entity);
+		if (this.broadPhase != null)
+			this.broadPhase.remove(entity);
+	}
+	
+	/**
+	 * A method that registers that the position or velocity of the given entity has changed.
+	 * 
+	 * @param 	entity
+	 * 			The entity that has changed.
+	 * 
+	 * @post	If the entity belongs to this space, all its known collision times are forgotten
+	 * 			and it is moved to its right place in the position indices and the broad phase.
+	 */
+	void updateEntity(RoundEntity entity){
+		if (!this.hasAsEntity(entity))
+			return;
+		this.collisionCache.invalidate(entity);
+		if (this.quadtree != null)
+			this.quadtree.update(entity);
+		if (this.nearestNeighbourGrids != null)
+			this.getNearestNeighbourGrid(entity.getClass()).update(entity);
+		if (this.broadPhase != null)
+			this.broadPhase.update(entity);
 	}
 	
 	/**
@@ -295,37 +415,409 @@ public abstract class Space {
 	 * @return	The entity, if one, which is located at the given position
 	 */
 	public RoundEntity getEntityAt(Double xPosition, Double yPosition){
+		return this.getEntityAt(xPosition, yPosition, 0);
+	}
+	
+	/**
+	 * A method that returns the entity whose centre lies closest to the given position, within the given tolerance.
+	 * This query doesn't change the space, so it can be used for hit testing.
+	 * 
+	 * @param 	xPosition
+	 * 			The given x-position of the coordinate.
+	 * 
+	 * @param 	yPosition
+	 * 			The given y-position of the coordinate.
+	 * 
+	 * @param 	tolerance
+	 * 			The largest distance between the given position and the centre of the entity.
+	 * 
+	 * @return	Null if this space is terminated, or if no entity has its centre within the given tolerance.
+	 * 			Otherwise, the entity whose centre lies closest to the given position.
+	 */
+	public RoundEntity getEntityAt(double xPosition, double yPosition, double tolerance){
 		if (this.isTerminated())
 			return null;
-		this.evolve(0, null);
-		double [] position = {xPosition,yPosition};
-		return this.mapOfEntities.get(position);
-		// The function doesn't work, becaues the given position and the position of the mapped entity,
-		// doens't refer to the same adress.
+		return this.getQuadtree().getEntityAt(xPosition, yPosition, tolerance);
+	}
+	
+//	All methods related to the spatial queries of this space.
+	
+	/**
+	 * The loose quadtree indexing the entities of this space by their position,
+	 * null as long as no spatial query has been asked.
+	 */
+	private LooseQuadtree quadtree = null;
+	
+	/**
+	 * Return the loose quadtree indexing the entities of this space, building it the first time it is needed.
+	 * Every entity starts in an unbound space of its own, so most spaces are never queried.
+	 */
+	private LooseQuadtree getQuadtree(){
+		if (this.quadtree == null){
+			this.quadtree = new LooseQuadtree(this.getWidth(), this.getHeight());
+			for (RoundEntity entity : this.entities)
+				this.quadtree.insert(entity);
+		}
+		return this.quadtree;
+	}
+	
+	/**
+	 * A method that returns all entities whose circle intersects the given circle.
+	 * 
+	 * @param 	xPosition
+	 * 			The x-position of the centre of the circle.
+	 * 
+	 * @param 	yPosition
+	 * 			The y-position of the centre of the circle.
+	 * 
+	 * @param 	radius
+	 * 			The radius of the circle.
+	 * 
+	 * @return	A new list of all entities of this space whose centre lies at a distance
+	 * 			not larger than the sum of both radii from the given centre.
+	 * 			| @see implementation
+	 */
+	public List<RoundEntity> getEntitiesWithin(double xPosition, double yPosition, double radius){
+		return this.getQuadtree().getEntitiesWithin(xPosition, yPosition, radius);
+	}
+	
+	/**
+	 * A method that returns all entities that contain the given point.
+	 * 
+	 * @param 	xPosition
+	 * 			The x-position of the point.
+	 * 
+	 * @param 	yPosition
+	 * 			The y-position of the point.
+	 * 
+	 * @return	A new list of all entities of this space whose circle contains the given point.
+	 * 			| result == getEntitiesWithin(xPosition, yPosition, 0)
+	 */
+	public List<RoundEntity> getEntitiesContaining(double xPosition, double yPosition){
+		return this.getEntitiesWithin(xPosition, yPosition, 0);
+	}
+	
+	/**
+	 * A method that returns the entities that lie closest to the given point.
+	 * 
+	 * @param 	xPosition
+	 * 			The x-position of the point.
+	 * 
+	 * @param 	yPosition
+	 * 			The y-position of the point.
+	 * 
+	 * @param 	number
+	 * 			The number of entities to return.
+	 * 
+	 * @return	A new list of at most the given number of entities of this space, the closest first.
+	 * 			The distance to an entity is measured up to its boundary.
+	 */
+	public List<RoundEntity> getNearestEntities(double xPosition, double yPosition, int number){
+		return this.getQuadtree().getNearestEntities(xPosition, yPosition, number);
 	}
 	
 //	All methods related to the collisions of this space.
 	
+	/**
+	 * The cache remembering the collision times of the entities of this space.
+	 */
+	private final CollisionCache collisionCache = new CollisionCache();
+	
+	/**
+	 * Return the cache remembering the collision times of the entities of this space.
+	 */
+	CollisionCache getCollisionCache(){
+		return this.collisionCache;
+	}
+	
+	/**
+	 * The broad phase selecting the pairs of entities of this space that may collide,
+	 * based on the circle they sweep during the last evolve, null as long as no collision has been looked for.
+	 */
+	private BroadPhase broadPhase = null;
+	
+	/**
+	 * Return the broad phase of this space, building it the first time it is needed.
+	 */
+	private BroadPhase getBroadPhase(){
+		if (this.broadPhase == null){
+			if (this.isUsingSweepAndPrune())
+				this.broadPhase = new SweepAndPrune(this);
+			else
+				this.broadPhase = new CollisionGrid(this);
+			this.broadPhase.rebuild(0);
+		}
+		return this.broadPhase;
+	}
+	
+	/**
+	 * Variable registering whether this space uses sweep and prune as its broad phase.
+	 */
+	private boolean usingSweepAndPrune = false;
+	
+	/**
+	 * Check whether this space uses sweep and prune as its broad phase, instead of a uniform grid.
+	 */
+	@Basic
+	public boolean isUsingSweepAndPrune(){
+		return this.usingSweepAndPrune;
+	}
+	
+	/**
+	 * Set the broad phase of this space to sweep and prune or to a uniform grid.
+	 * Sweep and prune uses less memory than a grid if the entities are spread over long, thin regions.
+	 * 
+	 * @param 	flag
+	 * 			True to use sweep and prune, false to use a uniform grid.
+	 * 
+	 * @post	| new.isUsingSweepAndPrune() == flag
+	 */
+	public void setUsingSweepAndPrune(boolean flag){
+		if (flag == this.isUsingSweepAndPrune())
+			return;
+		this.usingSweepAndPrune = flag;
+		if (this.broadPhase == null)
+			return;
+		double horizon = this.broadPhase.getHorizon();
+		if (flag)
+			this.broadPhase = new SweepAndPrune(this);
+		else
+			this.broadPhase = new CollisionGrid(this);
+		this.broadPhase.rebuild(horizon);
+	}
+	
+	/**
+	 * Variable registering whether this space spreads the work of an evolve over multiple threads.
+	 */
+	private boolean usingParallelEvolve = false;
+	
+	/**
+	 * Check whether this space spreads the work of an evolve over multiple threads.
+	 */
+	@Basic
+	public boolean isUsingParallelEvolve(){
+		return this.usingParallelEvolve;
+	}
+	
+	/**
+	 * Let this space spread the work of an evolve over the threads of a fork/join pool, or not.
+	 * Moving the entities and predicting their collisions is done in parallel, resolving the
+	 * collisions and updating the indices of this space is not. The outcome of an evolve
+	 * is the same in both modes.
+	 * 
+	 * @param 	flag
+	 * 			True to evolve in parallel, false to evolve on a single thread.
+	 * 
+	 * @post	| new.isUsingParallelEvolve() == flag
+	 */
+	public void setUsingParallelEvolve(boolean flag){
+		this.usingParallelEvolve = flag;
+	}
+	
+	/**
+	 * Return a new array of all entities of this space.
+	 */
+	RoundEntity[] getEntityArray(){
+		return this.entities.toArray(new RoundEntity[this.entities.size()]);
+	}
+	
+	/**
+	 * Ask the radius of all planetoids of this space, terminating the planetoids that have become too small.
+	 * Afterwards, the radius of all entities can be asked from multiple threads at once.
+	 */
+	void settleRadii(){
+		for (RoundEntity planetoid : new ArrayList<RoundEntity>(this.getBucket(Planetoid.class)))
+			planetoid.getRadius();
+	}
+	
+	/**
+	 * The columns holding the positions and velocities of the entities of this space,
+	 * null if every entity holds its own position and velocity.
+	 */
+	private KinematicColumns kinematicColumns = null;
+	
+	/**
+	 * Check whether the positions and velocities of the entities of this space are stored in columns.
+	 */
+	@Basic
+	public boolean hasColumnarStorage(){
+		return this.kinematicColumns != null;
+	}
+	
+	/**
+	 * Let the positions and velocities of the entities of this space be stored in columns or
+	 * in the entities themselves.
+	 * Columns make moving all entities of a space with many entities a single loop over primitive arrays.
+	 * 
+	 * @param 	flag
+	 * 			True to store the positions and velocities in columns, false to store them in the entities.
+	 * 
+	 * @post	| new.hasColumnarStorage() == flag
+	 * @post	The positions and velocities of all entities of this space are unchanged.
+	 */
+	public void setColumnarStorage(boolean flag){
+		if (flag == this.hasColumnarStorage())
+			return;
+		if (flag){
+			this.kinematicColumns = new KinematicColumns();
+			for (RoundEntity entity : this.entities)
+				entity.attachTo(this.kinematicColumns);
+		}
+		else {
+			for (RoundEntity entity : this.entities)
+				entity.detachFromColumns();
+			this.kinematicColumns = null;
+		}
+	}
+	
+	/**
+	 * Move all entities of this space during the given duration, without looking for collisions.
+	 * 
+	 * @param 	duration
+	 * 			The duration of the movement.
+	 * 
+	 * @effect	Each entity of this space that is not terminated is moved during the given duration.
+	 * 			| for each entity in getEntities()
+	 * 			|	if (!entity.isTerminated())
+	 * 			|		then entity.move(duration)
+	 * @throws	IllegalArgumentException
+	 * 			The given duration is not a valid duration.
+	 * 			| !RoundEntity.canHaveAsDuration(duration)
+	 */
+	private void moveEntities(double duration) throws IllegalArgumentException{
+		// Moving an entity may terminate or remove an entity, so the entities are copied first.
+		int nbEntities;
+		if (this.kinematicColumns == null){
+			nbEntities = 0;
+			if (this.movedEntities.length < this.entities.size())
+				this.movedEntities = new RoundEntity[2*this.entities.size()];
+			for (RoundEntity entity : this.entities)
+				this.movedEntities[nbEntities++] = entity;
+		}
+		else {
+			nbEntities = this.kinematicColumns.size();
+			this.movedEntities = this.kinematicColumns.getEntities(this.movedEntities);
+		}
+		if (this.kinematicColumns == null && !this.isUsingParallelEvolve()){
+			for (int i = 0; i < nbEntities; i++){
+				if (!this.movedEntities[i].isTerminated())
+					this.movedEntities[i].move(duration);
+			}
+		}
+		else {
+			if (!RoundEntity.canHaveAsDuration(duration))
+				throw new IllegalArgumentException();
+			if (this.kinematicColumns == null)
+				ParallelEvolution.advance(this.movedEntities, nbEntities, duration);
+			else if (this.isUsingParallelEvolve())
+				ParallelEvolution.advance(this.kinematicColumns, duration);
+			else
+				this.kinematicColumns.advance(duration);
+			// The indices of this space are only changed on this thread, in a fixed order.
+			for (int i = 0; i < nbEntities; i++){
+				if (!this.movedEntities[i].isTerminated())
+					this.movedEntities[i].advanced(duration);
+			}
+		}
+		Arrays.fill(this.movedEntities, 0, nbEntities, null);
+		this.nbMovedEntities += nbEntities;
+	}
+	
+	/**
+	 * Array used to hold the entities moved by moveEntities, reused by every move.
+	 */
+	private RoundEntity[] movedEntities = new RoundEntity[0];
+	
+	/**
+	 * Return all pairs of entities of this space that have to be checked for a collision at the given time.
+	 * Two consecutive elements of the resulting list form one pair.
+	 * 
+	 * @param 	time
+	 * 			The time of the collisions that are looked for.
+	 * 
+	 * @return	The candidate pairs of the broad phase, after widening its horizon up to the given time
+	 * 			if needed. No pairs at all if the given time is infinite, as no two entities collide then.
+	 */
+	private List<RoundEntity> getPairsToCheck(double time){
+		if (Double.isInfinite(time))
+			return Collections.emptyList();
+		if (time > this.getBroadPhase().getHorizon())
+			this.broadPhase.rebuild(time);
+		return this.broadPhase.getCandidatePairs();
+	}
+	
 	/**
 	 * A method that returns the time to the first collision that will happen next.
+	 * The broad phase only finds the collisions within its horizon, so as long as the first collision
+	 * it finds lies beyond that horizon, the horizon is doubled. The first collision never happens after
+	 * the first hit of a wall, so the horizon is never widened beyond that hit.
 	 * 
 	 * @return 	Double.POSITIVE_INFINITY if this space is terminated or if the space is an unbound space.
 	 * 
 	 * @return	The time of the first collision. This will be with a wall or with an other entity.
 	 */
 	public double getTimeNextCollision(){
+		if (!Double.isNaN(this.collisionCache.getTimeNextCollision()))
+			return this.collisionCache.getTimeNextCollision();
+		long version = this.collisionCache.getVersion();
+		double horizon = this.getBroadPhase().getHorizon();
+		double smallestTime = this.getTimeNextCollision(horizon);
+		while (smallestTime > horizon && !Double.isInfinite(smallestTime)){
+			if (horizon > 0)
+				horizon = Math.min(2*horizon, smallestTime);
+			else
+				horizon = smallestTime;
+			smallestTime = this.getTimeNextCollision(horizon);
+		}
+		this.collisionCache.setTimeNextCollision(smallestTime, version);
+		return smallestTime;
+	}
+	
+	/**
+	 * A method that returns the time to the first collision that will happen next,
+	 * if that collision happens within the given horizon.
+	 * Only the pairs of entities selected by the broad phase are checked.
+	 * 
+	 * @param 	horizon
+	 * 			The time within which collisions are looked for.
+	 * 
+	 * @return 	Double.POSITIVE_INFINITY if this space is terminated or if the space is an unbound space.
+	 * 
+	 * @return	The time of the first collision, if it is not larger than the given horizon.
+	 * 			Otherwise, a time larger than the given horizon.
+	 */
+	double getTimeNextCollision(double horizon){
 		double smallestTime = Double.POSITIVE_INFINITY;
 		if (this.isTerminated() || this instanceof UnboundSpace)
 			return smallestTime;
-		for (RoundEntity firstEntity : entities){
-			for(RoundEntity secondEntity : entities){
-				if (firstEntity != secondEntity && firstEntity.getTimeToCollision(secondEntity)!=-0.0){
-					if (firstEntity.getTimeToCollision(secondEntity) < smallestTime)
-					smallestTime =  firstEntity.getTimeToCollision(secondEntity);
-				}
+		if (horizon > this.getBroadPhase().getHorizon())
+			this.broadPhase.rebuild(horizon);
+		List<RoundEntity> candidatePairs = this.broadPhase.getCandidatePairs();
+		if (this.isUsingParallelEvolve()){
+			this.settleRadii();
+			double[] times = new double[candidatePairs.size()/2];
+			ParallelEvolution.computeTimesToCollision(candidatePairs, times);
+			for (double time : times){
+				if (time != -0.0 && time < smallestTime)
+					smallestTime = time;
 			}
-			if (firstEntity.getTimeToHitWall() < smallestTime)
-			smallestTime = firstEntity.getTimeToHitWall();
+			RoundEntity[] allEntities = this.getEntityArray();
+			times = new double[allEntities.length];
+			ParallelEvolution.computeTimesToHitWall(allEntities, allEntities.length, times);
+			for (double time : times){
+				if (time < smallestTime)
+					smallestTime = time;
+			}
+			return smallestTime;
+		}
+		for (int i = 0; i < candidatePairs.size(); i += 2){
+			double time = candidatePairs.get(i).getTimeToCollision(candidatePairs.get(i+1));
+			if (time != -0.0 && time < smallestTime)
+				smallestTime = time;
+		}
+		for (RoundEntity entity : new ArrayList<RoundEntity>(entities)){
+			if (entity.getTimeToHitWall() < smallestTime)
+				smallestTime = entity.getTimeToHitWall();
 		}
 		return smallestTime;
 	}
@@ -342,16 +834,14 @@ public abstract class Space {
 		if(this.isTerminated() || this instanceof UnboundSpace)
 			throw new IllegalArgumentException();
 		double timeNextCollision = this.getTimeNextCollision();
-		for (RoundEntity firstEntity : entities){
-			for (RoundEntity secondEntity : entities){
-				if (firstEntity != secondEntity){
-					if(timeNextCollision == firstEntity.getTimeToCollision(secondEntity))
-						return firstEntity.getCollisionPosition(secondEntity);
-				}
-			}
-			if (firstEntity.getTimeToHitWall() == timeNextCollision){
-				return firstEntity.getPositionOfHitWall();
-			}
+		List<RoundEntity> pairs = this.getPairsToCheck(timeNextCollision);
+		for (int i = 0; i < pairs.size(); i += 2){
+			if (timeNextCollision == pairs.get(i).getTimeToCollision(pairs.get(i+1)))
+				return pairs.get(i).getCollisionPosition(pairs.get(i+1));
+		}
+		for (RoundEntity entity : entities){
+			if (entity.getTimeToHitWall() == timeNextCollision)
+				return entity.getPositionOfHitWall();
 		}
 		return new double[] {Double.POSITIVE_INFINITY,Double.POSITIVE_INFINITY};
 	}
@@ -370,28 +860,47 @@ public abstract class Space {
 		if (this.isTerminated() || this instanceof UnboundSpace)
 			throw new IllegalArgumentException();
 		Set<Set<RoundEntity>> collisionPosition = new HashSet<>();
+		double timeNextCollision = this.getTimeNextCollision();
 		for (RoundEntity entity : entities){
-			if (entity.hasHitWall() && this.getTimeNextCollision() == entity.getTimeToHitWall()){
+			if (entity.hasHitWall() && timeNextCollision == entity.getTimeToHitWall()){
 				Set<RoundEntity> coll = new HashSet<>();
 				coll.add(entity);
 				collisionPosition.add(coll);
 			}
-			for (RoundEntity other : entities){
-				if (other != entity && entity.canAsCollision(other) &&
-						this.getTimeNextCollision() == entity.getTimeToCollision(other)){
-					Set<RoundEntity> coll = new HashSet<>();
-					coll.add(other); coll.add(entity);
-					collisionPosition.add(coll);
-				}
+		}
+		List<RoundEntity> pairs = this.getPairsToCheck(timeNextCollision);
+		for (int i = 0; i < pairs.size(); i += 2){
+			RoundEntity entity = pairs.get(i);
+			RoundEntity other = pairs.get(i+1);
+			if (entity.canAsCollision(other) && timeNextCollision == entity.getTimeToCollision(other)){
+				Set<RoundEntity> coll = new HashSet<>();
+				coll.add(other); coll.add(entity);
+				collisionPosition.add(coll);
 			}
 		}
 		return collisionPosition;
 	}
 	
+	/**
+	 * The queue of predicted collisions during an evolve of this space, null as long as this space hasn't evolved.
+	 */
+	private CollisionScheduler collisionScheduler = null;
+	
+	/**
+	 * Return the queue of predicted collisions of this space, creating it the first time it is needed.
+	 */
+	private CollisionScheduler getCollisionScheduler(){
+		if (this.collisionScheduler == null)
+			this.collisionScheduler = new CollisionScheduler(this);
+		return this.collisionScheduler;
+	}
+	
 	/**
 	 * A method that let a world change and move with a given duration. 
 	 * This method will take into account the possibility that entities will collide
 	 * before the given duration has expired.
+	 * All collisions within the given duration are predicted once. After each collision,
+	 * only the collisions of the entities that changed are predicted again.
 	 *
 	 * @param 	duration
 	 * 			The duration of the evolving if the world.
@@ -403,81 +912,424 @@ public abstract class Space {
 			throws IllegalArgumentException{
 		if (this.isTerminated() || duration < 0 || Double.isNaN(duration))
 			throw new IllegalArgumentException();
-		List<RoundEntity> possibleEntities = new ArrayList<RoundEntity> (entities);
-		double timeToNextHit = getTimeNextCollision();
-		while (timeToNextHit <= duration){
-			Set<Set<RoundEntity>> getCollisions = this.getCollisions();
-			for (RoundEntity entity : possibleEntities){
-				if (entity instanceof Ship){
-					((Ship) entity).thrust(((Ship) entity).getAcceleration(), duration);
-				entity.move(timeToNextHit);}
-				else
-					entity.move(timeToNextHit);
+		if (this.journal != null)
+			this.journal.recordEvolve(duration);
+		SimulationMetrics metrics = this.metrics;
+		long start = 0, allocatedBytes = 0, predictionTime = 0;
+		if (metrics != null){
+			start = System.nanoTime();
+			allocatedBytes = getAllocatedBytes();
+			this.nbMovedEntities = 0;
+		}
+		EvolveEvent evolveEvent = EvolveEvent.isRecorded() ? new EvolveEvent() : null;
+		if (evolveEvent != null)
+			evolveEvent.begin();
+		boolean recordingCollisions = CollisionEvent.isRecorded();
+		double evolvedDuration = duration;
+		int nbCollisions = 0, nbWallBounces = 0;
+		// Planetoids that have become too small leave this space before any index is rebuilt.
+		this.settleRadii();
+		this.getBroadPhase().rebuild(duration);
+		this.getCollisionScheduler().schedule(this.broadPhase, duration);
+		if (metrics != null)
+			predictionTime += System.nanoTime()-start;
+		double time = 0;
+		List<CollisionScheduler.Event> collisions = this.collisionScheduler.pollNextCollisions();
+		while (!collisions.isEmpty()){
+			double timeToNextHit = collisions.get(0).time - time;
+			Set<RoundEntity> changedEntities = this.changedEntities;
+			changedEntities.clear();
+			for (RoundEntity entity : this.getBucket(Ship.class)){
+				if (((Ship) entity).isThrusterOn()){
+					((Ship) entity).thrust(((Ship) entity).getAcceleration(), duration-time);
+					changedEntities.add(entity);
+					// The velocity of a ship with its thruster on changes, so its collisions have to be predicted again.
 				}
-			for (Set<RoundEntity> collision : getCollisions){
-				if (collision.size() == 1){
-					RoundEntity entityThatHitWall = (RoundEntity)collision.toArray()[0];
-					if (entityThatHitWall instanceof Bullet){
-						((Bullet) entityThatHitWall).setNbWallHits(((Bullet) entityThatHitWall).getNbWallHits()+1);
+			}
+			this.moveEntities(timeToNextHit);
+			time = collisions.get(0).time;
+			for (CollisionScheduler.Event collision : collisions){
+				RoundEntity firstEntity = collision.first;
+				RoundEntity secondEntity = collision.second;
+				if (firstEntity.isTerminated() || !this.hasAsEntity(firstEntity))
+					continue;
+				if (collision.isWallCollision()){
+					if (metrics != null)
+						metrics.countWallBounce(firstEntity);
+					if (firstEntity instanceof Bullet){
+						((Bullet) firstEntity).setNbWallHits(((Bullet) firstEntity).getNbWallHits()+1);
 						if (collisionListener != null){
-							collisionListener.boundaryCollision(entityThatHitWall, 
-																entityThatHitWall.getPositionOfHitWall()[0],
-																entityThatHitWall.getPositionOfHitWall()[1]);
+							double[] position = this.getWallContactPosition(firstEntity);
+							collisionListener.boundaryCollision(firstEntity, position[0], position[1]);
 						}
 					}
-					entityThatHitWall.resolveCollision();					
-					}
-				else if (collision.size() == 2){
-					RoundEntity firstEntity = (RoundEntity) collision.toArray()[0];
-					RoundEntity secondEntity = (RoundEntity) collision.toArray()[1];
+					CollisionEvent collisionEvent = recordingCollisions ? beginCollisionEvent(firstEntity, null, time) : null;
+					firstEntity.resolveCollision();
+					if (collisionEvent != null)
+						collisionEvent.commit();
+					nbWallBounces++;
+				}
+				else{
+					if (secondEntity.isTerminated() || !this.hasAsEntity(secondEntity))
+						continue;
 					if(firstEntity instanceof Bullet || secondEntity instanceof Bullet){
 						if (collisionListener != null){
-							collisionListener.objectCollision(firstEntity,secondEntity,
-															  firstEntity.getCollisionPosition(secondEntity)[0],
-															  firstEntity.getCollisionPosition(secondEntity)[1]);
+							double[] position = this.getContactPosition(firstEntity, secondEntity);
+							collisionListener.objectCollision(firstEntity, secondEntity, position[0], position[1]);
 						}
 					}
+					if (metrics != null)
+						metrics.countCollision(firstEntity, secondEntity);
+					CollisionEvent collisionEvent = recordingCollisions ? beginCollisionEvent(firstEntity, secondEntity, time) : null;
 					firstEntity.resolveCollision(secondEntity);
-					}
-			}
-			duration = duration-timeToNextHit;
-			timeToNextHit = this.getTimeNextCollision();
+					if (collisionEvent != null)
+						collisionEvent.commit();
+					nbCollisions++;
+					changedEntities.add(secondEntity);
+				}
+				changedEntities.add(firstEntity);
 			}
+			long predictionStart = (metrics != null) ? System.nanoTime() : 0;
+			for (RoundEntity entity : changedEntities)
+				this.collisionScheduler.reschedule(entity, this.broadPhase, time);
+			if (metrics != null)
+				predictionTime += System.nanoTime()-predictionStart;
+			collisions = this.collisionScheduler.pollNextCollisions();
+		}
+		duration = duration-time;
 		if (duration > 0){
-			this.mapOfEntities.clear();
-			for (RoundEntity entity : entities){
-				if (!entity.isTerminated){
-					if (entity instanceof Ship){
-						((Ship) entity).thrust(((Ship) entity).getAcceleration(), duration);
-						entity.move(duration);
-						}
-					else
-						entity.move(duration);
-					this.setMapOfEntities(entity);
-				}
-				}
+			for (RoundEntity entity : this.getBucket(Ship.class)){
+				if (!entity.isTerminated)
+					((Ship) entity).thrust(((Ship) entity).getAcceleration(), duration);
 			}
-		else{
-			this.mapOfEntities.clear();
-			for (RoundEntity entity : entities){
-				this.setMapOfEntities(entity);
-			}			
+			this.moveEntities(duration);
+		}
+		this.changedEntities.clear();
+		if (this.isPublishingSnapshots())
+			this.publishSnapshot();
+		if (evolveEvent != null && evolveEvent.shouldCommit()){
+			evolveEvent.evolvedDuration = evolvedDuration;
+			evolveEvent.nbEntities = this.entities.size();
+			evolveEvent.nbPairTests = this.collisionScheduler.getNbPairTests();
+			evolveEvent.nbCollisions = nbCollisions;
+			evolveEvent.nbWallBounces = nbWallBounces;
+			evolveEvent.commit();
 		}
+		if (metrics != null){
+			metrics.countPairTests(this.collisionScheduler.getNbPairTests());
+			metrics.countMovedEntities(this.nbMovedEntities);
+			if (allocatedBytes >= 0)
+				metrics.countAllocatedBytes(getAllocatedBytes()-allocatedBytes);
+			metrics.recordPredictionLatency(predictionTime);
+			metrics.recordEvolveLatency(System.nanoTime()-start);
 		}
+	}
+	
+	/**
+	 * Return a new flight recorder event for the collision between both given entities at the given time, already begun.
+	 * 
+	 * @param 	first
+	 * 			The first entity of the collision.
+	 * @param 	second
+	 * 			The second entity of the collision, null for a collision with a wall.
+	 * @param 	time
+	 * 			The time of the collision, measured from the start of the evolve.
+	 */
+	private static CollisionEvent beginCollisionEvent(RoundEntity first, RoundEntity second, double time){
+		CollisionEvent event = new CollisionEvent();
+		event.firstType = first.getClass().getSimpleName();
+		event.firstId = first.getId();
+		event.secondType = (second == null) ? "Wall" : second.getClass().getSimpleName();
+		event.secondId = (second == null) ? -1 : second.getId();
+		event.time = time;
+		event.begin();
+		return event;
+	}
+	
+	/**
+	 * Set used by evolve to collect the entities that changed in a collision, reused by every collision.
+	 */
+	private final Set<RoundEntity> changedEntities = new LinkedHashSet<RoundEntity>();
+	
+//	All methods related to the replay of a space.
+	
+	/**
+	 * The journal recording the inputs of this space, null if they are not recorded.
+	 */
+	private ReplayJournal journal = null;
+	
+	/**
+	 * Return the journal recording the inputs of this space, null if they are not recorded.
+	 */
+	@Basic
+	public ReplayJournal getJournal(){
+		return this.journal;
+	}
+	
+	/**
+	 * Let the given journal record the inputs of this space.
+	 * 
+	 * @param 	journal
+	 * 			The new journal, null to stop recording.
+	 * @post	| new.getJournal() == journal
+	 */
+	void setJournal(ReplayJournal journal){
+		this.journal = journal;
+	}
+	
+	/**
+	 * Variable registering the seed the random generator of this space started from.
+	 */
+	private long randomSeed = new Random().nextLong();
+	
+	/**
+	 * The random generator of this space, from which all random choices in this space are drawn,
+	 * so a space started from the same seed makes the same choices.
+	 */
+	private Random random = new Random(this.randomSeed);
+	
+	/**
+	 * Return the seed the random generator of this space started from.
+	 */
+	@Basic
+	public long getRandomSeed(){
+		return this.randomSeed;
+	}
+	
+	/**
+	 * Restart the random generator of this space from the given seed.
+	 * 
+	 * @param 	seed
+	 * 			The new seed.
+	 * @post	| new.getRandomSeed() == seed
+	 */
+	public void setRandomSeed(long seed){
+		this.randomSeed = seed;
+		this.random = new Random(seed);
+	}
+	
+	/**
+	 * Return the random generator of this space.
+	 */
+	Random getRandom(){
+		return this.random;
+	}
+	
+//	All methods related to the metrics of a space.
+	
+	/**
+	 * The registry receiving the measurements of the evolves of this space, null if they are not measured.
+	 */
+	private SimulationMetrics metrics = null;
+	
+	/**
+	 * Return the registry receiving the measurements of the evolves of this space,
+	 * null if they are not measured.
+	 */
+	@Basic
+	public SimulationMetrics getMetrics(){
+		return this.metrics;
+	}
+	
+	/**
+	 * Let the given registry receive the measurements of each following evolve of this space,
+	 * and of the programs executed by its ships.
+	 * 
+	 * @param 	metrics
+	 * 			The new registry, null to stop measuring.
+	 * 
+	 * @post	| new.getMetrics() == metrics
+	 */
+	public void setMetrics(SimulationMetrics metrics){
+		this.metrics = metrics;
+	}
+	
+	/**
+	 * Variable registering the number of entities moved since the start of the current evolve.
+	 */
+	private long nbMovedEntities = 0;
+	
+	/**
+	 * Return the number of bytes allocated by the current thread so far, -1 if the virtual machine
+	 * does not measure it.
+	 */
+	private static long getAllocatedBytes(){
+		if (!(THREADS instanceof com.sun.management.ThreadMXBean))
+			return -1;
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+		if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled())
+			return -1;
+		return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+	
+	/**
+	 * Constant referencing the management interface of the threads of the virtual machine.
+	 */
+	private static final java.lang.management.ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+	
+//	All methods related to the snapshots of a space.
+	
+	/**
+	 * The last snapshot published by this space, null if this space never published a snapshot.
+	 * Volatile, so a snapshot published by the thread evolving this space is seen whole by all other threads.
+	 */
+	private volatile WorldSnapshot snapshot = null;
+	
+	/**
+	 * Variable registering whether this space publishes a snapshot at the end of each evolve.
+	 */
+	private boolean publishingSnapshots = false;
+	
+	/**
+	 * Check whether this space publishes a snapshot at the end of each evolve.
+	 */
+	@Basic
+	public boolean isPublishingSnapshots(){
+		return this.publishingSnapshots;
+	}
+	
+	/**
+	 * Let this space publish a snapshot at the end of each evolve, or not.
+	 * 
+	 * @param 	flag
+	 * 			True to publish a snapshot at the end of each evolve.
+	 * 
+	 * @post	| new.isPublishingSnapshots() == flag
+	 * @effect	If the flag is true, a snapshot is published right away.
+	 * 			| if (flag) then publishSnapshot()
+	 */
+	public void setPublishingSnapshots(boolean flag){
+		this.publishingSnapshots = flag;
+		if (flag)
+			this.publishSnapshot();
+	}
+	
+	/**
+	 * Return the last snapshot published by this space, null if it never published a snapshot.
+	 * This method may be called from any thread, also while this space evolves.
+	 */
+	@Basic
+	public WorldSnapshot getSnapshot(){
+		return this.snapshot;
+	}
+	
+	/**
+	 * Publish a snapshot of the current state of the entities of this space.
+	 * Only the thread changing this space may publish a snapshot.
+	 * 
+	 * @post	The new snapshot holds the current state of all entities of this space,
+	 * 			and its version is one larger than that of the previous snapshot.
+	 * 			| new.getSnapshot().getNbEntities() == getEntities().size() &&
+	 * 			|	new.getSnapshot().getVersion() == (getSnapshot() == null ? 1 : getSnapshot().getVersion()+1)
+	 */
+	public void publishSnapshot(){
+		WorldSnapshot previous = this.snapshot;
+		this.snapshot = new WorldSnapshot(this, (previous == null) ? 1 : previous.getVersion()+1);
+	}
+	
+	/**
+	 * A method that returns the point where the two given touching entities hit each other.
+	 * 
+	 * @param 	first
+	 * 			The first entity of the collision.
+	 * 
+	 * @param 	second
+	 * 			The second entity of the collision.
+	 * 
+	 * @return	The point on the line between both centres, at the radius of the first entity from its centre.
+	 * 			| {first.getxPosition()+first.getRadius()*(second.getxPosition()-first.getxPosition())/
+	 * 			|		(first.getRadius()+second.getRadius()),
+	 * 			|  first.getyPosition()+first.getRadius()*(second.getyPosition()-first.getyPosition())/
+	 * 			|		(first.getRadius()+second.getRadius())}
+	 */
+	private double[] getContactPosition(RoundEntity first, RoundEntity second){
+		double sumOfRadii = first.getRadius()+second.getRadius();
+		return new double[] {first.getxPosition()+first.getRadius()*(second.getxPosition()-first.getxPosition())/sumOfRadii,
+							 first.getyPosition()+first.getRadius()*(second.getyPosition()-first.getyPosition())/sumOfRadii};
+	}
+	
+	/**
+	 * A method that returns the point where the given entity touches the nearest wall of this space.
+	 * 
+	 * @param 	entity
+	 * 			The entity that hits a wall.
+	 * 
+	 * @return	The point of the boundary of the entity that lies on the nearest wall.
+	 * 			| @see implementation
+	 */
+	private double[] getWallContactPosition(RoundEntity entity){
+		double x = entity.getxPosition();
+		double y = entity.getyPosition();
+		double radius = entity.getRadius();
+		double leftGap = x-radius;
+		double rightGap = this.getWidth()-(x+radius);
+		double lowerGap = y-radius;
+		double upperGap = this.getHeight()-(y+radius);
+		double smallestGap = Math.min(Math.min(leftGap, rightGap), Math.min(lowerGap, upperGap));
+		if (smallestGap == rightGap)
+			return new double[] {x+radius, y};
+		else if (smallestGap == leftGap)
+			return new double[] {x-radius, y};
+		else if (smallestGap == upperGap)
+			return new double[] {x, y+radius};
+		else
+			return new double[] {x, y-radius};
+	}
 
 	/**
-	 * A method that returns a set of entities of a certain class.
+	 * The classes of entities for which this space keeps a separate set of entities.
+	 */
+	private static final List<Class<?>> BUCKET_CLASSES = Arrays.<Class<?>>asList(Ship.class, Bullet.class, Asteroid.class, Planetoid.class, MinorPlanet.class);
+	
+	/**
+	 * A map registering for each class of BUCKET_CLASSES that has been asked for the set of entities of that class in this space.
+	 */
+	private final Map<Class<?>, Set<RoundEntity>> buckets = new HashMap<Class<?>, Set<RoundEntity>>();
+	
+	/**
+	 * A map registering for each class of BUCKET_CLASSES an unmodifiable view on its set of entities.
+	 */
+	private final Map<Class<?>, Set<RoundEntity>> bucketViews = new HashMap<Class<?>, Set<RoundEntity>>();
+	
+	/**
+	 * Return the set of entities of the given class of BUCKET_CLASSES, building it the first time it is needed.
+	 */
+	private Set<RoundEntity> getBucket(Class<?> cls){
+		Set<RoundEntity> bucket = this.buckets.get(cls);
+		if (bucket == null){
+			bucket = new LinkedHashSet<RoundEntity>();
+			for (RoundEntity entity : this.entities){
+				if (cls.isInstance(entity))
+					bucket.add(entity);
+			}
+			this.buckets.put(cls, bucket);
+			this.bucketViews.put(cls, Collections.unmodifiableSet(bucket));
+		}
+		return bucket;
+	}
+	
+	/**
+	 * A method that returns a set of entities of a certain class, including the entities of its subclasses.
+	 * For ships, bullets, asteroids, planetoids and minor planets, the result is an unmodifiable view
+	 * that follows the entities of this space. It must be copied before entities of that class
+	 * are added to or removed from this space while iterating over it.
+	 * 
 	 * @param 	cls
 	 * 			The given classe of which type you want the entities of.
 	 * @return	a set of the given class
+	 * 			| result == { entity in getEntities() | cls.isInstance(entity) }
 	 * @throws 	ClassNotFoundException
 	 */
 	public Set<? extends RoundEntity> getEntityOfClass(Class<?> cls) throws ClassNotFoundException {
-		Set<RoundEntity> result = new HashSet<RoundEntity>();
+		if (BUCKET_CLASSES.contains(cls)){
+			this.getBucket(cls);
+			return this.bucketViews.get(cls);
+		}
+		Set<RoundEntity> result = new LinkedHashSet<RoundEntity>();
 		Set<RoundEntity> entitiesInThisWorld = this.getEntities();
 		
 		for (RoundEntity entity : entitiesInThisWorld) {
-			if (entity.getClass().isAssignableFrom(cls)) {
+			if (cls.isInstance(entity)) {
 				result.add(entity);
 			}
 		}		
@@ -485,34 +1337,72 @@ public abstract class Space {
 	}
 	
 	/**
-	 * A map for the entities in this world, with their coordinate
+	 * A method that checks whether entities of the given entity class are entities of the given class.
+	 * 
+	 * @param 	entityClass
+	 * 			The class of an entity.
+	 * @param 	cls
+	 * 			The given class.
+	 * @return	| result == cls.isAssignableFrom(entityClass)
 	 */
-	Map<double[], RoundEntity> mapOfEntities = new HashMap<double[], RoundEntity>();
+	private static boolean isOfClass(Class<?> entityClass, Class<?> cls){
+		return cls.isAssignableFrom(entityClass);
+	}
 	
 	/**
-	 * A method to add an entity to the given map
-	 * @param 	entity
-	 * 			the entity we want to add to the map
+	 * A map registering for each class of entities the grid to find the closest entity of that class,
+	 * null as long as no closest entity has been looked for.
+	 */
+	private Map<Class<?>, NearestNeighbourGrid> nearestNeighbourGrids = null;
+	
+	/**
+	 * Return the grids to find the closest entity of each class of entities, building them the first time they are needed.
 	 */
-	public void setMapOfEntities(RoundEntity entity){
-		this.mapOfEntities.put(entity.getPosition(), entity);
+	private Map<Class<?>, NearestNeighbourGrid> getNearestNeighbourGrids(){
+		if (this.nearestNeighbourGrids == null){
+			this.nearestNeighbourGrids = new HashMap<Class<?>, NearestNeighbourGrid>();
+			for (RoundEntity entity : this.entities)
+				this.getNearestNeighbourGrid(entity.getClass()).insert(entity);
+		}
+		return this.nearestNeighbourGrids;
 	}
 	
 	/**
-	 * A method to remove an entity of the given map
-	 * @param 	entity
-	 * 			the entity we want to remove
+	 * Return the grid to find the closest entity of the given class of entities, creating it if needed.
 	 */
-	public void unsetMapOfEntities(RoundEntity entity){
-		this.mapOfEntities.remove(entity.getPosition(), entity);
+	private NearestNeighbourGrid getNearestNeighbourGrid(Class<?> entityClass){
+		NearestNeighbourGrid grid = this.getNearestNeighbourGrids().get(entityClass);
+		if (grid == null){
+			grid = new NearestNeighbourGrid();
+			this.nearestNeighbourGrids.put(entityClass, grid);
+		}
+		return grid;
 	}
 	
 	/**
-	 * A methhod that gives a map of entities and their position.
-	 * @return	a map of the entities of this world.
+	 * A method that returns the entity of a certain class which lies closest to the given entity.
+	 * 
+	 * @param 	cls
+	 * 			The given classe of which type you want the closest entity of.
+	 * @param 	entity
+	 * 			The entity to find the closest entity of.
+	 * @return	Null if this space has no entities of the given class. Otherwise, the entity of
+	 * 			the given class whose distance to the given entity is the smallest.
+	 * 			| @see implementation
 	 */
-	public Map<double[], RoundEntity> getMapOfEntities(){
-		return this.mapOfEntities;
+	public RoundEntity getClosestEntityOfClass(Class<?> cls, RoundEntity entity){
+		RoundEntity closest = null;
+		double smallestDistance = Double.MAX_VALUE;
+		for (Map.Entry<Class<?>, NearestNeighbourGrid> entry : this.getNearestNeighbourGrids().entrySet()){
+			if (isOfClass(entry.getKey(), cls)){
+				RoundEntity closestOfClass = entry.getValue().getClosestEntity(entity, smallestDistance);
+				if (closestOfClass != null){
+					closest = closestOfClass;
+					smallestDistance = entity.getDistanceBetween(closest);
+				}
+			}
+		}
+		return closest;
 	}
 	
 } 
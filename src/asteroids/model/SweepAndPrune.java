@@ -0,0 +1,278 @@
+package asteroids.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A class of broad phases that keep the round entities of a space sorted on the lower bound
+ * of the x-interval of the circle they sweep during a given time horizon.
+ * Two round entities can only collide within that horizon if both their x-intervals and
+ * their y-intervals overlap, so a single sweep over the sorted entities finds all candidate pairs.
+ * Entities hardly change their order between two evolves, so the order is restored
+ * with an insertion sort before each query.
+ * Unlike a uniform grid, the memory used does not depend on the shape of the space.
+ *
+ * @invar	Each round entity of the space of this broad phase is registered exactly once.
+ *
+ * @version 1.0
+ *
+ * @author Amber Van Camp & Jasper Vanmeerbeeck
+ */
+class SweepAndPrune implements BroadPhase {
+
+	/**
+	 * Initialize this new broad phase for the given space, with a horizon of zero.
+	 *
+	 * @param 	space
+	 * 			The space whose entities are sorted in this broad phase.
+	 */
+	SweepAndPrune(Space space){
+		this.space = space;
+	}
+
+	/**
+	 * Variable referencing the space whose entities are sorted in this broad phase.
+	 */
+	private final Space space;
+
+	/**
+	 * Variable registering the time horizon over which the circles are swept.
+	 */
+	private double horizon = 0;
+
+	/**
+	 * Map registering the interval of each round entity.
+	 */
+	private final Map<RoundEntity, Interval> intervals = new HashMap<RoundEntity, Interval>();
+
+	/**
+	 * List of all intervals, sorted on their lower x-bound if this broad phase is sorted.
+	 * Intervals of removed entities stay in the list until the next sort.
+	 */
+	private final List<Interval> sortedIntervals = new ArrayList<Interval>();
+
+	/**
+	 * Variable registering the number of intervals of removed entities still in the list of intervals.
+	 */
+	private int nbRemovedIntervals = 0;
+
+	/**
+	 * Variable registering whether the list of intervals is sorted.
+	 */
+	private boolean isSorted = true;
+
+	/**
+	 * Variable registering an upper bound on the width of all intervals.
+	 */
+	private double maxWidth = 0;
+
+	/**
+	 * List used to return the candidate pairs, two consecutive elements forming one pair.
+	 */
+	private final List<RoundEntity> candidatePairs = new ArrayList<RoundEntity>();
+
+	/**
+	 * List used to return the candidates of a single entity.
+	 */
+	private final List<RoundEntity> candidates = new ArrayList<RoundEntity>();
+
+	@Override
+	public double getHorizon(){
+		return this.horizon;
+	}
+
+	/**
+	 * Rebuild this broad phase for all entities of its space, sweeping their circles over the given horizon.
+	 * The order of the entities that were already registered is kept, so it only has to be repaired.
+	 *
+	 * @param 	horizon
+	 * 			The new time horizon of this broad phase.
+	 */
+	@Override
+	public void rebuild(double horizon){
+		if (Double.isNaN(horizon) || horizon < 0)
+			horizon = 0;
+		this.horizon = horizon;
+		this.maxWidth = 0;
+		for (Interval interval : this.sortedIntervals){
+			if (!interval.isRemoved && !space.hasAsEntity(interval.entity))
+				this.remove(interval.entity);
+		}
+		for (RoundEntity entity : space.getEntities()){
+			if (this.intervals.containsKey(entity))
+				this.update(entity);
+			else
+				this.insert(entity);
+		}
+	}
+
+	@Override
+	public void insert(RoundEntity entity){
+		if (this.intervals.containsKey(entity))
+			return;
+		Interval interval = new Interval(entity);
+		this.setBounds(interval);
+		this.intervals.put(entity, interval);
+		this.sortedIntervals.add(interval);
+		this.isSorted = false;
+	}
+
+	/**
+	 * Remove the given entity from this broad phase.
+	 * Its interval is only marked as removed, it leaves the list of intervals at the next sort.
+	 *
+	 * @param 	entity
+	 * 			The entity to remove.
+	 */
+	@Override
+	public void remove(RoundEntity entity){
+		Interval interval = this.intervals.remove(entity);
+		if (interval == null)
+			return;
+		interval.isRemoved = true;
+		this.nbRemovedIntervals++;
+		this.isSorted = false;
+	}
+
+	@Override
+	public void update(RoundEntity entity){
+		Interval interval = this.intervals.get(entity);
+		if (interval == null)
+			return;
+		this.setBounds(interval);
+		this.isSorted = false;
+	}
+
+	/**
+	 * Set the bounds of the given interval to the bounds of the circle its entity sweeps during the horizon.
+	 * The raw radius is used, asking a planetoid for its radius may terminate it while the intervals are being updated.
+	 */
+	private void setBounds(Interval interval){
+		RoundEntity entity = interval.entity;
+		double radius = entity.getRawRadius() + entity.getSpeed()*horizon/2;
+		double xCentre = entity.getxPosition() + entity.getxVelocity()*horizon/2;
+		double yCentre = entity.getyPosition() + entity.getyVelocity()*horizon/2;
+		interval.minX = xCentre - radius;
+		interval.maxX = xCentre + radius;
+		interval.minY = yCentre - radius;
+		interval.maxY = yCentre + radius;
+		if (2*radius > this.maxWidth)
+			this.maxWidth = 2*radius;
+	}
+
+	/**
+	 * Sort the intervals on their lower x-bound, using an insertion sort, after dropping
+	 * the intervals of removed entities in a single pass.
+	 * This takes linear time if the order has hardly changed since the last sort.
+	 */
+	private void sort(){
+		if (this.isSorted)
+			return;
+		if (this.nbRemovedIntervals > 0){
+			int size = 0;
+			for (int i = 0; i < this.sortedIntervals.size(); i++){
+				Interval interval = this.sortedIntervals.get(i);
+				if (!interval.isRemoved)
+					this.sortedIntervals.set(size++, interval);
+			}
+			for (int i = this.sortedIntervals.size()-1; i >= size; i--)
+				this.sortedIntervals.remove(i);
+			this.nbRemovedIntervals = 0;
+		}
+		for (int i = 1; i < this.sortedIntervals.size(); i++){
+			Interval interval = this.sortedIntervals.get(i);
+			int j = i-1;
+			while (j >= 0 && this.sortedIntervals.get(j).minX > interval.minX){
+				this.sortedIntervals.set(j+1, this.sortedIntervals.get(j));
+				j--;
+			}
+			this.sortedIntervals.set(j+1, interval);
+		}
+		this.isSorted = true;
+	}
+
+	@Override
+	public List<RoundEntity> getCandidates(RoundEntity entity){
+		candidates.clear();
+		Interval interval = this.intervals.get(entity);
+		if (interval == null)
+			return candidates;
+		this.sort();
+		// No interval starting before this bound can reach the given interval.
+		double lowerBound = interval.minX - this.maxWidth;
+		int low = 0;
+		int high = this.sortedIntervals.size();
+		while (low < high){
+			int middle = (low + high) >>> 1;
+			if (this.sortedIntervals.get(middle).minX < lowerBound)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		for (int i = low; i < this.sortedIntervals.size(); i++){
+			Interval other = this.sortedIntervals.get(i);
+			if (other.minX > interval.maxX)
+				break;
+			if (other != interval && interval.overlaps(other))
+				candidates.add(other.entity);
+		}
+		return candidates;
+	}
+
+	@Override
+	public List<RoundEntity> getCandidatePairs(){
+		candidatePairs.clear();
+		this.sort();
+		for (int i = 0; i < this.sortedIntervals.size(); i++){
+			Interval first = this.sortedIntervals.get(i);
+			for (int j = i+1; j < this.sortedIntervals.size(); j++){
+				Interval second = this.sortedIntervals.get(j);
+				if (second.minX > first.maxX)
+					break;
+				if (first.overlaps(second)){
+					candidatePairs.add(first.entity);
+					candidatePairs.add(second.entity);
+				}
+			}
+		}
+		return candidatePairs;
+	}
+
+	/**
+	 * A class of bounding boxes around the circle a round entity sweeps during the horizon.
+	 */
+	private static class Interval {
+
+		/**
+		 * Initialize this new interval for the given entity.
+		 */
+		Interval(RoundEntity entity){
+			this.entity = entity;
+		}
+
+		/**
+		 * The entity of this interval.
+		 */
+		final RoundEntity entity;
+
+		/**
+		 * The bounds of this interval.
+		 */
+		double minX, maxX, minY, maxY;
+
+		/**
+		 * Variable registering whether the entity of this interval has been removed from the broad phase.
+		 */
+		boolean isRemoved = false;
+
+		/**
+		 * Check whether this interval overlaps with the given interval, in both directions.
+		 */
+		boolean overlaps(Interval other){
+			return this.minX <= other.maxX && other.minX <= this.maxX
+					&& this.minY <= other.maxY && other.minY <= this.maxY;
+		}
+	}
+}
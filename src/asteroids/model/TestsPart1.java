@@ -2,11 +2,30 @@ package asteroids.model;
 
 import static org.junit.Assert.*;
 
+import java.awt.Graphics2D;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
 import org.junit.Before;
 import org.junit.Test;
 
+import asteroids.facade.Facade;
+import asteroids.model.Programs.Expression;
+import asteroids.model.Programs.ExpressionCompiler;
+import asteroids.model.Programs.Function;
+import asteroids.model.Programs.FunctionInvocationExpression;
+import asteroids.model.Programs.Statement;
+import asteroids.part2.internal.DrawContext;
+import asteroids.part2.internal.FixedTimestep;
+import asteroids.part3.programs.SourceLocation;
+import asteroids.part3.programs.internal.ProgramParser;
 import asteroids.util.ModelException;
 
 public class TestsPart1 {
@@ -352,5 +371,816 @@ public class TestsPart1 {
 		bullet.placeInSpace(world);
 	}
 	
+	@Test
+	public void testSpatialQueries() {
+		World world = new World(5000, 5000);
+		Ship firstShip = new Ship(100, 120, 10, 0, 50, Math.PI, 1.1E18);
+		Ship secondShip = new Ship(300, 120, 10, 0, 50, Math.PI, 1.1E18);
+		Bullet bullet = new Bullet(4000, 4000, -1, 2, 2);
+		firstShip.placeInSpace(world);
+		secondShip.placeInSpace(world);
+		bullet.placeInSpace(world);
+		assertEquals(Arrays.asList(firstShip), world.getEntitiesContaining(120, 130));
+		assertEquals(2, world.getEntitiesWithin(200, 120, 50).size());
+		assertTrue(world.getEntitiesWithin(200, 120, 49).isEmpty());
+		assertEquals(Arrays.asList(secondShip, firstShip), world.getNearestEntities(400, 120, 2));
+		secondShip.setPosition(3900, 3900);
+		assertEquals(secondShip, world.getNearestEntities(4000, 4000, 2).get(1));
+		assertEquals(secondShip, world.getEntityAt(3900.0, 3900.0));
+	}
 	
+	@Test
+	public void testGetEntityAtWithTolerance() {
+		World world = new World(5000, 5000);
+		Ship ship = new Ship(100.5, 120.5, 10, 0, 50, Math.PI, 1.1E18);
+		ship.placeInSpace(world);
+		assertEquals(ship, world.getEntityAt(100.5, 120.5));
+		assertNull(world.getEntityAt(101.0, 120.5));
+		assertEquals(ship, world.getEntityAt(101, 120.5, 1));
+		ship.setPosition(2000, 2000);
+		assertNull(world.getEntityAt(101, 120.5, 1));
+		assertEquals(ship, world.getEntityAt(2000.0, 2000.0));
+	}
+
+	@Test
+	public void testColumnarStorage() {
+		World world = new World(5000, 5000, true);
+		assertTrue(world.hasColumnarStorage());
+		Asteroid first = new Asteroid(100, 100, 10, 20, 10);
+		Asteroid second = new Asteroid(1000, 1000, -10, 0, 10);
+		first.placeInSpace(world);
+		second.placeInSpace(world);
+		world.evolve(2, null);
+		assertEquals(120, first.getxPosition(), EPSILON);
+		assertEquals(140, first.getyPosition(), EPSILON);
+		assertEquals(980, second.getxPosition(), EPSILON);
+		first.terminate();
+		world.setColumnarStorage(false);
+		assertEquals(980, second.getxPosition(), EPSILON);
+		assertEquals(-10, second.getxVelocity(), EPSILON);
+	}
+
+	@Test
+	public void testWorldHost() throws InterruptedException {
+		WorldHost host = new WorldHost(2, 4);
+		World first = new World(5000, 5000);
+		World second = new World(5000, 5000);
+		Asteroid asteroid = new Asteroid(100, 100, 10, 0, 10);
+		asteroid.placeInSpace(first);
+		host.addWorld(first, 0.5, 1000000000L);
+		host.addWorld(second, 0.5, 1000000000L);
+		assertFalse(host.offerTicks(first, 5));
+		assertTrue(host.offerTicks(first, 4));
+		host.submitTicks(second, 3);
+		host.awaitTicks(first);
+		host.awaitTicks(second);
+		assertEquals(4, host.getNbTicks(first));
+		assertEquals(3, host.getNbTicks(second));
+		assertEquals(120, asteroid.getxPosition(), EPSILON);
+		assertNull(host.getFailure(first));
+		host.terminate();
+		assertFalse(host.offerTicks(first, 1));
+	}
+
+	@Test
+	public void testWorldSnapshot() {
+		World world = new World(5000, 5000);
+		Asteroid asteroid = new Asteroid(100, 100, 10, 0, 10);
+		Ship ship = new Ship(500, 500, 0, 0, 15, 1, 1.0E20);
+		ship.placeInSpace(world);
+		asteroid.placeInSpace(world);
+		assertNull(world.getSnapshot());
+		world.setPublishingSnapshots(true);
+		WorldSnapshot before = world.getSnapshot();
+		world.evolve(1, null);
+		WorldSnapshot after = world.getSnapshot();
+		assertEquals(before.getVersion()+1, after.getVersion());
+		int index = after.indexOf(asteroid.getId());
+		assertEquals(WorldSnapshot.Kind.ASTEROID, after.getKind(index));
+		assertEquals(110, after.getxPosition(index), EPSILON);
+		assertEquals(100, before.getxPosition(before.indexOf(asteroid.getId())), EPSILON);
+		assertEquals(1, after.getOrientation(after.indexOf(ship.getId())), EPSILON);
+		assertEquals(-1, after.indexOf(-1));
+	}
+
+	@Test
+	public void testMetricsRecorder() {
+		World world = new World(5000, 5000);
+		MetricsRecorder recorder = new MetricsRecorder();
+		world.setMetrics(recorder);
+		Asteroid first = new Asteroid(100, 100, 10, 0, 10);
+		Asteroid second = new Asteroid(200, 100, -10, 0, 10);
+		Asteroid third = new Asteroid(4980, 1000, 20, 0, 10);
+		first.placeInSpace(world);
+		second.placeInSpace(world);
+		third.placeInSpace(world);
+		world.evolve(5, null);
+		assertEquals(1, recorder.getNbEvolves());
+		assertEquals(1, recorder.getNbCollisions(Asteroid.class, Asteroid.class));
+		assertEquals(1, recorder.getNbWallBounces());
+		assertTrue(recorder.getNbPairTests() > 0);
+		assertTrue(recorder.getNbMovedEntities() >= 3);
+		assertTrue(recorder.getEvolveLatencies().getPercentile(100) >= recorder.getMaxEvolveLatency());
+		StringWriter dump = new StringWriter();
+		recorder.dump(dump);
+		assertTrue(dump.toString().contains("collisions.Asteroid-Asteroid 1"));
+		recorder.reset();
+		assertEquals(0, recorder.getNbEvolves());
+	}
+
+	@Test
+	public void testFlightRecorderEvents() throws IOException {
+		World world = new World(5000, 5000);
+		new Asteroid(100, 100, 10, 0, 10).placeInSpace(world);
+		new Asteroid(200, 100, -10, 0, 10).placeInSpace(world);
+		Path file = Files.createTempFile("asteroids", ".jfr");
+		Recording recording = new Recording();
+		recording.enable("asteroids.Evolve");
+		recording.enable("asteroids.Collision");
+		assertFalse(EvolveEvent.isRecorded());
+		recording.start();
+		assertTrue(EvolveEvent.isRecorded() && CollisionEvent.isRecorded());
+		world.evolve(5, null);
+		recording.stop();
+		recording.dump(file);
+		recording.close();
+		int nbEvolves = 0;
+		for (RecordedEvent event : RecordingFile.readAllEvents(file)){
+			if (event.getEventType().getName().equals("asteroids.Evolve")){
+				nbEvolves++;
+				assertEquals(2, event.getInt("nbEntities"));
+				assertEquals(1, event.getInt("nbCollisions"));
+			}
+			else
+				assertEquals("Asteroid", event.getString("secondType"));
+		}
+		assertEquals(1, nbEvolves);
+		Files.delete(file);
+	}
+
+	@Test
+	public void testWorldCheckpoint() throws IOException {
+		World world = new World(5000, 4000);
+		Ship ship = new Ship(500, 500, 10, 5, 20, 1.5, 1.0E20);
+		ship.placeInSpace(world);
+		new Bullet(500, 500, 0, 0, 3).placeInShip(ship);
+		new Bullet(505, 500, 0, 0, 3).placeInShip(ship);
+		ship.thrustOn();
+		Planetoid planetoid = new Planetoid(2000, 2000, 1, 1, 30, 1000000);
+		planetoid.placeInSpace(world);
+		new Asteroid(3000, 3000, -5, 0, 40).placeInSpace(world);
+		Path file = Files.createTempFile("asteroids", ".ckpt");
+		WorldCheckpoint.save(world, file, null);
+		World restored = WorldCheckpoint.load(file, null);
+		Files.delete(file);
+		assertEquals(4000, restored.getHeight(), EPSILON);
+		assertEquals(3, restored.getEntities().size());
+		Ship restoredShip = (Ship) restored.getEntityAt(500.0, 500.0);
+		assertEquals(1.5, restoredShip.getOrientation(), EPSILON);
+		assertTrue(restoredShip.isThrusterOn());
+		assertEquals(2, restoredShip.getNbBullets());
+		assertEquals(505, restoredShip.getBulletAt(2).getxPosition(), EPSILON);
+		assertEquals(ship.getMass(), restoredShip.getMass(), EPSILON);
+		Planetoid restoredPlanetoid = (Planetoid) restored.getEntityAt(2000.0, 2000.0);
+		assertEquals(planetoid.getRadius(), restoredPlanetoid.getRadius(), EPSILON);
+		assertEquals(world.getTimeNextCollision(), restored.getTimeNextCollision(), EPSILON);
+	}
+
+	@Test
+	public void testReplayJournal() throws IOException, ModelException {
+		Facade facade = new Facade();
+		World world = facade.createWorld(5000, 4000);
+		Path file = Files.createTempFile("asteroids", ".journal");
+		ReplayJournal journal = new ReplayJournal(world, file);
+		Ship ship = facade.createShip(1000, 1000, 0, 0, 20, 0, 1.0E16);
+		facade.addShipToWorld(world, ship);
+		facade.loadBulletOnShip(ship, facade.createBullet(1000, 1000, 0, 0, 3));
+		Asteroid target = facade.createAsteroid(3000, 1000, 0, 0, 40);
+		facade.addAsteroidToWorld(world, target);
+		Asteroid asteroid = facade.createAsteroid(1000, 2000, 0, -100, 30);
+		facade.addAsteroidToWorld(world, asteroid);
+		facade.addPlanetoidToWorld(world, facade.createPlanetoid(4000, 3000, -20, 10, 50, 0));
+		facade.evolve(world, 1.0, null);
+		facade.fireBullet(ship);
+		facade.turn(ship, Math.PI/2);
+		facade.setThrusterActive(ship, true);
+		for (int step = 0; step < 20; step++)
+			facade.evolve(world, 0.5, null);
+		journal.close();
+		assertNull(world.getJournal());
+		assertTrue(ship.isTerminated());
+		assertTrue(target.isTerminated());
+		assertEquals(2, world.getEntities().size());
+		World replayed = ReplayJournal.replay(file);
+		Files.delete(file);
+		assertEquals(world.getRandomSeed(), replayed.getRandomSeed());
+		assertEquals(world.getEntities().size(), replayed.getEntities().size());
+		Iterator<RoundEntity> replayedEntities = replayed.getEntities().iterator();
+		for (RoundEntity entity : world.getEntities()){
+			RoundEntity replayedEntity = replayedEntities.next();
+			assertEquals(entity.getClass(), replayedEntity.getClass());
+			assertEquals(entity.getxPosition(), replayedEntity.getxPosition(), EPSILON);
+			assertEquals(entity.getyPosition(), replayedEntity.getyPosition(), EPSILON);
+			assertEquals(entity.getxVelocity(), replayedEntity.getxVelocity(), EPSILON);
+			assertEquals(entity.getyVelocity(), replayedEntity.getyVelocity(), EPSILON);
+			assertEquals(entity.getRadius(), replayedEntity.getRadius(), EPSILON);
+		}
+	}
+
+	ProgramFactory factory;
+	SourceLocation location;
+	Ship programShip;
+	@Before
+	public void setupPrograms(){
+		factory = new ProgramFactory();
+		location = new SourceLocation(1, 1);
+		programShip = new Ship(500, 300, 10, 5, 20, 1.5, 1.0E20);
+	}
+
+	private Program loadProgram(List<Statement> statements){
+		Program program = factory.createProgram(new ArrayList<Function>(), factory.createSequenceStatement(statements, location));
+		programShip.setProgram(program);
+		return program;
+	}
+
+	@Test
+	public void testExpressionCompiler() throws ClassNotFoundException {
+		Expression<?> literals = factory.createAdditionExpression(
+				factory.createSqrtExpression(factory.createMultiplicationExpression(
+						factory.createDoubleLiteralExpression(2, location), factory.createDoubleLiteralExpression(8, location), location), location),
+				factory.createChangeSignExpression(factory.createDoubleLiteralExpression(3, location), location), location);
+		assertEquals(1, ExpressionCompiler.compileDouble(literals).evaluate(programShip, null), EPSILON);
+		Expression<?> position = factory.createAdditionExpression(
+				factory.createGetXExpression(factory.createSelfExpression(location), location),
+				factory.createGetDirectionExpression(location), location);
+		assertEquals((Double) position.evaluate(programShip, null),
+				ExpressionCompiler.compileDouble(position).evaluate(programShip, null), EPSILON);
+		Expression<?> condition = factory.createNotExpression(
+				factory.createLessThanExpression(literals, position, location), location);
+		assertFalse(ExpressionCompiler.compileBoolean(condition).evaluate(programShip, null));
+	}
+
+	@Test
+	public void testBytecodeCompiler() throws ClassNotFoundException {
+		Expression<?> position = factory.createMultiplicationExpression(
+				factory.createGetVYExpression(factory.createSelfExpression(location), location),
+				factory.createChangeSignExpression(factory.createSqrtExpression(
+						factory.createDoubleLiteralExpression(16, location), location), location), location);
+		Expression<?> notANumber = factory.createLessThanExpression(
+				factory.createSqrtExpression(factory.createDoubleLiteralExpression(-1, location), location),
+				factory.createDoubleLiteralExpression(1, location), location);
+		ExpressionCompiler.setBytecodeEnabled(true);
+		try {
+			assertEquals(-20, ExpressionCompiler.compileDouble(position).evaluate(programShip, null), EPSILON);
+			assertFalse(ExpressionCompiler.compileBoolean(notANumber).evaluate(programShip, null));
+			assertTrue(ExpressionCompiler.compileBoolean(
+					factory.createNotExpression(notANumber, location)).evaluate(programShip, null));
+			assertTrue(ExpressionCompiler.compileBoolean(factory.createLessThanExpression(
+					position, factory.createGetDirectionExpression(location), location)).evaluate(programShip, null));
+		}
+		finally {
+			ExpressionCompiler.setBytecodeEnabled(false);
+		}
+	}
+
+	@Test
+	public void testCompiledConditionsReadVariables() throws ClassNotFoundException {
+		for (boolean bytecode : new boolean[] {false, true}){
+			ExpressionCompiler.setBytecodeEnabled(bytecode);
+			try {
+				// a := 1.0; while a < 5.0 { a := 9.0; } if a < 10.0 { print a; }
+				List<Statement> statements = new ArrayList<Statement>();
+				statements.add(factory.createAssignmentStatement("a", factory.createDoubleLiteralExpression(1, location), location));
+				statements.add(factory.createWhileStatement(factory.createLessThanExpression(factory.createReadVariableExpression("a", location),
+						factory.createDoubleLiteralExpression(5, location), location),
+						factory.createAssignmentStatement("a", factory.createDoubleLiteralExpression(9, location), location), location));
+				statements.add(factory.createIfStatement(factory.createLessThanExpression(factory.createReadVariableExpression("a", location),
+						factory.createDoubleLiteralExpression(10, location), location),
+						factory.createPrintStatement(factory.createReadVariableExpression("a", location), location),
+						factory.createSequenceStatement(new ArrayList<Statement>(), location), location));
+				loadProgram(statements);
+				assertEquals(Arrays.asList((Object) 9.0), programShip.executeProgram(1.0));
+			}
+			finally {
+				ExpressionCompiler.setBytecodeEnabled(false);
+			}
+		}
+	}
+
+	@Test
+	public void testProgramResolver() {
+		List<Statement> statements = new ArrayList<Statement>();
+		statements.add(factory.createAssignmentStatement("b", factory.createDoubleLiteralExpression(1, location), location));
+		statements.add(factory.createPrintStatement(factory.createReadVariableExpression("a", location), location));
+		statements.add(factory.createAssignmentStatement("a", factory.createDoubleLiteralExpression(2, location), location));
+		Function function = factory.createFunctionDefinition("f", factory.createReturnStatement(
+				factory.createReadParameterExpression("$2", location), location), location);
+		Program program = factory.createProgram(Collections.singletonList(function),
+				factory.createSequenceStatement(statements, location));
+		programShip.setProgram(program);
+		assertEquals(1, program.getVariableSlot("a"));
+		assertEquals(2, function.getNbParameters());
+		program.setVariable("a", 3.0);
+		assertEquals(3.0, (Double) program.getVariable(1), EPSILON);
+		Program undefined = factory.createProgram(new ArrayList<Function>(),
+				factory.createPrintStatement(factory.createReadVariableExpression("c", location), location));
+		try {
+			programShip.setProgram(undefined);
+			fail();
+		}
+		catch (IllegalArgumentException exc) {
+			assertTrue(programShip.getProgram() == program);
+		}
+	}
+
+	@Test
+	public void testAssignmentStoresValue() throws ClassNotFoundException {
+		List<Statement> statements = new ArrayList<Statement>();
+		statements.add(factory.createAssignmentStatement("a", factory.createDoubleLiteralExpression(1, location), location));
+		statements.add(factory.createAssignmentStatement("a", factory.createAdditionExpression(
+				factory.createReadVariableExpression("a", location), factory.createDoubleLiteralExpression(1, location), location), location));
+		statements.add(factory.createPrintStatement(factory.createReadVariableExpression("a", location), location));
+		loadProgram(statements);
+		assertEquals(Arrays.asList((Object) 2.0), programShip.executeProgram(1.0));
+	}
+
+	@Test
+	public void testAssignmentKeepsType() throws ClassNotFoundException {
+		List<Statement> statements = new ArrayList<Statement>();
+		statements.add(factory.createAssignmentStatement("a", factory.createSelfExpression(location), location));
+		statements.add(factory.createAssignmentStatement("a", factory.createNullExpression(location), location));
+		statements.add(factory.createAssignmentStatement("a", factory.createSelfExpression(location), location));
+		statements.add(factory.createAssignmentStatement("a", factory.createDoubleLiteralExpression(7, location), location));
+		Program program = loadProgram(statements);
+		try {
+			programShip.executeProgram(1.0);
+			fail();
+		}
+		catch (IllegalArgumentException exc) {
+			assertTrue(program.getVariable("a") == programShip);
+		}
+	}
+
+	@Test
+	public void testFunctionCallBinding() throws ClassNotFoundException {
+		Function function = factory.createFunctionDefinition(new String("f"),
+				factory.createReturnStatement(factory.createAdditionExpression(factory.createReadParameterExpression("$1", location),
+						factory.createDoubleLiteralExpression(2, location), location), location), location);
+		List<Expression<?>> arguments = new ArrayList<Expression<?>>();
+		arguments.add(factory.createDoubleLiteralExpression(1, location));
+		FunctionInvocationExpression call = (FunctionInvocationExpression)
+				factory.createFunctionCallExpression(new String("f"), arguments, location);
+		Program program = factory.createProgram(Collections.singletonList(function), factory.createPrintStatement(call, location));
+		assertNull(call.getTarget());
+		programShip.setProgram(program);
+		assertTrue(call.getTarget() == function);
+		assertEquals(3.0, (Double) call.evaluate(programShip, null), EPSILON);
+		assertFalse(function.getReturnReached());
+		assertEquals(Arrays.asList((Object) 3.0), programShip.executeProgram(1.0));
+	}
+
+	@Test
+	public void testResumableExecution() throws ClassNotFoundException {
+		List<Statement> statements = new ArrayList<Statement>();
+		statements.add(factory.createPrintStatement(factory.createDoubleLiteralExpression(1, location), location));
+		statements.add(factory.createThrustOnStatement(location));
+		statements.add(factory.createPrintStatement(factory.createDoubleLiteralExpression(2, location), location));
+		Program program = loadProgram(statements);
+		assertEquals(Arrays.asList((Object) 1.0), programShip.executeProgram(0.15));
+		assertFalse(program.isFinished());
+		assertFalse(programShip.isThrusterOn());
+		List<Object> results = programShip.executeProgram(0.1);
+		assertTrue(program.isFinished());
+		assertTrue(programShip.isThrusterOn());
+		assertEquals(Arrays.asList((Object) 1.0, 2.0), results);
+		assertEquals(0.05, program.getExecuteTime(), EPSILON);
+	}
+
+	@Test
+	public void testTurnToInvalidOrientation() throws ClassNotFoundException {
+		List<Statement> statements = new ArrayList<Statement>();
+		statements.add(factory.createTurnStatement(factory.createDoubleLiteralExpression(10, location), location));
+		statements.add(factory.createPrintStatement(factory.createDoubleLiteralExpression(0.4, location), location));
+		Program program = loadProgram(statements);
+		try {
+			programShip.executeProgram(0.45);
+			fail();
+		}
+		catch (IllegalArgumentException exc) {
+			assertEquals(1.5, programShip.getOrientation(), EPSILON);
+			assertTrue(program.getPrintResults().isEmpty());
+		}
+	}
+
+	@Test
+	public void testFailedExecutionRestarts() throws ClassNotFoundException {
+		List<Statement> statements = new ArrayList<Statement>();
+		statements.add(factory.createPrintStatement(factory.createDoubleLiteralExpression(1, location), location));
+		statements.add(factory.createPrintStatement(factory.createAdditionExpression(factory.createSelfExpression(location),
+				factory.createDoubleLiteralExpression(1, location), location), location));
+		Program program = loadProgram(statements);
+		for (int i = 0; i < 2; i++){
+			try {
+				programShip.executeProgram(1.0);
+				fail();
+			}
+			catch (ClassCastException exc) {
+			}
+		}
+		assertEquals(Arrays.asList((Object) 1.0, 1.0), program.getPrintResults());
+	}
+
+	@Test
+	public void testRecursiveCallResumesNothing() throws ClassNotFoundException {
+		// def fac { if $1 < 1.5 { return 1.0; } else { return $1 * fac($1 + -1.0); } } print fac(4.0);
+		List<Expression<?>> arguments = new ArrayList<Expression<?>>();
+		arguments.add(factory.createAdditionExpression(factory.createReadParameterExpression("$1", location),
+				factory.createDoubleLiteralExpression(-1, location), location));
+		Statement body = factory.createIfStatement(factory.createLessThanExpression(
+				factory.createReadParameterExpression("$1", location), factory.createDoubleLiteralExpression(1.5, location), location),
+				factory.createReturnStatement(factory.createDoubleLiteralExpression(1, location), location),
+				factory.createReturnStatement(factory.createMultiplicationExpression(factory.createReadParameterExpression("$1", location),
+						factory.createFunctionCallExpression("fac", arguments, location), location), location), location);
+		List<Expression<?>> four = new ArrayList<Expression<?>>();
+		four.add(factory.createDoubleLiteralExpression(4, location));
+		Program program = factory.createProgram(Collections.singletonList(factory.createFunctionDefinition("fac", body, location)),
+				factory.createPrintStatement(factory.createFunctionCallExpression("fac", four, location), location));
+		programShip.setProgram(program);
+		assertEquals(Arrays.asList((Object) 24.0), programShip.executeProgram(1.0));
+	}
+
+	@Test
+	public void testFunctionLocalVariables() throws ClassNotFoundException {
+		// def f { a := $1; return a; } a := 20.0; print f(10.0); print a;
+		List<Statement> body = new ArrayList<Statement>();
+		body.add(factory.createAssignmentStatement("a", factory.createReadParameterExpression("$1", location), location));
+		body.add(factory.createReturnStatement(factory.createReadVariableExpression("a", location), location));
+		Function function = factory.createFunctionDefinition("f",
+				factory.createSequenceStatement(body, location), location);
+		List<Expression<?>> arguments = new ArrayList<Expression<?>>();
+		arguments.add(factory.createDoubleLiteralExpression(10, location));
+		List<Statement> statements = new ArrayList<Statement>();
+		statements.add(factory.createAssignmentStatement("a", factory.createDoubleLiteralExpression(20, location), location));
+		statements.add(factory.createPrintStatement(factory.createFunctionCallExpression("f", arguments, location), location));
+		statements.add(factory.createPrintStatement(factory.createReadVariableExpression("a", location), location));
+		Program program = factory.createProgram(Collections.singletonList(function),
+				factory.createSequenceStatement(statements, location));
+		programShip.setProgram(program);
+		assertEquals(Arrays.asList((Object) 10.0, 20.0), programShip.executeProgram(1.0));
+		arguments.clear();
+		try {
+			programShip.executeProgram(1.0);
+			fail();
+		}
+		catch (IllegalArgumentException exc) {
+		}
+	}
+
+	@Test
+	public void testShrinkingPlanetoidInBroadPhase() {
+		for (boolean sweepAndPrune : new boolean[] {false, true}){
+			World world = new World(5000, 5000);
+			world.setUsingSweepAndPrune(sweepAndPrune);
+			Planetoid planetoid = new Planetoid(1000, 1000, 1000, 0, 5.5, 499000);
+			planetoid.placeInSpace(world);
+			Asteroid asteroid = new Asteroid(1000, 3000, 0, 10, 10);
+			asteroid.placeInSpace(world);
+			world.evolve(1.5, null);
+			world.evolve(1.0, null);
+			assertTrue(planetoid.isTerminated());
+			assertEquals(Arrays.asList(asteroid), new ArrayList<RoundEntity>(world.getEntities()));
+			assertEquals(3025, asteroid.getyPosition(), EPSILON);
+		}
+	}
+
+	@Test
+	public void testCollisionsBeyondBroadPhaseHorizon() {
+		World world = new World(5000, 5000);
+		Asteroid first = new Asteroid(1000, 2500, 10, 0, 10);
+		Asteroid second = new Asteroid(2020, 2500, -10, 0, 10);
+		first.placeInSpace(world);
+		second.placeInSpace(world);
+		new Asteroid(4000, 4000, 0, 0, 10).placeInSpace(world);
+		world.evolve(0.5, null);
+		assertEquals(49.5, world.getTimeNextCollision(), EPSILON);
+		Set<Set<RoundEntity>> collisions = world.getCollisions();
+		assertEquals(1, collisions.size());
+		assertEquals(new HashSet<RoundEntity>(Arrays.asList(first, second)), collisions.iterator().next());
+		assertEquals(1510, world.getPositionNextCollision()[0], EPSILON);
+		assertEquals(2500, world.getPositionNextCollision()[1], EPSILON);
+		first.setVelocity(0, 0);
+		second.setVelocity(0, 0);
+		assertEquals(Double.POSITIVE_INFINITY, world.getTimeNextCollision(), EPSILON);
+		for (Set<RoundEntity> collision : world.getCollisions())
+			assertEquals(1, collision.size());
+	}
+
+	/**
+	 * Return a world of the given size filled with asteroids at seeded random positions and velocities.
+	 * The asteroids lie on a lattice with a spacing of 100, so no two of them overlap.
+	 */
+	private World createRandomWorld(long seed, double size, int nbAsteroids) {
+		Random random = new Random(seed);
+		World world = new World(size, size);
+		int nbColumns = (int) (size/100) - 1;
+		Set<Integer> taken = new HashSet<Integer>();
+		while (taken.size() < nbAsteroids){
+			int cell = random.nextInt(nbColumns*nbColumns);
+			if (!taken.add(cell))
+				continue;
+			double x = 100 + (cell % nbColumns)*100 + random.nextDouble()*20 - 10;
+			double y = 100 + (cell / nbColumns)*100 + random.nextDouble()*20 - 10;
+			new Asteroid(x, y, random.nextDouble()*100 - 50, random.nextDouble()*100 - 50,
+					10 + random.nextDouble()*20).placeInSpace(world);
+		}
+		return world;
+	}
+
+	@Test
+	public void testCollisionGridMatchesAllPairs() {
+		for (long seed = 0; seed < 5; seed++){
+			World world = createRandomWorld(seed, 3000, 200);
+			for (int step = 0; step < 5; step++){
+				List<RoundEntity> entities = new ArrayList<RoundEntity>(world.getEntities());
+				double expected = Double.POSITIVE_INFINITY;
+				for (int i = 0; i < entities.size(); i++){
+					expected = Math.min(expected, entities.get(i).computeTimeToHitWall());
+					for (int j = i+1; j < entities.size(); j++){
+						double time = entities.get(i).computeTimeToCollision(entities.get(j));
+						if (time != -0.0)
+							expected = Math.min(expected, time);
+					}
+				}
+				assertEquals(expected, world.getTimeNextCollision(), EPSILON);
+				world.evolve(0.5, null);
+			}
+		}
+	}
+
+
+	@Test
+	public void testSweepAndPruneMatchesCollisionGrid() {
+		for (long seed = 0; seed < 3; seed++){
+			World gridWorld = createRandomWorld(seed, 3000, 200);
+			World sweepWorld = createRandomWorld(seed, 3000, 200);
+			sweepWorld.setUsingSweepAndPrune(true);
+			for (int step = 0; step < 5; step++){
+				assertEquals(gridWorld.getTimeNextCollision(), sweepWorld.getTimeNextCollision(), EPSILON);
+				gridWorld.evolve(0.5, null);
+				sweepWorld.evolve(0.5, null);
+				assertEquals(gridWorld.getEntities().size(), sweepWorld.getEntities().size());
+				Iterator<RoundEntity> sweepEntities = sweepWorld.getEntities().iterator();
+				for (RoundEntity entity : gridWorld.getEntities()){
+					RoundEntity sweepEntity = sweepEntities.next();
+					assertEquals(entity.getxPosition(), sweepEntity.getxPosition(), EPSILON);
+					assertEquals(entity.getyPosition(), sweepEntity.getyPosition(), EPSILON);
+					assertEquals(entity.getxVelocity(), sweepEntity.getxVelocity(), EPSILON);
+					assertEquals(entity.getyVelocity(), sweepEntity.getyVelocity(), EPSILON);
+				}
+			}
+		}
+	}
+
+
+	@Test
+	public void testVelocityChangeInvalidatesCachedTimes() {
+		World world = new World(2000, 2000);
+		Asteroid first = new Asteroid(100, 500, 100, 0, 20);
+		Asteroid second = new Asteroid(300, 500, 0, 0, 20);
+		first.placeInSpace(world);
+		second.placeInSpace(world);
+		assertEquals(1.6, first.getTimeToCollision(second), EPSILON);
+		assertEquals(1.6, world.getTimeNextCollision(), EPSILON);
+		first.setVelocity(50, 0);
+		assertEquals(3.2, first.getTimeToCollision(second), EPSILON);
+		assertEquals(3.2, world.getTimeNextCollision(), EPSILON);
+		first.setVelocity(0, 0);
+		assertEquals(Double.POSITIVE_INFINITY, first.getTimeToCollision(second), EPSILON);
+		assertEquals(Double.POSITIVE_INFINITY, first.getTimeToHitWall(), EPSILON);
+		assertEquals(Double.POSITIVE_INFINITY, world.getTimeNextCollision(), EPSILON);
+	}
+
+
+	@Test
+	public void testVelocityChangeInvalidatesScheduledCollisions() {
+		World world = new World(2000, 2000);
+		Asteroid first = new Asteroid(100, 500, 100, 0, 20);
+		Asteroid second = new Asteroid(300, 500, 0, 0, 20);
+		Asteroid third = new Asteroid(310, 900, 0, -100, 20);
+		first.placeInSpace(world);
+		second.placeInSpace(world);
+		third.placeInSpace(world);
+		assertTrue(second.getTimeToCollision(third) < 5);
+		world.evolve(5, null);
+		assertEquals(0, first.getxVelocity(), EPSILON);
+		assertEquals(100, second.getxVelocity(), EPSILON);
+		assertEquals(0, third.getxVelocity(), EPSILON);
+		assertEquals(-100, third.getyVelocity(), EPSILON);
+		assertEquals(400, third.getyPosition(), EPSILON);
+	}
+
+
+	@Test
+	public void testBytecodeFunctions() throws ClassNotFoundException {
+		String code = "def fac { if $1 < 1.5 { return 1.0; } else { return $1 * fac($1 + -1.0); } } "
+				+ "def steps { n := 0.0; d := $1; while d < $2 { d := d + 200.0; n := n + 1.0; } return n; } "
+				+ "def same { if $1 == $1 { return !($1 < $2); } else { return 0.0; } } "
+				+ "def show { print $1; return $1; } "
+				+ "print fac(4.0); print steps(150.0, 1000.0); print same(2.0, 1.0); x := show(getx self); print x;";
+		for (boolean bytecode : new boolean[] {false, true}){
+			ExpressionCompiler.setBytecodeEnabled(bytecode);
+			try {
+				Program program = ProgramParser.parseProgramFromString(code, factory);
+				programShip.setProgram(program);
+				assertEquals(Arrays.asList((Object) 24.0, 5.0, true, 500.0, 500.0), programShip.executeProgram(1.0));
+				assertEquals(bytecode, program.getFunctions().get(0).isCompiled());
+				assertEquals(bytecode, program.getFunctions().get(1).isCompiled());
+				assertEquals(bytecode, program.getFunctions().get(2).isCompiled());
+				assertFalse(program.getFunctions().get(3).isCompiled());
+			}
+			finally {
+				ExpressionCompiler.setBytecodeEnabled(false);
+			}
+		}
+	}
+
+	@Test
+	public void testBytecodeFunctionErrors() throws ClassNotFoundException {
+		ExpressionCompiler.setBytecodeEnabled(true);
+		try {
+			Program program = ProgramParser.parseProgramFromString(
+					"def f { a := 1.0; a := self; return a; } print f();", factory);
+			programShip.setProgram(program);
+			assertTrue(program.getFunctions().get(0).isCompiled());
+			try {
+				programShip.executeProgram(1.0);
+				fail();
+			}
+			catch (IllegalArgumentException exc) {
+			}
+			program = ProgramParser.parseProgramFromString("def f { a := 1.0; } print f();", factory);
+			programShip.setProgram(program);
+			assertTrue(program.getFunctions().get(0).isCompiled());
+			try {
+				programShip.executeProgram(1.0);
+				fail();
+			}
+			catch (IllegalStateException exc) {
+			}
+		}
+		finally {
+			ExpressionCompiler.setBytecodeEnabled(false);
+		}
+	}
+
+	@Test
+	public void testGetEntityOfClassOnMixedWorld() throws ClassNotFoundException{
+		World world = new World(5000, 5000);
+		Ship firstShip = new Ship(500, 500, 0, 0, 50, 0, 10E12);
+		Ship secondShip = new Ship(1000, 500, 0, 0, 50, 0, 10E12);
+		Bullet bullet = new Bullet(1500, 500, 0, 0, 10);
+		Asteroid firstAsteroid = new Asteroid(500, 1500, 0, 0, 50);
+		Asteroid secondAsteroid = new Asteroid(1000, 1500, 0, 0, 50);
+		Planetoid planetoid = new Planetoid(1500, 1500, 0, 0, 50, 0);
+		RoundEntity[] entities = {firstShip, secondShip, bullet, firstAsteroid, secondAsteroid, planetoid};
+		for (RoundEntity entity : entities)
+			entity.placeInSpace(world);
+		Class<?>[] classes = {Ship.class, Bullet.class, Asteroid.class, Planetoid.class, MinorPlanet.class, RoundEntity.class};
+		for (Class<?> cls : classes){
+			Set<RoundEntity> expected = new HashSet<RoundEntity>();
+			for (RoundEntity entity : entities)
+				if (cls.isInstance(entity))
+					expected.add(entity);
+			assertEquals(expected, new HashSet<RoundEntity>(world.getEntityOfClass(cls)));
+		}
+		assertEquals(3, world.getEntityOfClass(MinorPlanet.class).size());
+		assertEquals(6, world.getEntityOfClass(RoundEntity.class).size());
+		firstAsteroid.removeEntityFromWorld(world);
+		assertEquals(2, world.getEntityOfClass(MinorPlanet.class).size());
+		assertEquals(5, world.getEntityOfClass(RoundEntity.class).size());
+	}
+
+	@Test
+	public void testClosestEntityOfClassMatchesBruteForce() throws ClassNotFoundException {
+		for (long seed = 0; seed < 5; seed++){
+			World world = createRandomWorld(seed, 3000, 200);
+			Random random = new Random(seed);
+			// Ships lie between the lattice points of the asteroids, so they never overlap one.
+			for (int i = 0; i < 10; i++)
+				new Ship(150 + random.nextInt(28)*100, 150 + random.nextInt(28)*100, 0, 0, 10, 0, 10E12).placeInSpace(world);
+			Class<?>[] classes = {Ship.class, Asteroid.class, MinorPlanet.class};
+			for (int step = 0; step < 5; step++){
+				for (RoundEntity entity : new ArrayList<RoundEntity>(world.getEntityOfClass(Ship.class))){
+					Ship ship = (Ship) entity;
+					for (Class<?> cls : classes){
+						double expected = Double.POSITIVE_INFINITY;
+						for (RoundEntity other : world.getEntityOfClass(cls))
+							expected = Math.min(expected, ship.getDistanceBetween(other));
+						RoundEntity closest = ship.getClosestEntityOfClass(cls);
+						assertTrue(cls.isInstance(closest));
+						assertEquals(expected, ship.getDistanceBetween(closest), EPSILON);
+					}
+				}
+				world.evolve(0.5, null);
+			}
+		}
+	}
+
+	@Test
+	public void testParallelEvolveMatchesSerialEvolve() {
+		for (long seed = 0; seed < 2; seed++){
+			// More entities than ParallelEvolution.CHUNK_SIZE, so the work is split over several tasks.
+			World serialWorld = createRandomWorld(seed, 3000, 600);
+			World parallelWorld = createRandomWorld(seed, 3000, 600);
+			assertTrue(parallelWorld.getEntities().size() > ParallelEvolution.CHUNK_SIZE);
+			parallelWorld.setUsingParallelEvolve(true);
+			for (int step = 0; step < 3; step++){
+				assertEquals(serialWorld.getTimeNextCollision(), parallelWorld.getTimeNextCollision(), 0);
+				serialWorld.evolve(0.5, null);
+				parallelWorld.evolve(0.5, null);
+				List<RoundEntity> serialEntities = new ArrayList<RoundEntity>(serialWorld.getEntities());
+				List<RoundEntity> parallelEntities = new ArrayList<RoundEntity>(parallelWorld.getEntities());
+				assertEquals(serialEntities.size(), parallelEntities.size());
+				for (int i = 0; i < serialEntities.size(); i++){
+					RoundEntity serial = serialEntities.get(i);
+					RoundEntity parallel = parallelEntities.get(i);
+					assertEquals(serial.getxPosition(), parallel.getxPosition(), 0);
+					assertEquals(serial.getyPosition(), parallel.getyPosition(), 0);
+					assertEquals(serial.getxVelocity(), parallel.getxVelocity(), 0);
+					assertEquals(serial.getyVelocity(), parallel.getyVelocity(), 0);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testFixedTimestep() {
+		final FixedTimestep timestep = new FixedTimestep(1.0/60, 5);
+		assertEquals(1, timestep.advance(1.0/60));
+		assertEquals(0, timestep.getAlpha(), EPSILON);
+		assertEquals(1, timestep.advance(0.025));
+		assertEquals(0.5, timestep.getAlpha(), EPSILON);
+		assertEquals(0, timestep.advance(0));
+		assertEquals(0, timestep.advance(-1));
+		// A long pause is simulated by at most five steps, the rest is dropped.
+		assertEquals(5, timestep.advance(1.0));
+		assertEquals(55, timestep.getDroppedSteps());
+		assertEquals(0.5, timestep.getAlpha(), EPSILON);
+		final Map<Object, double[]> previousPositions = new HashMap<Object, double[]>();
+		Object moved = new Object();
+		previousPositions.put(moved, new double[] {100, 200});
+		DrawContext<Facade> context = new DrawContext<Facade>() {
+			public Graphics2D getGraphics() {
+				return null;
+			}
+			public Facade getFacade() {
+				return null;
+			}
+			public double worldToScreenX(double x) {
+				return x;
+			}
+			public double worldToScreenY(double y) {
+				return y;
+			}
+			public void handleError(ModelException e) {
+			}
+			public double[] getDrawPosition(Object object, double[] position) {
+				return timestep.interpolate(previousPositions.get(object), position);
+			}
+		};
+		double[] drawPosition = context.getDrawPosition(moved, new double[] {200, 100});
+		assertEquals(150, drawPosition[0], EPSILON);
+		assertEquals(150, drawPosition[1], EPSILON);
+		double[] position = {300, 400};
+		assertTrue(position == context.getDrawPosition(new Object(), position));
+		assertEquals(1, timestep.advance(0.0175));
+		assertEquals(0.55, timestep.getAlpha(), EPSILON);
+		drawPosition = context.getDrawPosition(moved, new double[] {200, 100});
+		assertEquals(155, drawPosition[0], EPSILON);
+		assertEquals(145, drawPosition[1], EPSILON);
+	}
+
+	@Test
+	public void testIndexesBuiltAfterEntitiesArePlaced() throws ClassNotFoundException {
+		World world = new World(5000, 5000);
+		world.setUsingSweepAndPrune(true);
+		Ship ship = new Ship(500, 500, 0, 0, 50, 0, 10E12);
+		Asteroid leftAsteroid = new Asteroid(200, 500, 0, 0, 50);
+		Asteroid rightAsteroid = new Asteroid(1000, 500, -100, 0, 50);
+		Asteroid removedAsteroid = new Asteroid(500, 700, 0, 0, 50);
+		ship.placeInSpace(world);
+		leftAsteroid.placeInSpace(world);
+		rightAsteroid.placeInSpace(world);
+		removedAsteroid.placeInSpace(world);
+		removedAsteroid.removeEntityFromWorld(world);
+		// None of the indexes of the world has been asked for before this point.
+		assertEquals(rightAsteroid, world.getEntityAt(1000.0, 500.0));
+		assertEquals(null, world.getEntityAt(500.0, 700.0));
+		assertEquals(2, world.getEntitiesWithin(500, 500, 260).size());
+		assertEquals(leftAsteroid, ship.getClosestEntityOfClass(Asteroid.class));
+		assertEquals(2, world.getEntityOfClass(Asteroid.class).size());
+		assertTrue(world.isUsingSweepAndPrune());
+		assertEquals(4.0, world.getTimeNextCollision(), EPSILON);
+		assertEquals(removedAsteroid, removedAsteroid.getSpace().getEntityAt(500.0, 700.0));
+	}
 }
\ No newline at end of file
@@ -9,5 +9,18 @@ public class World extends Space {
 		super(width,height);
 		
 	}
+	
+	/**
+	 * Initialize this new world with the given width and height, storing the positions
+	 * and velocities of its entities in columns if the given flag is true.
+	 * 
+	 * @effect	| this(width, height)
+	 * @effect	| setColumnarStorage(columnarStorage)
+	 */
+	@Raw
+	public World(double width, double height, boolean columnarStorage) throws IllegalArgumentException{
+		this(width,height);
+		this.setColumnarStorage(columnarStorage);
+	}
 
 }
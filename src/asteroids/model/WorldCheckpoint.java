@@ -0,0 +1,345 @@
+package asteroids.model;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A class of checkpoints that save the state of a world to a binary file and restore it, both through
+ * a memory-mapped file.
+ *
+ * A checkpoint starts with a header holding a magic number, the format version, the width and height
+ * of the world and the number of records. Each record holds one entity: its kind, position, velocity
+ * and radius, followed by the state of its kind.
+ * - A ship holds its own mass without bullets, its orientation, whether its thruster is on and
+ *   the index of its program in the list of programs given to save and load, -1 if it has none.
+ * - A bullet holds its number of wall hits, the record of the ship it is loaded in, the record of its
+ *   source and whether it is one of the fired bullets of that source, records being -1 if absent.
+ * - A planetoid holds its total traveled distance. Its radius is the radius it started with.
+ * - An asteroid holds nothing more.
+ * Entities are written in the order they were created, each ship followed by its loaded bullets in the
+ * order they will be fired. All numbers are big-endian.
+ *
+ * Restored entities are new entities, with new identifiers. They are created without an unbound space of their
+ * own and added to the restored world at once, without checking again whether they overlap.
+ *
+ * @version 1.0
+ *
+ * @author Amber Van Camp & Jasper Vanmeerbeeck
+ */
+public final class WorldCheckpoint {
+
+	/**
+	 * Constant registering the magic number every checkpoint starts with, "ASTW" in ASCII.
+	 */
+	public static final int MAGIC = 0x41535457;
+
+	/**
+	 * Constant registering the version of the format written by this class.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * Constants registering the kind of each record.
+	 */
+	private static final byte SHIP = 0, BULLET = 1, ASTEROID = 2, PLANETOID = 3;
+
+	/**
+	 * Constants registering the size in bytes of the header and of each kind of record.
+	 */
+	private static final int HEADER_SIZE = 4+4+8+8+4;
+	private static final int ENTITY_SIZE = 1+5*8;
+	private static final int SHIP_SIZE = ENTITY_SIZE+8+8+1+4;
+	private static final int BULLET_SIZE = ENTITY_SIZE+8+4+4+1;
+	private static final int ASTEROID_SIZE = ENTITY_SIZE;
+	private static final int PLANETOID_SIZE = ENTITY_SIZE+8;
+
+//	All methods related to saving a world.
+
+	/**
+	 * Save the state of the given world and of the bullets loaded in its ships to the file at the given path,
+	 * replacing its contents.
+	 *
+	 * @param 	world
+	 * 			The world to save.
+	 * @param 	path
+	 * 			The path of the checkpoint file.
+	 * @param 	programs
+	 * 			The programs the ships of the world may have, possibly null if none of them has a program.
+	 * 			Each program is saved as its index in this list.
+	 * @throws	IllegalArgumentException
+	 * 			The world is not effective or terminated, a ship has a program that is not in the given list,
+	 * 			or the checkpoint would be larger than 2 GB.
+	 * @throws	IOException
+	 * 			The file could not be written.
+	 */
+	public static void save(World world, Path path, List<Program> programs)
+			throws IllegalArgumentException, IOException{
+		if (world == null || world.isTerminated())
+			throw new IllegalArgumentException();
+		List<RoundEntity> records = getRecords(world);
+		Map<RoundEntity, Integer> indices = new IdentityHashMap<RoundEntity, Integer>();
+		long size = HEADER_SIZE;
+		for (int i = 0; i < records.size(); i++){
+			indices.put(records.get(i), i);
+			size += getRecordSize(records.get(i));
+		}
+		if (size > Integer.MAX_VALUE)
+			throw new IllegalArgumentException();
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			buffer.putInt(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putDouble(world.getWidth());
+			buffer.putDouble(world.getHeight());
+			buffer.putInt(records.size());
+			for (RoundEntity entity : records)
+				write(buffer, entity, indices, programs);
+			buffer.force();
+		}
+		finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Return all entities of the given world in the order they were created, each ship followed by its loaded bullets.
+	 */
+	private static List<RoundEntity> getRecords(World world){
+		List<RoundEntity> entities = new ArrayList<RoundEntity>(world.getEntities());
+		Collections.sort(entities, new Comparator<RoundEntity>(){
+			@Override
+			public int compare(RoundEntity first, RoundEntity second){
+				return Long.compare(first.getId(), second.getId());
+			}
+		});
+		List<RoundEntity> records = new ArrayList<RoundEntity>(entities.size());
+		for (RoundEntity entity : entities){
+			records.add(entity);
+			if (entity instanceof Ship)
+				records.addAll(((Ship) entity).getBullets());
+		}
+		return records;
+	}
+
+	/**
+	 * Return the size in bytes of the record of the given entity.
+	 *
+	 * @throws	IllegalArgumentException
+	 * 			The given entity is of a kind that can't be saved.
+	 */
+	private static int getRecordSize(RoundEntity entity) throws IllegalArgumentException{
+		if (entity instanceof Ship)
+			return SHIP_SIZE;
+		if (entity instanceof Bullet)
+			return BULLET_SIZE;
+		if (entity instanceof Asteroid)
+			return ASTEROID_SIZE;
+		if (entity instanceof Planetoid)
+			return PLANETOID_SIZE;
+		throw new IllegalArgumentException();
+	}
+
+	/**
+	 * Write the record of the given entity to the given buffer.
+	 */
+	private static void write(MappedByteBuffer buffer, RoundEntity entity, Map<RoundEntity, Integer> indices,
+			List<Program> programs) throws IllegalArgumentException{
+		byte kind = (entity instanceof Ship) ? SHIP : (entity instanceof Bullet) ? BULLET :
+			(entity instanceof Asteroid) ? ASTEROID : PLANETOID;
+		buffer.put(kind);
+		buffer.putDouble(entity.getxPosition());
+		buffer.putDouble(entity.getyPosition());
+		buffer.putDouble(entity.getxVelocity());
+		buffer.putDouble(entity.getyVelocity());
+		buffer.putDouble(entity.radius);
+		if (kind == SHIP){
+			Ship ship = (Ship) entity;
+			buffer.putDouble(ship.getShipMass());
+			buffer.putDouble(ship.getOrientation());
+			buffer.put((byte) (ship.isThrusterOn() ? 1 : 0));
+			buffer.putInt(getProgramIndex(ship.getProgram(), programs));
+		}
+		else if (kind == BULLET){
+			Bullet bullet = (Bullet) entity;
+			buffer.putDouble(bullet.getNbWallHits());
+			buffer.putInt(getIndex(bullet.getShip(), indices));
+			buffer.putInt(getIndex(bullet.getSource(), indices));
+			buffer.put((byte) ((bullet.getSource() != null && bullet.getSource().firedBullets.contains(bullet)) ? 1 : 0));
+		}
+		else if (kind == PLANETOID)
+			buffer.putDouble(((Planetoid) entity).getTotalTraveledDistance());
+	}
+
+	/**
+	 * Return the index of the record of the given entity, -1 if the entity is null or not saved.
+	 */
+	private static int getIndex(RoundEntity entity, Map<RoundEntity, Integer> indices){
+		Integer index = (entity == null) ? null : indices.get(entity);
+		return (index == null) ? -1 : index;
+	}
+
+	/**
+	 * Return the index of the given program in the given list of programs, -1 if the program is null.
+	 *
+	 * @throws	IllegalArgumentException
+	 * 			The given program is not in the given list.
+	 */
+	private static int getProgramIndex(Program program, List<Program> programs) throws IllegalArgumentException{
+		if (program == null)
+			return -1;
+		if (programs != null){
+			for (int i = 0; i < programs.size(); i++){
+				if (programs.get(i) == program)
+					return i;
+			}
+		}
+		throw new IllegalArgumentException();
+	}
+
+//	All methods related to loading a world.
+
+	/**
+	 * Restore the world saved in the file at the given path.
+	 *
+	 * @param 	path
+	 * 			The path of the checkpoint file.
+	 * @param 	programs
+	 * 			The programs the restored ships get, by the index saved for them, possibly null if
+	 * 			none of the saved ships had a program.
+	 * @return	A new world holding new entities in the state of the saved entities.
+	 * @throws	IOException
+	 * 			The file could not be read, is not a checkpoint of a supported version, is damaged,
+	 * 			or refers to a program that is not in the given list.
+	 */
+	public static World load(Path path, List<Program> programs) throws IOException{
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException("Not a world checkpoint: " + path);
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return read(buffer, programs);
+		}
+		catch (BufferUnderflowException exc){
+			throw new IOException("Truncated world checkpoint: " + path);
+		}
+		catch (IllegalArgumentException exc){
+			throw new IOException("Damaged world checkpoint: " + path);
+		}
+		finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Restore the world saved in the given buffer.
+	 */
+	private static World read(MappedByteBuffer buffer, List<Program> programs) throws IOException{
+		if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC)
+			throw new IOException("Not a world checkpoint");
+		int version = buffer.getInt();
+		if (version != VERSION)
+			throw new IOException("Unsupported world checkpoint version " + version);
+		World world = new World(buffer.getDouble(), buffer.getDouble());
+		int nbRecords = buffer.getInt();
+		if (nbRecords < 0 || nbRecords > buffer.remaining()/ENTITY_SIZE)
+			throw new IOException("Damaged world checkpoint");
+		RoundEntity[] records = new RoundEntity[nbRecords];
+		// Bullets refer to ships by record, so they are linked once all records are read.
+		int[] shipIndices = new int[nbRecords];
+		int[] sourceIndices = new int[nbRecords];
+		boolean[] fired = new boolean[nbRecords];
+		List<RoundEntity> worldEntities = new ArrayList<RoundEntity>(nbRecords);
+		for (int i = 0; i < nbRecords; i++){
+			byte kind = buffer.get();
+			double x = buffer.getDouble(), y = buffer.getDouble();
+			double xVelocity = buffer.getDouble(), yVelocity = buffer.getDouble();
+			double radius = buffer.getDouble();
+			shipIndices[i] = -1;
+			if (kind == SHIP){
+				double mass = buffer.getDouble();
+				Ship ship = new Ship(x, y, xVelocity, yVelocity, radius, buffer.getDouble(), mass, world);
+				if (buffer.get() != 0)
+					ship.thrustOn();
+				int program = buffer.getInt();
+				if (program != -1){
+					if (programs == null || program < 0 || program >= programs.size())
+						throw new IOException("No program " + program + " for the restored ship");
+					ship.setProgram(programs.get(program));
+				}
+				records[i] = ship;
+			}
+			else if (kind == BULLET){
+				double nbWallHits = buffer.getDouble();
+				shipIndices[i] = buffer.getInt();
+				// A loaded bullet lies in its ship, not in the world.
+				Bullet bullet = new Bullet(x, y, xVelocity, yVelocity, radius, (shipIndices[i] == -1) ? world : null);
+				bullet.setNbWallHits(nbWallHits);
+				sourceIndices[i] = buffer.getInt();
+				fired[i] = buffer.get() != 0;
+				records[i] = bullet;
+			}
+			else if (kind == ASTEROID)
+				records[i] = new Asteroid(x, y, xVelocity, yVelocity, radius, world);
+			else if (kind == PLANETOID)
+				records[i] = new Planetoid(x, y, xVelocity, yVelocity, radius, buffer.getDouble(), world);
+			else
+				throw new IOException("Damaged world checkpoint");
+			if (shipIndices[i] == -1)
+				worldEntities.add(records[i]);
+		}
+		world.addTrustedEntities(worldEntities);
+		List<Bullet> loadedBullets = new ArrayList<Bullet>();
+		for (int i = 0; i < nbRecords; i++){
+			if (!(records[i] instanceof Bullet))
+				continue;
+			Bullet bullet = (Bullet) records[i];
+			if (sourceIndices[i] != -1){
+				Ship source = getShip(records, sourceIndices[i]);
+				bullet.setSource(source);
+				if (fired[i])
+					source.firedBullets.add(bullet);
+			}
+			if (shipIndices[i] != -1){
+				Ship ship = getShip(records, shipIndices[i]);
+				bullet.restoreShip(ship);
+				loadedBullets.add(bullet);
+				// The loaded bullets of a ship directly follow it, so the bullets of one ship are added together.
+				if (i+1 == nbRecords || !(records[i+1] instanceof Bullet) || shipIndices[i+1] != shipIndices[i]){
+					ship.addBullets(loadedBullets);
+					loadedBullets.clear();
+				}
+			}
+		}
+		return world;
+	}
+
+	/**
+	 * Return the ship restored from the record with the given index.
+	 *
+	 * @throws	IOException
+	 * 			That record does not hold a ship.
+	 */
+	private static Ship getShip(RoundEntity[] records, int index) throws IOException{
+		if (index < 0 || index >= records.length || !(records[index] instanceof Ship))
+			throw new IOException("Damaged world checkpoint");
+		return (Ship) records[index];
+	}
+
+	/**
+	 * This class has no instances.
+	 */
+	private WorldCheckpoint(){
+	}
+}
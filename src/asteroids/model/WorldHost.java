@@ -0,0 +1,575 @@
+package asteroids.model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Raw;
+
+/**
+ * A class of hosts that step many independent worlds concurrently on a fixed number of threads.
+ * Each tick of a world executes the programs of its ships and evolves it during the tick duration of that world.
+ * Ticks are requested per world, up to a maximum number of pending ticks, and worlds with pending ticks
+ * take turns, one tick at a time, so a busy world can't starve the others.
+ * A world is never ticked by two threads at once.
+ *
+ * @invar	The number of threads of each host is strictly positive.
+ * 			| getNbThreads() > 0
+ * @invar	The maximum number of pending ticks of each host is strictly positive.
+ * 			| getMaxPendingTicks() > 0
+ *
+ * @version 1.0
+ *
+ * @author Amber Van Camp & Jasper Vanmeerbeeck
+ */
+public class WorldHost {
+
+	/**
+	 * Initialize this new host with the given number of threads and maximum number of pending ticks per world.
+	 *
+	 * @param 	nbThreads
+	 * 			The number of threads stepping the worlds of this host.
+	 * @param 	maxPendingTicks
+	 * 			The largest number of ticks that may be pending for a single world.
+	 * @post	| new.getNbThreads() == nbThreads
+	 * @post	| new.getMaxPendingTicks() == maxPendingTicks
+	 * @throws	IllegalArgumentException
+	 * 			| nbThreads <= 0 || maxPendingTicks <= 0
+	 */
+	@Raw
+	public WorldHost(int nbThreads, int maxPendingTicks) throws IllegalArgumentException{
+		if (nbThreads <= 0 || maxPendingTicks <= 0)
+			throw new IllegalArgumentException();
+		this.maxPendingTicks = maxPendingTicks;
+		this.workers = new Thread[nbThreads];
+		for (int i = 0; i < nbThreads; i++){
+			this.workers[i] = new Thread(new Runnable(){
+				@Override
+				public void run(){
+					work();
+				}
+			}, "WorldHost-worker-" + i);
+			this.workers[i].setDaemon(true);
+			this.workers[i].start();
+		}
+	}
+
+	/**
+	 * The threads stepping the worlds of this host.
+	 */
+	private final Thread[] workers;
+
+	/**
+	 * Return the number of threads stepping the worlds of this host.
+	 */
+	@Basic
+	public int getNbThreads(){
+		return this.workers.length;
+	}
+
+	/**
+	 * Variable registering the largest number of ticks that may be pending for a single world.
+	 */
+	private final int maxPendingTicks;
+
+	/**
+	 * Return the largest number of ticks that may be pending for a single world.
+	 */
+	@Basic
+	public int getMaxPendingTicks(){
+		return this.maxPendingTicks;
+	}
+
+	/**
+	 * The lock guarding all state of this host and of its hosted worlds.
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/**
+	 * Condition signalled when a world is added to the run queue, or when this host is terminated.
+	 */
+	private final Condition workAvailable = lock.newCondition();
+
+	/**
+	 * Condition signalled when a tick has finished.
+	 */
+	private final Condition tickFinished = lock.newCondition();
+
+	/**
+	 * The worlds with pending ticks that are not being ticked, in the order they will be ticked.
+	 */
+	private final ArrayDeque<HostedWorld> runQueue = new ArrayDeque<HostedWorld>();
+
+	/**
+	 * Map registering the hosted world of each world of this host.
+	 */
+	private final Map<World, HostedWorld> hostedWorlds = new HashMap<World, HostedWorld>();
+
+//	All methods related to the worlds of a host.
+
+	/**
+	 * Start hosting the given world, with the given tick duration and tick budget.
+	 *
+	 * @param 	world
+	 * 			The world to host.
+	 * @param 	tickDuration
+	 * 			The time a single tick evolves the world, in seconds.
+	 * @param 	tickBudget
+	 * 			The time a single tick may take, in nanoseconds. Ticks taking longer are counted as overruns.
+	 * @post	| new.hasAsWorld(world)
+	 * @throws	IllegalArgumentException
+	 * 			The world is not effective, terminated or already hosted, or the tick duration or budget is not valid.
+	 * 			| world == null || world.isTerminated() || hasAsWorld(world) ||
+	 * 			|	!RoundEntity.canHaveAsDuration(tickDuration) || tickBudget <= 0
+	 * @throws	IllegalStateException
+	 * 			This host is terminated.
+	 * 			| isTerminated()
+	 */
+	public void addWorld(World world, double tickDuration, long tickBudget)
+			throws IllegalArgumentException, IllegalStateException{
+		if (world == null || world.isTerminated() || !RoundEntity.canHaveAsDuration(tickDuration)
+				|| Double.isInfinite(tickDuration) || tickBudget <= 0)
+			throw new IllegalArgumentException();
+		lock.lock();
+		try {
+			if (this.isTerminated())
+				throw new IllegalStateException();
+			if (this.hostedWorlds.containsKey(world))
+				throw new IllegalArgumentException();
+			this.hostedWorlds.put(world, new HostedWorld(world, tickDuration, tickBudget));
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Stop hosting the given world. Its pending ticks are dropped, a tick that is running is completed.
+	 *
+	 * @param 	world
+	 * 			The world to stop hosting.
+	 * @post	| !new.hasAsWorld(world)
+	 */
+	public void removeWorld(World world){
+		lock.lock();
+		try {
+			HostedWorld hostedWorld = this.hostedWorlds.remove(world);
+			if (hostedWorld != null){
+				hostedWorld.pendingTicks = 0;
+				this.runQueue.remove(hostedWorld);
+				this.tickFinished.signalAll();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Check whether this host hosts the given world.
+	 */
+	public boolean hasAsWorld(World world){
+		lock.lock();
+		try {
+			return this.hostedWorlds.containsKey(world);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Return a new list of all worlds hosted by this host.
+	 */
+	public List<World> getWorlds(){
+		lock.lock();
+		try {
+			return new ArrayList<World>(this.hostedWorlds.keySet());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Return the hosted world of the given world.
+	 *
+	 * @throws	IllegalArgumentException
+	 * 			| !hasAsWorld(world)
+	 */
+	private HostedWorld getHostedWorld(World world) throws IllegalArgumentException{
+		HostedWorld hostedWorld = this.hostedWorlds.get(world);
+		if (hostedWorld == null)
+			throw new IllegalArgumentException();
+		return hostedWorld;
+	}
+
+//	All methods related to the requesting of ticks.
+
+	/**
+	 * Request the given number of ticks of the given world, if that doesn't exceed the maximum number of pending ticks.
+	 *
+	 * @param 	world
+	 * 			The world to tick.
+	 * @param 	nbTicks
+	 * 			The number of ticks to request.
+	 * @return	True if and only if the ticks are requested. False if the world would get too many pending ticks,
+	 * 			if a tick of the world has failed, or if this host is terminated.
+	 * @throws	IllegalArgumentException
+	 * 			| !hasAsWorld(world) || nbTicks < 0
+	 */
+	public boolean offerTicks(World world, int nbTicks) throws IllegalArgumentException{
+		if (nbTicks < 0)
+			throw new IllegalArgumentException();
+		lock.lock();
+		try {
+			HostedWorld hostedWorld = this.getHostedWorld(world);
+			if (this.isTerminated() || hostedWorld.failure != null
+					|| hostedWorld.pendingTicks + nbTicks > this.getMaxPendingTicks())
+				return false;
+			this.addPendingTicks(hostedWorld, nbTicks);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Request the given number of ticks of the given world, waiting as long as the world would get
+	 * too many pending ticks.
+	 *
+	 * @param 	world
+	 * 			The world to tick.
+	 * @param 	nbTicks
+	 * 			The number of ticks to request.
+	 * @throws	IllegalArgumentException
+	 * 			The world is not hosted by this host, or more ticks are requested than may ever be pending.
+	 * 			| !hasAsWorld(world) || nbTicks < 0 || nbTicks > getMaxPendingTicks()
+	 * @throws	IllegalStateException
+	 * 			A tick of the world has failed, or this host is terminated.
+	 * @throws	InterruptedException
+	 * 			The current thread is interrupted while waiting.
+	 */
+	public void submitTicks(World world, int nbTicks)
+			throws IllegalArgumentException, IllegalStateException, InterruptedException{
+		if (nbTicks < 0 || nbTicks > this.getMaxPendingTicks())
+			throw new IllegalArgumentException();
+		lock.lock();
+		try {
+			HostedWorld hostedWorld = this.getHostedWorld(world);
+			while (hostedWorld.pendingTicks + nbTicks > this.getMaxPendingTicks()
+					&& hostedWorld.failure == null && !this.isTerminated() && this.hostedWorlds.get(world) == hostedWorld)
+				this.tickFinished.await();
+			if (this.isTerminated() || hostedWorld.failure != null)
+				throw new IllegalStateException();
+			this.addPendingTicks(this.getHostedWorld(world), nbTicks);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Wait until the given world has no pending or running ticks.
+	 *
+	 * @param 	world
+	 * 			The world to wait for.
+	 * @throws	InterruptedException
+	 * 			The current thread is interrupted while waiting.
+	 */
+	public void awaitTicks(World world) throws InterruptedException{
+		lock.lock();
+		try {
+			HostedWorld hostedWorld = this.hostedWorlds.get(world);
+			if (hostedWorld == null)
+				return;
+			while ((hostedWorld.pendingTicks > 0 && !this.isTerminated()) || hostedWorld.isRunning)
+				this.tickFinished.await();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Return the number of ticks of the given world that are requested but not yet started.
+	 *
+	 * @throws	IllegalArgumentException
+	 * 			| !hasAsWorld(world)
+	 */
+	public int getNbPendingTicks(World world) throws IllegalArgumentException{
+		lock.lock();
+		try {
+			return this.getHostedWorld(world).pendingTicks;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Add the given number of ticks to the pending ticks of the given hosted world,
+	 * putting it at the end of the run queue if it was not waiting or running yet.
+	 */
+	private void addPendingTicks(HostedWorld hostedWorld, int nbTicks){
+		boolean wasIdle = hostedWorld.pendingTicks == 0 && !hostedWorld.isRunning;
+		hostedWorld.pendingTicks += nbTicks;
+		if (wasIdle && hostedWorld.pendingTicks > 0){
+			this.runQueue.addLast(hostedWorld);
+			this.workAvailable.signal();
+		}
+	}
+
+//	All methods related to the stepping of the worlds.
+
+	/**
+	 * Keep ticking the world at the front of the run queue, until this host is terminated.
+	 */
+	private void work(){
+		while (true){
+			HostedWorld hostedWorld;
+			lock.lock();
+			try {
+				while (this.runQueue.isEmpty() && !this.isTerminated())
+					this.workAvailable.awaitUninterruptibly();
+				if (this.isTerminated())
+					return;
+				hostedWorld = this.runQueue.pollFirst();
+				hostedWorld.pendingTicks--;
+				hostedWorld.isRunning = true;
+			} finally {
+				lock.unlock();
+			}
+			long start = System.nanoTime();
+			RuntimeException failure = null;
+			try {
+				tick(hostedWorld.world, hostedWorld.tickDuration);
+			} catch (RuntimeException exc){
+				failure = exc;
+			}
+			long latency = System.nanoTime() - start;
+			lock.lock();
+			try {
+				hostedWorld.isRunning = false;
+				hostedWorld.registerTick(latency);
+				if (failure != null){
+					hostedWorld.failure = failure;
+					hostedWorld.pendingTicks = 0;
+				}
+				// The world goes to the back of the queue, so all other waiting worlds get a tick first.
+				if (hostedWorld.pendingTicks > 0 && this.hostedWorlds.get(hostedWorld.world) == hostedWorld){
+					this.runQueue.addLast(hostedWorld);
+					this.workAvailable.signal();
+				}
+				this.tickFinished.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Execute the programs of all ships of the given world and evolve it, both during the given duration.
+	 *
+	 * @param 	world
+	 * 			The world to tick.
+	 * @param 	duration
+	 * 			The duration of the tick.
+	 * @throws	IllegalArgumentException
+	 * 			The world can't execute the programs of its ships or can't evolve.
+	 */
+	private static void tick(World world, double duration) throws IllegalArgumentException{
+		try {
+			for (RoundEntity ship : new ArrayList<RoundEntity>(world.getEntityOfClass(Ship.class))){
+				if (!ship.isTerminated() && ((Ship) ship).getProgram() != null)
+					((Ship) ship).executeProgram(duration);
+			}
+		} catch (ClassNotFoundException exc){
+			throw new IllegalArgumentException(exc);
+		}
+		world.evolve(duration, null);
+	}
+
+//	All methods related to the tick statistics of a world.
+
+	/**
+	 * Return the number of finished ticks of the given world.
+	 *
+	 * @throws	IllegalArgumentException
+	 * 			| !hasAsWorld(world)
+	 */
+	public long getNbTicks(World world) throws IllegalArgumentException{
+		lock.lock();
+		try {
+			return this.getHostedWorld(world).nbTicks;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Return the mean time a tick of the given world took, in nanoseconds, zero if it has not been ticked yet.
+	 *
+	 * @throws	IllegalArgumentException
+	 * 			| !hasAsWorld(world)
+	 */
+	public double getMeanTickLatency(World world) throws IllegalArgumentException{
+		lock.lock();
+		try {
+			HostedWorld hostedWorld = this.getHostedWorld(world);
+			if (hostedWorld.nbTicks == 0)
+				return 0;
+			return (double) hostedWorld.totalLatency / hostedWorld.nbTicks;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Return the longest time a tick of the given world took, in nanoseconds.
+	 *
+	 * @throws	IllegalArgumentException
+	 * 			| !hasAsWorld(world)
+	 */
+	public long getMaxTickLatency(World world) throws IllegalArgumentException{
+		lock.lock();
+		try {
+			return this.getHostedWorld(world).maxLatency;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Return the time the last tick of the given world took, in nanoseconds.
+	 *
+	 * @throws	IllegalArgumentException
+	 * 			| !hasAsWorld(world)
+	 */
+	public long getLastTickLatency(World world) throws IllegalArgumentException{
+		lock.lock();
+		try {
+			return this.getHostedWorld(world).lastLatency;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Return the number of ticks of the given world that took longer than its tick budget.
+	 *
+	 * @throws	IllegalArgumentException
+	 * 			| !hasAsWorld(world)
+	 */
+	public long getNbOverruns(World world) throws IllegalArgumentException{
+		lock.lock();
+		try {
+			return this.getHostedWorld(world).nbOverruns;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Return the exception thrown by the failed tick of the given world, null if no tick has failed.
+	 * No more ticks of a world are run after a failed tick.
+	 *
+	 * @throws	IllegalArgumentException
+	 * 			| !hasAsWorld(world)
+	 */
+	public RuntimeException getFailure(World world) throws IllegalArgumentException{
+		lock.lock();
+		try {
+			return this.getHostedWorld(world).failure;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+//	All methods related to the termination of a host.
+
+	/**
+	 * Variable registering whether this host is terminated.
+	 */
+	private boolean isTerminated = false;
+
+	/**
+	 * Check whether this host is terminated.
+	 */
+	@Basic
+	public boolean isTerminated(){
+		lock.lock();
+		try {
+			return this.isTerminated;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Terminate this host. Pending ticks are dropped, running ticks are completed, and the threads stop.
+	 * The worlds themselves are not terminated.
+	 *
+	 * @post	| new.isTerminated()
+	 */
+	public void terminate(){
+		lock.lock();
+		try {
+			this.isTerminated = true;
+			this.runQueue.clear();
+			this.workAvailable.signalAll();
+			this.tickFinished.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * A class registering the state and tick statistics of a world hosted by a host.
+	 */
+	private static class HostedWorld {
+
+		/**
+		 * Initialize this new hosted world for the given world, tick duration and tick budget.
+		 */
+		HostedWorld(World world, double tickDuration, long tickBudget){
+			this.world = world;
+			this.tickDuration = tickDuration;
+			this.tickBudget = tickBudget;
+		}
+
+		/**
+		 * The world, the duration of a tick and the budget of a tick in nanoseconds.
+		 */
+		final World world;
+		final double tickDuration;
+		final long tickBudget;
+
+		/**
+		 * The number of pending ticks, and whether a tick is running.
+		 */
+		int pendingTicks = 0;
+		boolean isRunning = false;
+
+		/**
+		 * The exception of the failed tick, null if no tick has failed.
+		 */
+		RuntimeException failure = null;
+
+		/**
+		 * The statistics of the finished ticks, times in nanoseconds.
+		 */
+		long nbTicks = 0, totalLatency = 0, maxLatency = 0, lastLatency = 0, nbOverruns = 0;
+
+		/**
+		 * Register a finished tick that took the given time.
+		 */
+		void registerTick(long latency){
+			this.nbTicks++;
+			this.totalLatency += latency;
+			this.lastLatency = latency;
+			if (latency > this.maxLatency)
+				this.maxLatency = latency;
+			if (latency > this.tickBudget)
+				this.nbOverruns++;
+		}
+	}
+}
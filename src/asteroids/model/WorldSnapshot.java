@@ -0,0 +1,237 @@
+package asteroids.model;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import be.kuleuven.cs.som.annotate.Value;
+
+/**
+ * A class of immutable snapshots of the entities of a space at one moment.
+ * The state of the entities is packed in primitive arrays, one element per entity,
+ * with the entities ordered by increasing identifier. A snapshot never changes after it is
+ * published, so any number of threads can read it without locking the space it was taken of.
+ *
+ * @invar	The identifiers of the entities of each snapshot are strictly increasing.
+ * 			| for each i in 1..getNbEntities()-1: getId(i-1) < getId(i)
+ *
+ * @version 1.0
+ *
+ * @author Amber Van Camp & Jasper Vanmeerbeeck
+ */
+@Value
+public final class WorldSnapshot {
+
+	/**
+	 * An enumeration of the kinds of entities in a snapshot.
+	 */
+	public static enum Kind {
+		SHIP, BULLET, ASTEROID, PLANETOID;
+
+		/**
+		 * Return the kind of the given entity.
+		 */
+		static Kind of(RoundEntity entity){
+			if (entity instanceof Ship)
+				return SHIP;
+			if (entity instanceof Bullet)
+				return BULLET;
+			if (entity instanceof Planetoid)
+				return PLANETOID;
+			return ASTEROID;
+		}
+	}
+
+	/**
+	 * The kinds in the order of their codes.
+	 */
+	private static final Kind[] KINDS = Kind.values();
+
+	/**
+	 * Comparator ordering entities by increasing identifier.
+	 */
+	private static final Comparator<RoundEntity> BY_ID = new Comparator<RoundEntity>(){
+		@Override
+		public int compare(RoundEntity first, RoundEntity second){
+			return Long.compare(first.getId(), second.getId());
+		}
+	};
+
+	/**
+	 * Initialize this new snapshot of the entities of the given space, as the given version.
+	 * Reading the state of the entities has no side effects on the space.
+	 *
+	 * @param 	space
+	 * 			The space to take the snapshot of.
+	 * @param 	version
+	 * 			The version of this snapshot.
+	 * @post	| new.getVersion() == version
+	 * @post	| new.getWidth() == space.getWidth() && new.getHeight() == space.getHeight()
+	 * @post	| new.getNbEntities() == space.getEntities().size()
+	 */
+	WorldSnapshot(Space space, long version){
+		RoundEntity[] entities = space.getEntityArray();
+		Arrays.sort(entities, BY_ID);
+		int size = entities.length;
+		this.version = version;
+		this.width = space.getWidth();
+		this.height = space.getHeight();
+		this.ids = new long[size];
+		this.kinds = new byte[size];
+		this.xPositions = new double[size];
+		this.yPositions = new double[size];
+		this.radii = new double[size];
+		this.orientations = new double[size];
+		for (int i = 0; i < size; i++){
+			RoundEntity entity = entities[i];
+			this.ids[i] = entity.getId();
+			this.kinds[i] = (byte) Kind.of(entity).ordinal();
+			this.xPositions[i] = entity.getxPosition();
+			this.yPositions[i] = entity.getyPosition();
+			this.radii[i] = entity.getRawRadius();
+			if (entity instanceof Ship)
+				this.orientations[i] = ((Ship) entity).getOrientation();
+		}
+	}
+
+	/**
+	 * The packed state of the entities of this snapshot.
+	 */
+	private final long[] ids;
+	private final byte[] kinds;
+	private final double[] xPositions, yPositions, radii, orientations;
+
+	/**
+	 * Variable registering the version of this snapshot.
+	 */
+	private final long version;
+
+	/**
+	 * Return the version of this snapshot. Later snapshots of the same space have a larger version.
+	 */
+	@Basic
+	@Immutable
+	public long getVersion(){
+		return this.version;
+	}
+
+	/**
+	 * Variables registering the width and height of the space of this snapshot.
+	 */
+	private final double width, height;
+
+	/**
+	 * Return the width of the space of this snapshot.
+	 */
+	@Basic
+	@Immutable
+	public double getWidth(){
+		return this.width;
+	}
+
+	/**
+	 * Return the height of the space of this snapshot.
+	 */
+	@Basic
+	@Immutable
+	public double getHeight(){
+		return this.height;
+	}
+
+	/**
+	 * Return the number of entities in this snapshot.
+	 */
+	@Basic
+	@Immutable
+	public int getNbEntities(){
+		return this.ids.length;
+	}
+
+	/**
+	 * Return the identifier of the entity at the given index.
+	 *
+	 * @throws	IndexOutOfBoundsException
+	 * 			| index < 0 || index >= getNbEntities()
+	 */
+	@Basic
+	@Immutable
+	public long getId(int index) throws IndexOutOfBoundsException{
+		return this.ids[index];
+	}
+
+	/**
+	 * Return the kind of the entity at the given index.
+	 *
+	 * @throws	IndexOutOfBoundsException
+	 * 			| index < 0 || index >= getNbEntities()
+	 */
+	@Basic
+	@Immutable
+	public Kind getKind(int index) throws IndexOutOfBoundsException{
+		return KINDS[this.kinds[index]];
+	}
+
+	/**
+	 * Return the x-coordinate of the position of the entity at the given index.
+	 *
+	 * @throws	IndexOutOfBoundsException
+	 * 			| index < 0 || index >= getNbEntities()
+	 */
+	@Basic
+	@Immutable
+	public double getxPosition(int index) throws IndexOutOfBoundsException{
+		return this.xPositions[index];
+	}
+
+	/**
+	 * Return the y-coordinate of the position of the entity at the given index.
+	 *
+	 * @throws	IndexOutOfBoundsException
+	 * 			| index < 0 || index >= getNbEntities()
+	 */
+	@Basic
+	@Immutable
+	public double getyPosition(int index) throws IndexOutOfBoundsException{
+		return this.yPositions[index];
+	}
+
+	/**
+	 * Return the radius of the entity at the given index.
+	 *
+	 * @throws	IndexOutOfBoundsException
+	 * 			| index < 0 || index >= getNbEntities()
+	 */
+	@Basic
+	@Immutable
+	public double getRadius(int index) throws IndexOutOfBoundsException{
+		return this.radii[index];
+	}
+
+	/**
+	 * Return the orientation of the entity at the given index, zero if it is not a ship.
+	 *
+	 * @throws	IndexOutOfBoundsException
+	 * 			| index < 0 || index >= getNbEntities()
+	 */
+	@Basic
+	@Immutable
+	public double getOrientation(int index) throws IndexOutOfBoundsException{
+		return this.orientations[index];
+	}
+
+	/**
+	 * Return the index of the entity with the given identifier in this snapshot.
+	 *
+	 * @param 	id
+	 * 			The identifier to look up.
+	 * @return	The index of the entity with the given identifier, -1 if it is not in this snapshot.
+	 * 			| if (for some i in 0..getNbEntities()-1: getId(i) == id)
+	 * 			|	then getId(result) == id
+	 * 			|	else result == -1
+	 */
+	public int indexOf(long id){
+		int index = Arrays.binarySearch(this.ids, id);
+		return (index < 0) ? -1 : index;
+	}
+}